@@ -0,0 +1,42 @@
+package cz.itnetwork.loadgen;
+
+import java.util.Random;
+
+/**
+ * The times at which requests arrive in an open workload model.
+ * <p>
+ * The arrival times are fixed in advance and don't depend on how fast the server responds. A request
+ * that can't be sent on time because the server or the generator is behind still has its latency measured
+ * from its scheduled time, so a stalled server shows up in the percentiles instead of silently lowering
+ * the load (coordinated omission).
+ * </p>
+ */
+final class ArrivalSchedule {
+
+    private final double meanIntervalNanos;
+    private final boolean poisson;
+    private final Random random;
+    private double next;
+
+    /**
+     * @param rate The mean number of arrivals per second.
+     * @param poisson Whether the intervals are exponentially distributed; otherwise they are constant.
+     * @param seed The seed of the intervals, so the same schedule can be replayed.
+     */
+    ArrivalSchedule(double rate, boolean poisson, long seed) {
+        this.meanIntervalNanos = 1e9 / rate;
+        this.poisson = poisson;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Returns the scheduled time of the next arrival.
+     *
+     * @return The time in nanoseconds since the start of the run.
+     */
+    long nextArrivalNanos() {
+        long arrival = (long) next;
+        next += poisson ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+        return arrival;
+    }
+}
@@ -0,0 +1,139 @@
+package cz.itnetwork.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the measured requests, recorded per operation in HdrHistograms.
+ * <p>
+ * The report is plain text with one line per operation in a fixed order and fixed number formats,
+ * so reports of two runs can be compared with {@code diff}. The full latency distribution of every
+ * operation is written next to it in the {@code .hgrm} format, which HdrHistogram tools can plot.
+ * </p>
+ */
+final class LatencyReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    LatencyReport(List<Operation> operations) {
+        for (Operation operation : operations) {
+            stats.put(operation, new Stats());
+        }
+        // An edit falls back to a create when there is no invoice to edit.
+        stats.putIfAbsent(Operation.INVOICE_CREATE, new Stats());
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param operation The operation.
+     * @param latencyNanos The time from the scheduled arrival to the response.
+     * @param success Whether the server answered with a 2xx status.
+     */
+    void record(Operation operation, long latencyNanos, boolean success) {
+        Stats operationStats = stats.get(operation);
+        operationStats.latency.recordValue(Math.max(1, latencyNanos / 1000));
+        (success ? operationStats.succeeded : operationStats.failed).increment();
+    }
+
+    /**
+     * Records an arrival that was not sent because too many requests were already waiting for a response.
+     */
+    void recordDropped(Operation operation) {
+        stats.get(operation).dropped.increment();
+    }
+
+    /**
+     * @return The share of measured requests that failed or were dropped.
+     */
+    double errorRatio() {
+        long total = 0;
+        long errors = 0;
+        for (Stats operationStats : stats.values()) {
+            total += operationStats.total();
+            errors += operationStats.failed.sum() + operationStats.dropped.sum();
+        }
+        return total == 0 ? 0 : (double) errors / total;
+    }
+
+    /**
+     * Writes the report and the latency distributions.
+     *
+     * @param output The report file.
+     * @param header The description of the run, written as the first line.
+     * @param measuredSeconds The length of the measured part of the run.
+     */
+    void write(Path output, String header, double measuredSeconds) throws IOException {
+        Path directory = output.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Histogram all = new Histogram(3);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            writer.println("# " + header);
+            writer.println(String.format(Locale.ROOT, "%-20s %9s %8s %8s %12s %10s %10s %10s %10s %10s",
+                    "operation", "requests", "errors", "dropped", "throughput/s",
+                    "p50_ms", "p90_ms", "p99_ms", "p99.9_ms", "max_ms"));
+            Stats total = new Stats();
+            for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+                Stats operationStats = entry.getValue();
+                writer.println(line(entry.getKey().key(), operationStats, operationStats.latency, measuredSeconds));
+                all.add(operationStats.latency);
+                total.succeeded.add(operationStats.succeeded.sum());
+                total.failed.add(operationStats.failed.sum());
+                total.dropped.add(operationStats.dropped.sum());
+                writeDistribution(directory, output, entry.getKey().key(), operationStats.latency);
+            }
+            writer.println(line("total", total, all, measuredSeconds));
+        }
+        writeDistribution(directory, output, "total", all);
+    }
+
+    private String line(String name, Stats operationStats, Histogram latency, double measuredSeconds) {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-20s %9d %8d %8d %12.1f",
+                name, operationStats.total(), operationStats.failed.sum(), operationStats.dropped.sum(),
+                operationStats.succeeded.sum() / measuredSeconds));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(Locale.ROOT, " %10.2f", latency.getValueAtPercentile(percentile) / MICROS_PER_MILLI));
+        }
+        line.append(String.format(Locale.ROOT, " %10.2f", latency.getMaxValue() / MICROS_PER_MILLI));
+        return line.toString();
+    }
+
+    private void writeDistribution(Path directory, Path output, String name, Histogram latency) throws IOException {
+        String baseName = output.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+        Path file = directory.resolve(baseName + "-" + name + ".hgrm");
+        try (PrintStream stream = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            latency.outputPercentileDistribution(stream, MICROS_PER_MILLI);
+        }
+    }
+
+    /**
+     * The outcomes and latencies of one operation; latencies are in microseconds.
+     */
+    private static final class Stats {
+
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        private long total() {
+            return succeeded.sum() + failed.sum() + dropped.sum();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cz.itnetwork.loadgen;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a scenario against a running invoice server at a fixed target rate and reports the latencies.
+ * <p>
+ * Requests are sent according to an {@link ArrivalSchedule} of an open workload model: each arrival
+ * is sent at its scheduled time no matter how many earlier requests are still waiting for a response,
+ * and its latency is measured from the scheduled time. A slow server therefore raises the latencies
+ * instead of lowering the offered load. When {@code max-in-flight} requests are waiting, further arrivals
+ * are dropped and reported as such rather than delayed.
+ * </p>
+ * <p>
+ * Usage, with the server running locally:
+ * </p>
+ * <pre>
+ * mvn -f load-generator/pom.xml package
+ * java -jar load-generator/target/SpringInvoiceDatabase-load-generator-1.0-SNAPSHOT.jar \
+ *      --rate=200 --duration=60 --warmup=10 --scenario=mixed --output=target/load-report.txt
+ * </pre>
+ * <p>
+ * Bundled scenarios are {@code mixed}, {@code read-heavy} and {@code write-heavy}. The exit code is 1 if
+ * the share of failed and dropped requests exceeds {@code max-error-ratio}, and 2 if the run couldn't start.
+ * </p>
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        Scenario scenario;
+        try {
+            options = LoadOptions.parse(args);
+            scenario = Scenario.load(options.scenario());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                    Thread thread = new Thread(runnable, "load-response-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .executor(responseExecutor)
+                .build();
+
+        ScenarioContext context = new ScenarioContext(client, options.baseUrl(), options.timeout());
+        System.out.printf("Připravuji %d osob a %d faktur na %s...%n", options.persons(), options.invoices(), options.baseUrl());
+        context.seed(options.persons(), options.invoices(), options.seed());
+
+        LatencyReport report = new LatencyReport(scenario.operations());
+        System.out.printf(Locale.ROOT, "Scénář %s: %.1f požadavků/s, zahřátí %d s, měření %d s.%n",
+                scenario.name(), options.rate(), options.warmup().toSeconds(), options.duration().toSeconds());
+        run(options, scenario, context, client, report);
+
+        String header = String.format(Locale.ROOT,
+                "scenario=%s rate=%.1f/s arrivals=%s duration=%ds warmup=%ds seed=%d max-in-flight=%d",
+                scenario.name(), options.rate(), options.poisson() ? "poisson" : "uniform",
+                options.duration().toSeconds(), options.warmup().toSeconds(), options.seed(), options.maxInFlight());
+        report.write(options.output(), header, options.duration().toMillis() / 1000.0);
+        System.out.println("Výsledky zapsány do " + options.output().toAbsolutePath() + ".");
+        responseExecutor.shutdownNow();
+
+        double errorRatio = report.errorRatio();
+        if (errorRatio > options.maxErrorRatio()) {
+            System.err.printf(Locale.ROOT, "Podíl chybných požadavků %.4f překročil povolený podíl %.4f.%n",
+                    errorRatio, options.maxErrorRatio());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sends the arrivals of the warmup and of the measurement, then waits for the outstanding responses.
+     * Only requests scheduled after the warmup are recorded.
+     */
+    private static void run(LoadOptions options, Scenario scenario, ScenarioContext context, HttpClient client,
+                            LatencyReport report) throws InterruptedException {
+        ArrivalSchedule schedule = new ArrivalSchedule(options.rate(), options.poisson(), options.seed());
+        Random random = new Random(options.seed());
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        long warmupNanos = options.warmup().toNanos();
+        long endNanos = warmupNanos + options.duration().toNanos();
+        long start = System.nanoTime();
+
+        for (long arrival = schedule.nextArrivalNanos(); arrival < endNanos; arrival = schedule.nextArrivalNanos()) {
+            long scheduled = start + arrival;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            boolean measured = arrival >= warmupNanos;
+            ScenarioContext.Call call = context.prepare(scenario.pick(random), random);
+            if (!inFlight.tryAcquire()) {
+                context.complete(call, null);
+                if (measured) {
+                    report.recordDropped(call.operation());
+                }
+                continue;
+            }
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - scheduled;
+                        inFlight.release();
+                        context.complete(call, response);
+                        if (measured) {
+                            report.record(call.operation(), latency, response != null && response.statusCode() / 100 == 2);
+                        }
+                    });
+        }
+
+        // Responses still outstanding at the end are waited for up to the request timeout.
+        Duration drain = options.timeout().plusSeconds(1);
+        if (!inFlight.tryAcquire(options.maxInFlight(), drain.toMillis(), TimeUnit.MILLISECONDS)) {
+            System.err.println("Některé požadavky nebyly dokončeny ani po " + drain.toSeconds() + " s.");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cz.itnetwork.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of a load test run, given on the command line as {@code --name=value}.
+ *
+ * @param baseUrl The address of the server, by default the loopback interface.
+ * @param rate The target number of requests per second.
+ * @param duration The length of the measured part of the run.
+ * @param warmup The length of the unmeasured run before the measurement.
+ * @param scenario The name of a bundled scenario or the path to a scenario file.
+ * @param output The report file; the latency distributions are written next to it.
+ * @param seed The seed of the arrival schedule and of the choice of operations, so runs are repeatable.
+ * @param poisson Whether the arrivals follow a Poisson process; otherwise they are evenly spaced.
+ * @param maxInFlight The maximum number of requests waiting for a response; further arrivals are dropped.
+ * @param timeout The maximum time to wait for a single response.
+ * @param persons The number of persons created before the run.
+ * @param invoices The number of invoices created before the run.
+ * @param maxErrorRatio The share of failed requests above which the run ends with a non-zero exit code.
+ */
+public record LoadOptions(
+        URI baseUrl,
+        double rate,
+        Duration duration,
+        Duration warmup,
+        String scenario,
+        Path output,
+        long seed,
+        boolean poisson,
+        int maxInFlight,
+        Duration timeout,
+        int persons,
+        int invoices,
+        double maxErrorRatio
+) {
+
+    /**
+     * Parses the command line arguments; options not given keep their defaults.
+     *
+     * @param args The arguments, e.g. {@code --rate=200 --duration=60 --scenario=mixed}.
+     * @return The options.
+     * @throws IllegalArgumentException if an argument is malformed or unknown.
+     */
+    public static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Neplatný argument " + arg + ", očekává se --nazev=hodnota.");
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadOptions options = new LoadOptions(
+                URI.create(take(values, "base-url", "http://127.0.0.1:8080")),
+                Double.parseDouble(take(values, "rate", "100")),
+                Duration.ofSeconds(Long.parseLong(take(values, "duration", "60"))),
+                Duration.ofSeconds(Long.parseLong(take(values, "warmup", "10"))),
+                take(values, "scenario", "mixed"),
+                Path.of(take(values, "output", "target/load-report.txt")),
+                Long.parseLong(take(values, "seed", "42")),
+                Boolean.parseBoolean(take(values, "poisson", "true")),
+                Integer.parseInt(take(values, "max-in-flight", "2000")),
+                Duration.ofMillis(Long.parseLong(take(values, "timeout", "10000"))),
+                Integer.parseInt(take(values, "persons", "20")),
+                Integer.parseInt(take(values, "invoices", "100")),
+                Double.parseDouble(take(values, "max-error-ratio", "1")));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Neznámé volby: " + String.join(", ", values.keySet()) + ".");
+        }
+        if (options.rate() <= 0 || options.persons() < 2 || options.maxInFlight() < 1) {
+            throw new IllegalArgumentException("Četnost musí být kladná, osoby alespoň dvě a souběžných požadavků alespoň jeden.");
+        }
+        return options;
+    }
+
+    private static String take(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value != null ? value : defaultValue;
+    }
+}
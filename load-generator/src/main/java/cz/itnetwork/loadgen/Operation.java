@@ -0,0 +1,64 @@
+package cz.itnetwork.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * The calls to the server a scenario is composed of.
+ */
+enum Operation {
+
+    /**
+     * {@code POST /api/invoices} with a new invoice between two of the seeded persons.
+     */
+    INVOICE_CREATE("invoice.create"),
+
+    /**
+     * {@code PUT /api/invoices/{id}} of an invoice created by the run.
+     */
+    INVOICE_EDIT("invoice.edit"),
+
+    /**
+     * {@code GET /api/invoices/summary}, a random page, sometimes filtered by seller.
+     */
+    INVOICE_LIST("invoice.list"),
+
+    /**
+     * {@code GET /api/invoices/statistics}.
+     */
+    INVOICE_STATISTICS("invoice.statistics"),
+
+    /**
+     * {@code GET /api/persons/lookup/{id}} of a seeded person.
+     */
+    PERSON_LOOKUP("person.lookup"),
+
+    /**
+     * {@code GET /api/persons/search} by the beginning of a seeded person's name.
+     */
+    PERSON_SEARCH("person.search");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return The name of the operation in scenario files and reports.
+     */
+    String key() {
+        return key;
+    }
+
+    /**
+     * Finds the operation by its name in a scenario file.
+     *
+     * @throws IllegalArgumentException if there is no such operation.
+     */
+    static Operation fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Neznámá operace scénáře: " + key + "."));
+    }
+}
@@ -0,0 +1,100 @@
+package cz.itnetwork.loadgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * A weighted mix of operations, read from a properties file mapping operation names to weights.
+ * <p>
+ * Bundled scenarios are looked up by name in {@code /scenarios/<name>.properties} on the classpath;
+ * any other value is treated as a path to a scenario file.
+ * </p>
+ */
+final class Scenario {
+
+    private final String name;
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    private Scenario(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Loads the scenario.
+     *
+     * @param nameOrPath The name of a bundled scenario or the path to a scenario file.
+     * @return The scenario with its operations in a fixed order, so the same seed picks the same operations.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the scenario doesn't exist or contains an invalid entry.
+     */
+    static Scenario load(String nameOrPath) throws IOException {
+        Properties weights = new Properties();
+        try (InputStream bundled = Scenario.class.getResourceAsStream("/scenarios/" + nameOrPath + ".properties")) {
+            if (bundled != null) {
+                weights.load(new InputStreamReader(bundled, StandardCharsets.UTF_8));
+            } else {
+                Path path = Path.of(nameOrPath);
+                if (!Files.isRegularFile(path)) {
+                    throw new IllegalArgumentException("Scénář " + nameOrPath + " neexistuje.");
+                }
+                try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    weights.load(reader);
+                }
+            }
+        }
+
+        Scenario scenario = new Scenario(nameOrPath);
+        weights.stringPropertyNames().stream()
+                .map(Operation::fromKey)
+                .sorted(Comparator.naturalOrder())
+                .forEach(operation -> scenario.add(operation, Integer.parseInt(weights.getProperty(operation.key()).trim())));
+        if (scenario.totalWeight == 0) {
+            throw new IllegalArgumentException("Scénář " + nameOrPath + " neobsahuje žádnou operaci s kladnou váhou.");
+        }
+        return scenario;
+    }
+
+    private void add(Operation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Váha operace " + operation.key() + " nesmí být záporná.");
+        }
+        if (weight > 0) {
+            totalWeight += weight;
+            operations.add(operation);
+            cumulativeWeights.add(totalWeight);
+        }
+    }
+
+    /**
+     * Picks the next operation according to the weights.
+     */
+    Operation pick(Random random) {
+        int point = random.nextInt(totalWeight);
+        for (int i = 0; i < operations.size(); i++) {
+            if (point < cumulativeWeights.get(i)) {
+                return operations.get(i);
+            }
+        }
+        throw new IllegalStateException("Váhy scénáře jsou nekonzistentní.");
+    }
+
+    String name() {
+        return name;
+    }
+
+    List<Operation> operations() {
+        return operations;
+    }
+}
@@ -0,0 +1,200 @@
+package cz.itnetwork.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The data the operations work with: persons and invoices created before the run and invoices
+ * created during it. It builds the request of each operation and learns the IDs of created invoices
+ * from the responses.
+ */
+final class ScenarioContext {
+
+    private static final String[] PRODUCTS = {"Konzultace", "Vývoj software", "Školení", "Hosting", "Licence", "Podpora"};
+
+    private final HttpClient client;
+    private final URI baseUrl;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Person> persons = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Long> editableInvoices = new ConcurrentLinkedQueue<>();
+
+    ScenarioContext(HttpClient client, URI baseUrl, Duration timeout) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Creates the persons and invoices the run works with. The identification numbers are derived
+     * from the seed, so repeated runs with the same seed create the same data.
+     *
+     * @throws IOException if the server rejects the data or can't be reached.
+     */
+    void seed(int personCount, int invoiceCount, long seed) throws IOException, InterruptedException {
+        Random random = new Random(seed);
+        for (int i = 0; i < personCount; i++) {
+            String identificationNumber = String.format("%08d", Math.floorMod(seed * 1_000 + i, 100_000_000L));
+            String name = "Zátěž " + (char) ('A' + i % 26) + " s.r.o. " + i;
+            ObjectNode person = objectMapper.createObjectNode()
+                    .put("name", name)
+                    .put("identificationNumber", identificationNumber)
+                    .put("taxNumber", "CZ" + identificationNumber)
+                    .put("accountNumber", String.valueOf(1_000_000 + i))
+                    .put("bankCode", "0100")
+                    .put("telephone", "+420 600 000 " + String.format("%03d", i % 1000))
+                    .put("mail", "zatez" + i + "@example.com")
+                    .put("street", "Zkušební " + (i + 1))
+                    .put("zip", "110 00")
+                    .put("city", "Praha")
+                    .put("country", i % 5 == 0 ? "SLOVAKIA" : "CZECHIA");
+            JsonNode created = send(post("/api/persons", person));
+            persons.add(new Person(created.path("id").asLong(), identificationNumber, name));
+        }
+        for (int i = 0; i < invoiceCount; i++) {
+            JsonNode created = send(post("/api/invoices", newInvoice(random)));
+            editableInvoices.add(created.path("id").asLong());
+        }
+    }
+
+    /**
+     * Builds the request of the operation. An edit takes an invoice out of the pool, so no two edits
+     * of the same invoice are in flight; when the pool is empty, an invoice is created instead.
+     */
+    Call prepare(Operation operation, Random random) {
+        Person person = persons.get(random.nextInt(persons.size()));
+        switch (operation) {
+            case INVOICE_CREATE:
+                return new Call(operation, post("/api/invoices", newInvoice(random)), null);
+            case INVOICE_EDIT:
+                Long invoiceId = editableInvoices.poll();
+                if (invoiceId == null) {
+                    return new Call(Operation.INVOICE_CREATE, post("/api/invoices", newInvoice(random)), null);
+                }
+                return new Call(operation, put("/api/invoices/" + invoiceId, newInvoice(random)), invoiceId);
+            case INVOICE_LIST:
+                String filter = random.nextInt(4) == 0 ? "&sellerId=" + encode(person.identificationNumber()) : "";
+                return new Call(operation, get("/api/invoices/summary?size=20&page=" + random.nextInt(5) + filter), null);
+            case INVOICE_STATISTICS:
+                return new Call(operation, get("/api/invoices/statistics"), null);
+            case PERSON_LOOKUP:
+                return new Call(operation, get("/api/persons/lookup/" + person.id()), null);
+            case PERSON_SEARCH:
+                String prefix = person.name().substring(0, Math.min(person.name().length(), 3 + random.nextInt(5)));
+                return new Call(operation, get("/api/persons/search?limit=10&q=" + encode(prefix)), null);
+            default:
+                throw new IllegalArgumentException("Nepodporovaná operace " + operation + ".");
+        }
+    }
+
+    /**
+     * Updates the pool of editable invoices from the result of a call.
+     *
+     * @param call The finished call.
+     * @param response The response, or {@code null} if the call failed.
+     */
+    void complete(Call call, HttpResponse<String> response) {
+        boolean success = response != null && response.statusCode() / 100 == 2;
+        if (call.operation() == Operation.INVOICE_CREATE || call.operation() == Operation.INVOICE_EDIT) {
+            Long id = success ? readId(response.body()) : null;
+            if (id != null) {
+                editableInvoices.add(id);
+            } else if (call.invoiceId() != null) {
+                // The edit failed, so the original invoice may still be current.
+                editableInvoices.add(call.invoiceId());
+            }
+        }
+    }
+
+    private ObjectNode newInvoice(Random random) {
+        Person seller = persons.get(random.nextInt(persons.size()));
+        Person buyer = persons.get(random.nextInt(persons.size()));
+        if (buyer == seller) {
+            buyer = persons.get((persons.indexOf(seller) + 1) % persons.size());
+        }
+        LocalDate issued = LocalDate.now().minusDays(random.nextInt(365));
+        ObjectNode invoice = objectMapper.createObjectNode()
+                .put("issued", issued.toString())
+                .put("dueDate", issued.plusDays(14).toString())
+                .put("product", PRODUCTS[random.nextInt(PRODUCTS.length)])
+                .put("price", BigDecimal.valueOf(100 + random.nextInt(100_000), 0))
+                .put("vat", random.nextInt(3) == 0 ? 12 : 21)
+                .put("note", "Zátěžový test");
+        invoice.putObject("seller").put("id", seller.id());
+        invoice.putObject("buyer").put("id", buyer.id());
+        return invoice;
+    }
+
+    private Long readId(String body) {
+        try {
+            JsonNode id = objectMapper.readTree(body).path("id");
+            return id.isNumber() ? id.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Server odmítl přípravná data (" + request.method() + " " + request.uri()
+                    + " → " + response.statusCode() + "): " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest post(String path, JsonNode body) {
+        return request(path).POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+    }
+
+    private HttpRequest put(String path, JsonNode body) {
+        return request(path).PUT(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A person created for the run.
+     */
+    private record Person(long id, String identificationNumber, String name) {
+    }
+
+    /**
+     * A prepared request of an operation.
+     *
+     * @param operation The operation actually performed.
+     * @param request The HTTP request.
+     * @param invoiceId The edited invoice, returned to the pool if the edit fails.
+     */
+    record Call(Operation operation, HttpRequest request, Long invoiceId) {
+    }
+}
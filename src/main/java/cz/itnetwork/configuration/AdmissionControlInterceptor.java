@@ -0,0 +1,239 @@
+package cz.itnetwork.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import cz.itnetwork.dto.AdmissionMetricsDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of expensive endpoints.
+ * <p>
+ * Every configured controller method gets its own bulkhead (a limit of concurrently processed requests
+ * with a short bounded queue) and a token bucket rate limit. When the database connection pool is
+ * saturated, methods marked to shed on saturation are rejected before they ask for a connection;
+ * with a sharded database that is when the pool of any shard is saturated.
+ * Rejected requests get {@code 503 Service Unavailable} with a {@code Retry-After} header right away,
+ * so heavy reads can't starve the cheap write paths of threads and connections.
+ * </p>
+ * <p>
+ * The slot of a streaming response is held until the stream is finished, not just until the
+ * controller method returns.
+ * </p>
+ */
+@Component
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlInterceptor.class);
+
+    /**
+     * Request attribute holding the bulkhead whose slot the request occupies.
+     */
+    private static final String ADMITTED_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".ADMITTED";
+
+    private final AdmissionControlProperties properties;
+    private final DataSource dataSource;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private volatile List<HikariPoolMXBean> pools;
+
+    public AdmissionControlInterceptor(AdmissionControlProperties properties, DataSource dataSource) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!properties.isEnabled() || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            // The async dispatch of a streaming response that was already admitted.
+            return true;
+        }
+        Bulkhead bulkhead = getBulkhead(handlerMethod);
+        if (bulkhead == null) {
+            return true;
+        }
+
+        if (bulkhead.limit.isShedOnPoolSaturation() && isPoolSaturated()) {
+            bulkhead.rejectedByPoolSaturation.incrementAndGet();
+            return reject(response, bulkhead, "connection pool saturated");
+        }
+        // The slot is taken first: a request rejected by the bulkhead must not use up a token of the rate limit.
+        if (bulkhead.slots != null && !bulkhead.tryEnter()) {
+            bulkhead.rejectedByConcurrency.incrementAndGet();
+            return reject(response, bulkhead, "too many concurrent requests");
+        }
+        if (bulkhead.rateLimit != null && !bulkhead.rateLimit.tryConsume()) {
+            bulkhead.exit();
+            bulkhead.rejectedByRate.incrementAndGet();
+            return reject(response, bulkhead, "rate limit exceeded");
+        }
+
+        bulkhead.admitted.incrementAndGet();
+        request.setAttribute(ADMITTED_ATTRIBUTE, bulkhead);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object admitted = request.getAttribute(ADMITTED_ATTRIBUTE);
+        if (admitted instanceof Bulkhead bulkhead && !request.isAsyncStarted()) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            bulkhead.exit();
+        }
+    }
+
+    /**
+     * Retrieves the admission metrics of all limited endpoints that were called at least once.
+     *
+     * @return The metrics, one item per endpoint.
+     */
+    public List<AdmissionMetricsDTO> getMetrics() {
+        return bulkheads.values().stream()
+                .map(Bulkhead::toMetrics)
+                .toList();
+    }
+
+    private Bulkhead getBulkhead(HandlerMethod handlerMethod) {
+        String endpoint = ClassUtils.getUserClass(handlerMethod.getBeanType()).getSimpleName()
+                + "." + handlerMethod.getMethod().getName();
+        AdmissionControlProperties.EndpointLimit limit = properties.getEndpoints().get(endpoint);
+        if (limit == null) {
+            return null;
+        }
+        return bulkheads.computeIfAbsent(endpoint, key -> new Bulkhead(key, limit));
+    }
+
+    private boolean reject(HttpServletResponse response, Bulkhead bulkhead, String reason) {
+        log.debug("Rejected request to {}: {}.", bulkhead.endpoint, reason);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(properties.getRetryAfterSeconds()));
+        return false;
+    }
+
+    /**
+     * Whether more threads than configured are waiting for a connection of any of the databases.
+     */
+    private boolean isPoolSaturated() {
+        for (HikariPoolMXBean poolBean : getPools()) {
+            if (poolBean.getThreadsAwaitingConnection() > properties.getMaxThreadsAwaitingConnection()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<HikariPoolMXBean> getPools() {
+        List<HikariPoolMXBean> found = pools;
+        if (found != null) {
+            return found;
+        }
+        try {
+            // A routing datasource would only report the pool of the shard selected for the current thread.
+            Collection<DataSource> targets = dataSource.isWrapperFor(AbstractRoutingDataSource.class)
+                    ? dataSource.unwrap(AbstractRoutingDataSource.class).getResolvedDataSources().values()
+                    : List.of(dataSource);
+            found = new ArrayList<>();
+            boolean started = true;
+            for (DataSource target : targets) {
+                if (target.isWrapperFor(HikariDataSource.class)) {
+                    // The pool bean exists only once the pool has been started.
+                    HikariPoolMXBean poolBean = target.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                    if (poolBean != null) {
+                        found.add(poolBean);
+                    } else {
+                        started = false;
+                    }
+                }
+            }
+            if (started) {
+                pools = List.copyOf(found);
+            }
+        } catch (SQLException e) {
+            log.debug("Unable to access the connection pool.", e);
+            return List.of();
+        }
+        return found;
+    }
+
+    /**
+     * The limits and counters of a single endpoint.
+     */
+    private static final class Bulkhead {
+
+        private final String endpoint;
+        private final AdmissionControlProperties.EndpointLimit limit;
+        private final Semaphore slots;
+        private final TokenBucket rateLimit;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong rejectedByConcurrency = new AtomicLong();
+        private final AtomicLong rejectedByRate = new AtomicLong();
+        private final AtomicLong rejectedByPoolSaturation = new AtomicLong();
+
+        private Bulkhead(String endpoint, AdmissionControlProperties.EndpointLimit limit) {
+            this.endpoint = endpoint;
+            this.limit = limit;
+            this.slots = limit.getMaxConcurrent() > 0 ? new Semaphore(limit.getMaxConcurrent()) : null;
+            this.rateLimit = limit.getPermitsPerSecond() > 0 ? new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst()) : null;
+        }
+
+        /**
+         * Takes a free slot, waiting for one only if the queue isn't full.
+         */
+        private boolean tryEnter() throws InterruptedException {
+            if (slots.tryAcquire()) {
+                return true;
+            }
+            if (waiting.incrementAndGet() > limit.getMaxQueue()) {
+                waiting.decrementAndGet();
+                return false;
+            }
+            try {
+                return slots.tryAcquire(limit.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        private void exit() {
+            if (slots != null) {
+                slots.release();
+            }
+        }
+
+        private AdmissionMetricsDTO toMetrics() {
+            int active = slots != null ? limit.getMaxConcurrent() - slots.availablePermits() : 0;
+            return new AdmissionMetricsDTO(
+                    endpoint,
+                    active,
+                    waiting.get(),
+                    admitted.get(),
+                    rejectedByConcurrency.get(),
+                    rejectedByRate.get(),
+                    rejectedByPoolSaturation.get());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package cz.itnetwork.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of admission control, bound from {@code invoicing.admission}.
+ * Limits are configured per controller method, keyed as {@code ControllerName.methodName}.
+ */
+@Component
+@ConfigurationProperties(prefix = "invoicing.admission")
+@Getter
+@Setter
+public class AdmissionControlProperties {
+
+    /**
+     * Whether admission control is active at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The value of the {@code Retry-After} header sent with rejected requests, in seconds.
+     */
+    private int retryAfterSeconds = 1;
+
+    /**
+     * The number of threads waiting for a database connection above which the connection pool
+     * is considered saturated and endpoints marked with {@code shedOnPoolSaturation} are rejected.
+     */
+    private int maxThreadsAwaitingConnection = 2;
+
+    /**
+     * Limits of the individual controller methods; methods without an entry are not limited.
+     */
+    private Map<String, EndpointLimit> endpoints = new LinkedHashMap<>();
+
+    /**
+     * Limits of a single controller method.
+     */
+    @Getter
+    @Setter
+    public static class EndpointLimit {
+
+        /**
+         * The maximum number of requests processed at the same time; 0 means unlimited.
+         */
+        private int maxConcurrent;
+
+        /**
+         * The maximum number of requests waiting for a free slot; further requests are rejected immediately.
+         */
+        private int maxQueue;
+
+        /**
+         * How long a queued request waits for a free slot, in milliseconds.
+         */
+        private long maxWaitMillis = 100;
+
+        /**
+         * The sustained number of requests per second; 0 means unlimited.
+         */
+        private double permitsPerSecond;
+
+        /**
+         * The number of requests that may be accepted in a burst above the sustained rate.
+         */
+        private int burst = 1;
+
+        /**
+         * Whether to reject requests while the database connection pool is saturated.
+         * Intended for heavy read endpoints, so that cheap writes still get connections.
+         */
+        private boolean shedOnPoolSaturation;
+    }
+}
@@ -0,0 +1,16 @@
+package cz.itnetwork.configuration;
+
+import cz.itnetwork.service.shard.ShardContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * A datasource handing out connections of the shard selected for the current thread in {@link ShardContext},
+ * or of the first shard when none is selected.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
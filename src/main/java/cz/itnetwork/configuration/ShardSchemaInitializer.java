@@ -0,0 +1,82 @@
+package cz.itnetwork.configuration;
+
+import cz.itnetwork.service.shard.ShardedOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Prepares the shards after Hibernate has created the schema on the first one.
+ * <p>
+ * The schema script generated by Hibernate is run on the other shards, and the identity columns
+ * of invoices and outbox events are moved to the ID range of each shard, so that IDs are unique
+ * across shards and tell the shard of a row.
+ * </p>
+ */
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+    private static final List<String> RANGED_TABLES = List.of("invoice", "outbox_event");
+
+    private final List<DataSource> shards;
+    private final ShardedOperations shardOperations;
+    private final String schemaScript;
+
+    public ShardSchemaInitializer(List<DataSource> shards, ShardedOperations shardOperations, String schemaScript) {
+        this.shards = shards;
+        this.shardOperations = shardOperations;
+        this.schemaScript = schemaScript;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        FileSystemResource script = new FileSystemResource(schemaScript);
+        if (!script.exists()) {
+            throw new IllegalStateException("Skript schématu " + schemaScript + " nebyl vygenerován; "
+                    + "nastavte spring.jpa.properties.jakarta.persistence.schema-generation.scripts.");
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            DataSource dataSource = shards.get(shard);
+            if (shard > 0) {
+                ResourceDatabasePopulator populator = new ResourceDatabasePopulator(script);
+                populator.setContinueOnError(true); // tables kept from a previous run
+                populator.execute(dataSource);
+            }
+            moveIdentities(dataSource, shardOperations.firstId(shard));
+        }
+        log.info("Prepared {} shards.", shards.size());
+    }
+
+    private void moveIdentities(DataSource dataSource, long firstId) {
+        if (firstId == 1) {
+            return;
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        boolean h2 = isH2(dataSource);
+        for (String table : RANGED_TABLES) {
+            Long maxId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            if (maxId != null && maxId >= firstId) {
+                continue;
+            }
+            jdbc.execute(h2
+                    ? "ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + firstId
+                    : "ALTER TABLE " + table + " AUTO_INCREMENT = " + firstId);
+        }
+    }
+
+    private boolean isH2(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().toUpperCase().contains("H2");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Nepodařilo se zjistit typ databáze shardu.", e);
+        }
+    }
+}
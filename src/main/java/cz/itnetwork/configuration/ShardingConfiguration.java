@@ -0,0 +1,105 @@
+package cz.itnetwork.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.PersonRepository;
+import cz.itnetwork.service.InvoiceServiceImpl;
+import cz.itnetwork.service.shard.PersonReplicator;
+import cz.itnetwork.service.shard.ShardedInvoiceService;
+import cz.itnetwork.service.shard.ShardedOperations;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads invoices across several databases by the identification number of their seller.
+ * <p>
+ * Active only with {@code invoicing.sharding.enabled=true}; the {@code sharded} profile configures
+ * three embedded databases for local testing. JPA works with a datasource routing each connection
+ * to the shard selected by the calling code, and {@link ShardedInvoiceService} replaces the invoice service
+ * to select the shards. Persons are written on the first shard and copied to the others.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "invoicing.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfiguration implements DisposableBean {
+
+    private final ShardingProperties properties;
+    private final List<HikariDataSource> shards = new ArrayList<>();
+
+    public ShardingConfiguration(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("Rozdělení databáze je zapnuté, ale není nastaven žádný shard.");
+        }
+        this.properties = properties;
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .driverClassName(shard.getDriverClassName())
+                    .build();
+            dataSource.setPoolName("shard-" + i);
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            shards.add(dataSource);
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        return routing;
+    }
+
+    @Bean
+    public ShardedOperations shardOperations(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        return new ShardedOperations(shards.size(), properties.getIdRange(), entityManagerFactory,
+                properties.getWorkerConcurrency());
+    }
+
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(ShardedOperations shardOperations) {
+        return new ShardSchemaInitializer(List.copyOf(shards), shardOperations, properties.getSchemaScript());
+    }
+
+    @Bean
+    public PersonReplicator personReplicator() {
+        return new PersonReplicator(shards.stream().map(NamedParameterJdbcTemplate::new).toList());
+    }
+
+    @Bean
+    @Primary
+    public ShardedInvoiceService shardedInvoiceService(InvoiceServiceImpl invoiceService,
+                                                       ShardedOperations shardOperations,
+                                                       PersonRepository personRepository,
+                                                       InvoiceRepository invoiceRepository,
+                                                       PersonReplicator personReplicator) {
+        return new ShardedInvoiceService(invoiceService, shardOperations, personRepository, invoiceRepository, personReplicator);
+    }
+
+    @Override
+    public void destroy() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
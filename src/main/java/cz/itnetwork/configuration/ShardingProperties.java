@@ -0,0 +1,66 @@
+package cz.itnetwork.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of horizontal sharding of invoices, bound from {@code invoicing.sharding}.
+ */
+@Component
+@ConfigurationProperties(prefix = "invoicing.sharding")
+@Getter
+@Setter
+public class ShardingProperties {
+
+    /**
+     * Whether invoices are spread across the configured shards instead of the single {@code spring.datasource}.
+     */
+    private boolean enabled;
+
+    /**
+     * The size of the range of invoice and outbox event IDs allocated by each shard.
+     */
+    private long idRange = 1_000_000_000_000L;
+
+    /**
+     * The expected number of operations using all shards at the same time; the shard workers are limited
+     * to this number times the number of shards.
+     */
+    private int workerConcurrency = 10;
+
+    /**
+     * The file the schema script is generated into by Hibernate and created on the other shards from.
+     */
+    private String schemaScript = "target/shard-schema.sql";
+
+    /**
+     * The shards; the first one also holds the master copy of persons. Their order must never change.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Connection settings of a single shard.
+     */
+    @Getter
+    @Setter
+    public static class Shard {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private String driverClassName;
+
+        /**
+         * The maximum number of connections kept open to the shard.
+         */
+        private int maximumPoolSize = 10;
+    }
+}
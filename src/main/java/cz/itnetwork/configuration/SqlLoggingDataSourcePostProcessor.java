@@ -0,0 +1,215 @@
+package cz.itnetwork.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times the statements executed through the application's datasource and logs a sample of them,
+ * together with every statement slower than the threshold.
+ * <p>
+ * Each logged statement includes its duration, the bound parameters and the service method it was executed from.
+ * Statements that aren't logged only cost the timing and the recording of their parameters; the originating
+ * method is looked up on the stack only for the logged ones. Statements are logged under {@code cz.itnetwork.sql},
+ * sampled ones at INFO and slow ones at WARN. Active only with {@code invoicing.sql-log.enabled}; it replaces
+ * {@code show-sql} and the parameter TRACE logging, which log every statement synchronously.
+ * </p>
+ */
+@Component
+public class SqlLoggingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger("cz.itnetwork.sql");
+    private static final String SERVICE_PACKAGE = "cz.itnetwork.service";
+
+    private final SqlLoggingProperties properties;
+
+    public SqlLoggingDataSourcePostProcessor(SqlLoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (properties.isEnabled() && bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, new DataSourceHandler(dataSource));
+        }
+        return bean;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlLoggingDataSourcePostProcessor.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the connections handed out by the datasource.
+     */
+    private final class DataSourceHandler implements InvocationHandler {
+
+        private final DataSource target;
+
+        private DataSourceHandler(DataSource target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlLoggingDataSourcePostProcessor.invoke(target, method, args);
+            if (result instanceof Connection connection) {
+                return proxy(Connection.class, connection, new ConnectionHandler(connection));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Wraps the statements created by a connection, remembering the SQL of prepared ones.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlLoggingDataSourcePostProcessor.invoke(target, method, args);
+            if (result instanceof CallableStatement) {
+                // Stored procedures aren't used by the application and are left unwrapped.
+                return result;
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement, new StatementHandler(statement, (String) args[0]));
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement, new StatementHandler(statement, null));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Records the bound parameters of a statement and times its executions.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private int batchSize;
+
+        private StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("setNull") && args != null && args[0] instanceof Integer index) {
+                // The second argument is the SQL type code, not the value.
+                parameters.put(index, null);
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            return SqlLoggingDataSourcePostProcessor.invoke(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return SqlLoggingDataSourcePostProcessor.invoke(target, method, args);
+            } finally {
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                boolean slow = millis >= properties.getSlowThresholdMillis();
+                if (slow || ThreadLocalRandom.current().nextDouble() < properties.getSampleRate()) {
+                    String sql = preparedSql != null ? preparedSql : (args != null && args.length > 0 ? String.valueOf(args[0]) : "?");
+                    write(slow, millis, sql);
+                }
+                if (method.getName().equals("executeBatch")) {
+                    batchSize = 0;
+                }
+            }
+        }
+
+        private void write(boolean slow, long millis, String sql) {
+            String origin = findOrigin();
+            String batch = batchSize > 0 ? " batch=" + batchSize : "";
+            if (slow) {
+                log.warn("Slow statement {} ms in {}{}: {} parameters={}", millis, origin, batch, compact(sql), formatParameters());
+            } else {
+                log.info("Statement {} ms in {}{}: {} parameters={}", millis, origin, batch, compact(sql), formatParameters());
+            }
+        }
+
+        private String formatParameters() {
+            StringBuilder builder = new StringBuilder("[");
+            parameters.forEach((index, value) -> {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                String text = value != null ? String.valueOf(value) : "NULL";
+                if (text.length() > properties.getMaxParameterLength()) {
+                    text = text.substring(0, properties.getMaxParameterLength()) + "…";
+                }
+                builder.append(index).append('=').append(text);
+            });
+            return builder.append(']').toString();
+        }
+    }
+
+    /**
+     * Finds the innermost service method on the stack, falling back to the innermost application frame.
+     */
+    private static String findOrigin() {
+        Optional<StackWalker.StackFrame> frame = StackWalker.getInstance().walk(frames -> frames
+                .filter(candidate -> candidate.getClassName().startsWith(SERVICE_PACKAGE))
+                .findFirst());
+        if (frame.isEmpty()) {
+            frame = StackWalker.getInstance().walk(frames -> frames
+                    .filter(candidate -> candidate.getClassName().startsWith("cz.itnetwork.")
+                            && !candidate.getClassName().startsWith(SqlLoggingDataSourcePostProcessor.class.getName()))
+                    .findFirst());
+        }
+        return frame
+                .map(candidate -> simpleName(candidate.getClassName()) + "." + candidate.getMethodName())
+                .orElse("unknown");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static String compact(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,36 @@
+package cz.itnetwork.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the statement log, bound from {@code invoicing.sql-log}.
+ */
+@Component
+@ConfigurationProperties(prefix = "invoicing.sql-log")
+@Getter
+@Setter
+public class SqlLoggingProperties {
+
+    /**
+     * Whether statements are timed and logged by {@link SqlLoggingDataSourcePostProcessor}.
+     */
+    private boolean enabled;
+
+    /**
+     * The share of statements below the threshold that are logged, from 0 to 1.
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Statements running at least this long are always logged, as warnings.
+     */
+    private long slowThresholdMillis = 200;
+
+    /**
+     * Longer parameter values are truncated in the log.
+     */
+    private int maxParameterLength = 100;
+}
@@ -0,0 +1,40 @@
+package cz.itnetwork.configuration;
+
+/**
+ * A token bucket rate limiter. Tokens are refilled lazily from the elapsed time whenever
+ * a request asks for one, so an idle bucket costs nothing.
+ */
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond The sustained rate.
+     * @param burst The number of tokens the bucket can hold, i.e. the largest accepted burst.
+     */
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.tokensPerNano = permitsPerSecond / 1e9;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return Whether the request may proceed.
+     */
+    synchronized boolean tryConsume() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -1,14 +1,31 @@
 package cz.itnetwork.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @EnableWebMvc
 public class WebConfiguration implements WebMvcConfigurer {
 
+    @Value("${invoicing.web.async-pool-size:16}")
+    private int asyncPoolSize;
+
+    @Value("${invoicing.web.async-timeout:1800000}")
+    private long asyncTimeout;
+
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+
+    public WebConfiguration(AdmissionControlInterceptor admissionControlInterceptor) {
+        this.admissionControlInterceptor = admissionControlInterceptor;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         WebMvcConfigurer.super.addCorsMappings(registry);
@@ -17,4 +34,29 @@ public class WebConfiguration implements WebMvcConfigurer {
                 .allowedOriginPatterns("**")
                 .allowCredentials(true);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionControlInterceptor).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Runs streaming responses on a bounded pool instead of a new thread per request,
+     * and gives them a timeout long enough to transfer large result sets.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+        configurer.setDefaultTimeout(asyncTimeout);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncPoolSize * 4);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
 }
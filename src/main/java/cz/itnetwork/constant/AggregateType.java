@@ -0,0 +1,8 @@
+package cz.itnetwork.constant;
+
+/**
+ * Types of domain objects whose changes are published to interested listeners.
+ */
+public enum AggregateType {
+    INVOICE, PERSON
+}
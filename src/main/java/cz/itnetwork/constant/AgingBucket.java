@@ -0,0 +1,47 @@
+package cz.itnetwork.constant;
+
+/**
+ * Buckets of receivables by the number of days since their due date.
+ */
+public enum AgingBucket {
+    CURRENT(Integer.MIN_VALUE, 0),
+    DAYS_1_30(1, 30),
+    DAYS_31_60(31, 60),
+    DAYS_61_90(61, 90),
+    DAYS_OVER_90(91, Integer.MAX_VALUE);
+
+    private final int minDaysOverdue;
+    private final int maxDaysOverdue;
+
+    AgingBucket(int minDaysOverdue, int maxDaysOverdue) {
+        this.minDaysOverdue = minDaysOverdue;
+        this.maxDaysOverdue = maxDaysOverdue;
+    }
+
+    /**
+     * @return The lowest number of days after the due date that falls into this bucket.
+     */
+    public int getMinDaysOverdue() {
+        return minDaysOverdue;
+    }
+
+    /**
+     * @return The highest number of days after the due date that falls into this bucket.
+     */
+    public int getMaxDaysOverdue() {
+        return maxDaysOverdue;
+    }
+
+    /**
+     * @param daysOverdue The number of days since the due date; zero or negative if not yet due.
+     * @return The bucket the receivable belongs to.
+     */
+    public static AgingBucket of(long daysOverdue) {
+        for (AgingBucket bucket : values()) {
+            if (daysOverdue <= bucket.maxDaysOverdue) {
+                return bucket;
+            }
+        }
+        return DAYS_OVER_90;
+    }
+}
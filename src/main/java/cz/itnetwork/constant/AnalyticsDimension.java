@@ -0,0 +1,8 @@
+package cz.itnetwork.constant;
+
+/**
+ * Dimensions by which invoices can be grouped in ad-hoc analytics.
+ */
+public enum AnalyticsDimension {
+    SELLER, BUYER, MONTH, YEAR, VAT_RATE, SELLER_COUNTRY, BUYER_COUNTRY
+}
@@ -0,0 +1,9 @@
+package cz.itnetwork.constant;
+
+/**
+ * Kinds of changes made to a domain object.
+ * Editing is modelled as {@link #UPDATED}: the original record is hidden and replaced by a new one.
+ */
+public enum ChangeAction {
+    CREATED, UPDATED, REMOVED
+}
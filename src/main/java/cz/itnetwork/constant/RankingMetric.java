@@ -0,0 +1,15 @@
+package cz.itnetwork.constant;
+
+/**
+ * Metrics by which persons can be ranked on the leaderboard.
+ */
+public enum RankingMetric {
+    /**
+     * The total price of invoices the person issued as the seller.
+     */
+    SALES,
+    /**
+     * The total price of invoices the person received as the buyer.
+     */
+    PURCHASES
+}
@@ -0,0 +1,44 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.service.ChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller providing a Server-Sent Events stream of changes to invoices and persons.
+ * Dashboards can subscribe to it and reload their data only when something actually changed,
+ * instead of polling the statistics and summary endpoints.
+ */
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+
+    private final ChangeFeedService changeFeedService;
+
+    @Autowired
+    public ChangeFeedController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    /**
+     * Subscribes to the change feed. Each event carries its sequence as the SSE event ID,
+     * so browsers resume the feed automatically via the {@code Last-Event-ID} header after a reconnect.
+     * If the requested events are no longer available, a {@code reset} event is sent first.
+     *
+     * @param lastEventId The sequence of the last received event, sent by the browser on reconnect.
+     * @param since Alternative to the header for clients that can't set it.
+     * @return The emitter delivering the events.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long since) {
+        return changeFeedService.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
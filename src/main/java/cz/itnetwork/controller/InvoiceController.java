@@ -1,17 +1,32 @@
 package cz.itnetwork.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import cz.itnetwork.dto.BulkRemovalDTO;
+import cz.itnetwork.dto.CountryRevenueDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsDTO;
 import cz.itnetwork.dto.InvoiceDTO;
 import cz.itnetwork.dto.InvoiceStatisticsDTO;
 import cz.itnetwork.dto.InvoiceSummary;
+import cz.itnetwork.dto.SellerAgingDTO;
+import cz.itnetwork.service.InvoicePdfService;
 import cz.itnetwork.service.InvoiceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for managing invoices.
@@ -21,11 +36,25 @@ import java.math.BigDecimal;
 @RequestMapping("/api/invoices")
 public class InvoiceController {
 
+    /**
+     * Media type of newline-delimited JSON used by the streaming endpoint.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Number of summaries read from the database in one round trip while streaming.
+     */
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final InvoiceService invoiceService;
+    private final InvoicePdfService invoicePdfService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public InvoiceController(InvoiceService invoiceService) {
+    public InvoiceController(InvoiceService invoiceService, InvoicePdfService invoicePdfService, ObjectMapper objectMapper) {
         this.invoiceService = invoiceService;
+        this.invoicePdfService = invoicePdfService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -49,6 +78,8 @@ public class InvoiceController {
      * @param product The product name to filter by (case-insensitive search).
      * @param minPrice The minimum price for filtering.
      * @param maxPrice The maximum price for filtering.
+     * @param issuedFrom The first issue date to include (ISO format).
+     * @param issuedTo The last issue date to include (ISO format).
      * @param limit Optional parameter to override the default page size.
      * @return A page of invoice summaries that match the specified criteria.
      */
@@ -60,10 +91,106 @@ public class InvoiceController {
             @RequestParam(required = false) String product,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedTo,
+            @RequestParam(required = false) Integer limit) {
+
+        Pageable finalPageable = (limit != null && limit > 0) ? Pageable.ofSize(limit).withPage(pageable.getPageNumber()) : pageable;
+        return invoiceService.getFilteredInvoiceSummaries(finalPageable, buyerId, sellerId, product, minPrice, maxPrice,
+                issuedFrom, issuedTo);
+    }
+
+    /**
+     * Retrieves a paginated list of filtered invoices with only the requested fields,
+     * e.g. {@code ?fields=id,invoiceNumber,price,buyer.name}. Only the columns of these fields
+     * are read from the database and the response contains nothing else.
+     *
+     * @param fields The comma-separated fields of the invoice; {@code buyer} or {@code seller} alone selects all fields of the party.
+     * @param pageable The pagination and sorting information. Defaults to 20 items per page.
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product The product name to filter by (case-insensitive search).
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @param issuedFrom The first issue date to include (ISO format).
+     * @param issuedTo The last issue date to include (ISO format).
+     * @param limit Optional parameter to override the default page size.
+     * @return A page of the requested fields of the matching invoices.
+     */
+    @GetMapping(value = "/summary", params = "fields")
+    public Page<Map<String, Object>> getInvoicesFields(
+            @RequestParam String fields,
+            @PageableDefault(size = 20) Pageable pageable,
+            @RequestParam(required = false) String buyerId,
+            @RequestParam(required = false) String sellerId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedTo,
             @RequestParam(required = false) Integer limit) {
 
         Pageable finalPageable = (limit != null && limit > 0) ? Pageable.ofSize(limit).withPage(pageable.getPageNumber()) : pageable;
-        return invoiceService.getFilteredInvoiceSummaries(finalPageable, buyerId, sellerId, product, minPrice, maxPrice);
+        return invoiceService.getFilteredInvoiceFields(fields, finalPageable, buyerId, sellerId, product, minPrice, maxPrice,
+                issuedFrom, issuedTo);
+    }
+
+    /**
+     * Streams all invoice summaries matching the filter as newline-delimited JSON, one summary per line,
+     * ordered by ID. The data is read in small keyset batches, each in its own short query, and written
+     * to the client before the next batch is read. A slow client therefore only slows the stream down;
+     * it neither holds a database connection nor makes the server buffer the whole result.
+     * An interrupted stream can be resumed by passing the ID of the last received summary as {@code afterId}.
+     *
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product The product name to filter by (case-insensitive search).
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @param afterId Optional ID of the last summary already received by the client.
+     * @return A streaming response body producing NDJSON.
+     */
+    @GetMapping(value = "/summary/stream", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamInvoicesSummary(
+            @RequestParam(required = false) String buyerId,
+            @RequestParam(required = false) String sellerId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") long afterId) {
+
+        ObjectWriter writer = objectMapper.writerFor(InvoiceSummary.class);
+        // The first batch is read before the response is committed, so an unknown buyer or seller is still a 404.
+        List<InvoiceSummary> firstBatch = invoiceService.getInvoiceSummariesAfter(
+                afterId, STREAM_BATCH_SIZE, buyerId, sellerId, product, minPrice, maxPrice);
+        return outputStream -> {
+            long lastId = afterId;
+            List<InvoiceSummary> batch = firstBatch;
+            while (true) {
+                for (InvoiceSummary summary : batch) {
+                    outputStream.write(writer.writeValueAsBytes(summary));
+                    outputStream.write('\n');
+                    lastId = summary.id();
+                }
+                outputStream.flush();
+                if (batch.size() < STREAM_BATCH_SIZE) {
+                    break;
+                }
+                batch = invoiceService.getInvoiceSummariesAfter(
+                        lastId, STREAM_BATCH_SIZE, buyerId, sellerId, product, minPrice, maxPrice);
+            }
+        };
+    }
+
+    /**
+     * Retrieves summaries of several invoices at once with a single query.
+     *
+     * @param ids The IDs of the invoices to retrieve, e.g. {@code ?ids=1,2,3}.
+     * @return The invoice summaries in the order of the requested IDs.
+     */
+    @GetMapping("/lookup")
+    public List<InvoiceSummary> getInvoiceSummariesByIds(@RequestParam List<Long> ids) {
+        return invoiceService.getInvoiceSummariesByIds(ids);
     }
 
     /**
@@ -77,6 +204,58 @@ public class InvoiceController {
         return invoiceService.getInvoice(invoiceId);
     }
 
+    /**
+     * Retrieves only the requested fields of an invoice, e.g. {@code ?fields=id,price,seller.name}.
+     *
+     * @param invoiceId The unique ID of the invoice.
+     * @param fields The comma-separated fields of the invoice.
+     * @return The requested fields of the invoice.
+     */
+    @GetMapping(value = "/{invoiceId}", params = "fields")
+    public Map<String, Object> getInvoiceFields(@PathVariable Long invoiceId, @RequestParam String fields) {
+        return invoiceService.getInvoiceFields(invoiceId, fields);
+    }
+
+    /**
+     * Renders an invoice as a PDF document.
+     *
+     * @param invoiceId The unique ID of the invoice.
+     * @return The PDF document.
+     */
+    @GetMapping(value = "/{invoiceId}/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<byte[]> getInvoicePdf(@PathVariable Long invoiceId) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"faktura-" + invoiceId + ".pdf\"")
+                .body(invoicePdfService.renderInvoice(invoiceId));
+    }
+
+    /**
+     * Renders all invoices matching the filter as PDF documents and streams them as a ZIP archive.
+     * The documents are rendered in parallel on a bounded worker pool and written to the archive
+     * as soon as they are ready, so the archive is never built in memory.
+     *
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product The product name to filter by (case-insensitive search).
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @return A streaming response body producing the ZIP archive.
+     */
+    @GetMapping(value = "/pdf", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> getInvoicesPdfArchive(
+            @RequestParam(required = false) String buyerId,
+            @RequestParam(required = false) String sellerId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice) {
+
+        StreamingResponseBody body = outputStream ->
+                invoicePdfService.renderInvoicesZip(outputStream, buyerId, sellerId, product, minPrice, maxPrice);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"faktury.zip\"")
+                .body(body);
+    }
+
     /**
      * Edits an existing invoice. The old invoice is "hidden" and a new one is created with the updated data.
      *
@@ -100,6 +279,42 @@ public class InvoiceController {
         invoiceService.removeInvoice(invoiceId);
     }
 
+    /**
+     * "Deletes" several invoices at once. The hidden flags are set by one set-based update per chunk of IDs.
+     *
+     * @param ids The IDs of the invoices to delete.
+     * @return The number of invoices deleted.
+     */
+    @PostMapping("/bulk-delete")
+    public BulkRemovalDTO deleteInvoices(@RequestBody List<Long> ids) {
+        return new BulkRemovalDTO(invoiceService.removeInvoices(ids));
+    }
+
+    /**
+     * "Deletes" all invoices matching the filter. At least one filter has to be given.
+     *
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product The product name to filter by (case-insensitive search).
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @param issuedFrom The first issue date to include (ISO format).
+     * @param issuedTo The last issue date to include (ISO format).
+     * @return The number of invoices deleted.
+     */
+    @DeleteMapping
+    public BulkRemovalDTO deleteFilteredInvoices(
+            @RequestParam(required = false) String buyerId,
+            @RequestParam(required = false) String sellerId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedTo) {
+        return new BulkRemovalDTO(invoiceService.removeFilteredInvoices(
+                buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+    }
+
     /**
      * Retrieves a paginated list of invoices where the specified person is the seller.
      *
@@ -114,6 +329,22 @@ public class InvoiceController {
         return invoiceService.getInvoicesBySellerIdentificationNumber(identificationNumber, pageable);
     }
 
+    /**
+     * Retrieves only the requested fields of the invoices where the specified person is the seller.
+     *
+     * @param identificationNumber The identification number of the seller.
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable The pagination information.
+     * @return A page of the requested fields.
+     */
+    @GetMapping(value = "/identification/{identificationNumber}/sales", params = "fields")
+    public Page<Map<String, Object>> getInvoiceFieldsBySellerIdentificationNumber(
+            @PathVariable String identificationNumber,
+            @RequestParam String fields,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return invoiceService.getInvoiceFieldsBySellerIdentificationNumber(identificationNumber, fields, pageable);
+    }
+
     /**
      * Retrieves a paginated list of invoices where the specified person is the buyer.
      *
@@ -128,6 +359,22 @@ public class InvoiceController {
         return invoiceService.getInvoicesByBuyerIdentificationNumber(identificationNumber, pageable);
     }
 
+    /**
+     * Retrieves only the requested fields of the invoices where the specified person is the buyer.
+     *
+     * @param identificationNumber The identification number of the buyer.
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable The pagination information.
+     * @return A page of the requested fields.
+     */
+    @GetMapping(value = "/identification/{identificationNumber}/purchases", params = "fields")
+    public Page<Map<String, Object>> getInvoiceFieldsByBuyerIdentificationNumber(
+            @PathVariable String identificationNumber,
+            @RequestParam String fields,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return invoiceService.getInvoiceFieldsByBuyerIdentificationNumber(identificationNumber, fields, pageable);
+    }
+
     /**
      * Retrieves general statistics about invoices, including total counts and revenue sums.
      *
@@ -137,4 +384,61 @@ public class InvoiceController {
     public InvoiceStatisticsDTO getInvoiceStatistics() {
         return invoiceService.getInvoiceStatistics();
     }
+
+    /**
+     * Retrieves the number and sums of invoices for every combination of seller country and buyer country.
+     *
+     * @return The seller country × buyer country matrix, one item per combination.
+     */
+    @GetMapping("/statistics/by-country")
+    public List<CountryRevenueDTO> getInvoiceStatisticsByCountry() {
+        return invoiceService.getInvoiceStatisticsByCountry();
+    }
+
+    /**
+     * Retrieves the aging of receivables per seller: not yet due, 1–30, 31–60, 61–90 and over 90 days overdue.
+     *
+     * @param sellerId The identification number of the seller to report on; all sellers if omitted.
+     * @return The aging report of each seller, the highest overdue sum first.
+     */
+    @GetMapping("/aging")
+    public List<SellerAgingDTO> getReceivablesAging(@RequestParam(required = false) String sellerId) {
+        return invoiceService.getReceivablesAging(sellerId);
+    }
+
+    /**
+     * Retrieves a paginated list of invoices that are past their due date, the oldest first.
+     *
+     * @param pageable Pagination information.
+     * @return A page of overdue invoice summaries.
+     */
+    @GetMapping("/overdue")
+    public Page<InvoiceSummary> getOverdueInvoices(@PageableDefault(size = 20) Pageable pageable) {
+        return invoiceService.getOverdueInvoiceSummaries(pageable);
+    }
+
+    /**
+     * Aggregates invoices ad hoc by seller, buyer, month, year, VAT rate or country of either party.
+     * The aggregation runs over an in-memory column store, not the database.
+     *
+     * @param groupBy The dimension to group by, e.g. {@code ?groupBy=month}.
+     * @param from The first issue date to include (ISO format).
+     * @param to The last issue date to include (ISO format).
+     * @param sellerId The identification number of the seller for filtering.
+     * @param buyerId The identification number of the buyer for filtering.
+     * @param vat The VAT rate for filtering.
+     * @param limit The maximum number of groups to return.
+     * @return The groups ordered from the highest total down.
+     */
+    @GetMapping("/analytics")
+    public InvoiceAnalyticsDTO getInvoiceAnalytics(
+            @RequestParam String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String sellerId,
+            @RequestParam(required = false) String buyerId,
+            @RequestParam(required = false) Integer vat,
+            @RequestParam(defaultValue = "100") int limit) {
+        return invoiceService.getInvoiceAnalytics(groupBy, from, to, sellerId, buyerId, vat, limit);
+    }
 }
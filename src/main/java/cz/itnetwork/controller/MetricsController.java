@@ -0,0 +1,78 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.configuration.AdmissionControlInterceptor;
+import cz.itnetwork.dto.AdmissionMetricsDTO;
+import cz.itnetwork.dto.CoalescingMetricsDTO;
+import cz.itnetwork.dto.EventBusMetricsDTO;
+import cz.itnetwork.dto.ResultCacheMetricsDTO;
+import cz.itnetwork.service.InvoiceSummaryCache;
+import cz.itnetwork.service.SingleFlight;
+import cz.itnetwork.service.event.DomainEventBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller exposing runtime metrics of the server's internal components.
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final DomainEventBus domainEventBus;
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+    private final SingleFlight singleFlight;
+    private final InvoiceSummaryCache invoiceSummaryCache;
+
+    @Autowired
+    public MetricsController(DomainEventBus domainEventBus, AdmissionControlInterceptor admissionControlInterceptor,
+                             SingleFlight singleFlight, InvoiceSummaryCache invoiceSummaryCache) {
+        this.domainEventBus = domainEventBus;
+        this.admissionControlInterceptor = admissionControlInterceptor;
+        this.singleFlight = singleFlight;
+        this.invoiceSummaryCache = invoiceSummaryCache;
+    }
+
+    /**
+     * Retrieves throughput and lag of the domain event pipeline and its consumers.
+     *
+     * @return The event pipeline metrics.
+     */
+    @GetMapping("/events")
+    public EventBusMetricsDTO getEventMetrics() {
+        return domainEventBus.getMetrics();
+    }
+
+    /**
+     * Retrieves the number of admitted and rejected requests of endpoints under admission control.
+     *
+     * @return The admission metrics, one item per endpoint.
+     */
+    @GetMapping("/admission")
+    public List<AdmissionMetricsDTO> getAdmissionMetrics() {
+        return admissionControlInterceptor.getMetrics();
+    }
+
+    /**
+     * Retrieves how many concurrent identical read queries shared a single computation.
+     *
+     * @return The coalescing metrics, one item per service operation.
+     */
+    @GetMapping("/coalescing")
+    public List<CoalescingMetricsDTO> getCoalescingMetrics() {
+        return singleFlight.getMetrics();
+    }
+
+    /**
+     * Retrieves the hit rate of the cache of filtered invoice summary pages.
+     *
+     * @return The cache metrics.
+     */
+    @GetMapping("/summary-cache")
+    public ResultCacheMetricsDTO getSummaryCacheMetrics() {
+        return invoiceSummaryCache.getMetrics();
+    }
+}
@@ -1,8 +1,12 @@
 package cz.itnetwork.controller;
 
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.BulkRemovalDTO;
 import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonDeltaDTO;
 import cz.itnetwork.dto.PersonFilterDTO;
 import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.dto.TopPersonDTO;
 import cz.itnetwork.entity.PersonLookup;
 import cz.itnetwork.service.PersonService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +58,19 @@ public class PersonController {
         return personService.getPersonStatistics(pageable);
     }
 
+    /**
+     * Retrieves the persons with the highest total sales or purchases, for the management dashboard.
+     * The ranking is maintained in memory, so the cost depends only on the requested size.
+     * @param by The metric to rank by, {@code sales} or {@code purchases}.
+     * @param n The number of persons to return (at most 100).
+     * @return The top persons, from the highest total down.
+     */
+    @GetMapping("/persons/top")
+    public List<TopPersonDTO> getTopPersons(@RequestParam(defaultValue = "sales") String by,
+                                            @RequestParam(defaultValue = "10") int n) {
+        return personService.getTopPersons(by, n);
+    }
+
     /**
      * Retrieves the detailed information of a specific person.
      * @param personId The ID of the person to retrieve.
@@ -74,6 +91,31 @@ public class PersonController {
         personService.removePerson(personId);
     }
 
+    /**
+     * Deletes several persons at once by setting their `hidden` flag to true, in chunks of set-based updates.
+     * @param ids The IDs of the persons to delete.
+     * @return The number of persons deleted.
+     */
+    @PostMapping("/persons/bulk-delete")
+    public BulkRemovalDTO deletePersons(@RequestBody List<Long> ids) {
+        return new BulkRemovalDTO(personService.removePersons(ids));
+    }
+
+    /**
+     * Deletes all persons matching the filter by setting their `hidden` flag to true.
+     * At least one filter has to be given.
+     * @param identificationNumber The identification number (IČO) to filter by.
+     * @param name A substring of the name to filter by.
+     * @param country The country to filter by.
+     * @return The number of persons deleted.
+     */
+    @DeleteMapping("/persons")
+    public BulkRemovalDTO deleteFilteredPersons(@RequestParam(required = false) String identificationNumber,
+                                                @RequestParam(required = false) String name,
+                                                @RequestParam(required = false) Countries country) {
+        return new BulkRemovalDTO(personService.removeFilteredPersons(identificationNumber, name, country));
+    }
+
     /**
      * Edits an existing person's information. A new person entity is created and the old one is hidden.
      * The identification number (IČO) cannot be changed.
@@ -96,6 +138,40 @@ public class PersonController {
         return personService.getAllPersonsLookup();
     }
 
+    /**
+     * Synchronizes a client's copy of the lookup list incrementally. The first call, with an empty token,
+     * returns the whole list; later calls return only the persons added, changed or removed since then.
+     * @param since The token from the previous response, e.g. {@code ?since=}.
+     * @return The changes and the token for the next call.
+     */
+    @GetMapping(value = "/persons/lookup", params = "since")
+    public PersonDeltaDTO getPersonsLookupChanges(@RequestParam String since) {
+        return personService.getPersonsLookupChanges(since);
+    }
+
+    /**
+     * Finds persons for buyer and seller pickers as the user types, instead of downloading the whole list.
+     * Matches the beginning of the name, of any word of the name, or of the IČO, ignoring case and diacritics.
+     * @param q The typed text.
+     * @param limit The maximum number of persons to return (at most 50).
+     * @return The matching {@link PersonLookup} objects.
+     */
+    @GetMapping("/persons/search")
+    public List<PersonLookup> searchPersons(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return personService.searchPersons(q, limit);
+    }
+
+    /**
+     * Retrieves several {@link PersonLookup} objects at once, e.g. for all rows of a table.
+     * The persons are loaded with a single query that selects only the ID, name and IČO.
+     * @param ids The IDs of the persons to retrieve, e.g. {@code ?ids=1,2,3}.
+     * @return The {@link PersonLookup} objects in the order of the requested IDs.
+     */
+    @GetMapping(value = "/persons/lookup", params = "ids")
+    public List<PersonLookup> getPersonsLookupByIds(@RequestParam List<Long> ids) {
+        return personService.getPersonsLookupByIds(ids);
+    }
+
     /**
      * Retrieves a single {@link PersonLookup} object by its ID.
      * @param id The ID of the person to retrieve.
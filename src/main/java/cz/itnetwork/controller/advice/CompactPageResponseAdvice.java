@@ -0,0 +1,69 @@
+package cz.itnetwork.controller.advice;
+
+import cz.itnetwork.dto.PageEnvelope;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Replaces paginated responses with a lean {@link PageEnvelope} whenever the client negotiated
+ * one of the compact binary formats (CBOR or Smile).
+ * JSON responses are left untouched, so existing clients keep receiving the full {@link Page} structure.
+ * The total number of items is included only if the request contains {@code total=true}.
+ */
+@ControllerAdvice
+public class CompactPageResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    /**
+     * Media type of the Jackson Smile binary format.
+     */
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return Page.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  MethodParameter returnType,
+                                  MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+        if (!(body instanceof Page<?> page) || !isCompactFormat(selectedContentType)) {
+            return body;
+        }
+        return PageEnvelope.of(page, isTotalRequested(request));
+    }
+
+    /**
+     * Checks whether the negotiated content type is one of the binary formats.
+     *
+     * @param contentType The content type selected for the response.
+     * @return {@code true} for CBOR and Smile.
+     */
+    private boolean isCompactFormat(MediaType contentType) {
+        return MediaType.APPLICATION_CBOR.isCompatibleWith(contentType)
+                || APPLICATION_SMILE.isCompatibleWith(contentType);
+    }
+
+    /**
+     * Checks whether the client asked for the total number of items.
+     *
+     * @param request The current request.
+     * @return {@code true} if the request contains {@code total=true}.
+     */
+    private boolean isTotalRequested(ServerHttpRequest request) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            return Boolean.parseBoolean(servletRequest.getServletRequest().getParameter("total"));
+        }
+        return false;
+    }
+}
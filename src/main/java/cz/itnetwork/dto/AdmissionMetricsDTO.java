@@ -0,0 +1,23 @@
+package cz.itnetwork.dto;
+
+/**
+ * Data Transfer Object (DTO) with admission control metrics of a single endpoint.
+ *
+ * @param endpoint The controller method, as {@code ControllerName.methodName}.
+ * @param active The number of requests being processed right now.
+ * @param waiting The number of requests waiting for a free slot right now.
+ * @param admitted The total number of admitted requests.
+ * @param rejectedByConcurrency The number of requests rejected because all slots and the queue were full.
+ * @param rejectedByRate The number of requests rejected by the rate limit.
+ * @param rejectedByPoolSaturation The number of requests rejected because the connection pool was saturated.
+ */
+public record AdmissionMetricsDTO(
+        String endpoint,
+        int active,
+        int waiting,
+        long admitted,
+        long rejectedByConcurrency,
+        long rejectedByRate,
+        long rejectedByPoolSaturation
+) {
+}
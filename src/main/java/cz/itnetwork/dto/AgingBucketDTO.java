@@ -0,0 +1,19 @@
+package cz.itnetwork.dto;
+
+import cz.itnetwork.constant.AgingBucket;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) with the receivables of one aging bucket.
+ *
+ * @param bucket The aging bucket.
+ * @param invoicesCount The number of invoices in the bucket.
+ * @param sumWithVat The sum of the invoices including VAT.
+ */
+public record AgingBucketDTO(
+        AgingBucket bucket,
+        long invoicesCount,
+        BigDecimal sumWithVat
+) {
+}
@@ -0,0 +1,21 @@
+package cz.itnetwork.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) with the aggregates of one group of invoices.
+ *
+ * @param group The value of the grouping dimension, e.g. an IČO, {@code 2024-03} or a VAT rate.
+ * @param invoiceCount The number of invoices in the group.
+ * @param total The sum of prices without VAT.
+ * @param vat The sum of VAT.
+ * @param totalWithVat The sum of prices including VAT.
+ */
+public record AnalyticsGroupDTO(
+        String group,
+        long invoiceCount,
+        BigDecimal total,
+        BigDecimal vat,
+        BigDecimal totalWithVat
+) {
+}
@@ -0,0 +1,9 @@
+package cz.itnetwork.dto;
+
+/**
+ * The result of a bulk removal of invoices or persons.
+ *
+ * @param removed The number of records that were hidden; records that were already hidden are not counted.
+ */
+public record BulkRemovalDTO(int removed) {
+}
@@ -0,0 +1,27 @@
+package cz.itnetwork.dto;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+
+import java.time.Instant;
+
+/**
+ * A data transfer object describing a single change of an invoice or a person,
+ * as delivered to clients of the change feed.
+ *
+ * @param sequence The position of the event in the change feed; clients use it to resume the feed.
+ * @param type The type of the changed object.
+ * @param action The kind of change.
+ * @param id The ID of the created, updated (new version) or removed object.
+ * @param previousId For {@link ChangeAction#UPDATED}, the ID of the replaced version; otherwise {@code null}.
+ * @param occurredAt The time the change was committed.
+ */
+public record ChangeEventDTO(
+        long sequence,
+        AggregateType type,
+        ChangeAction action,
+        Long id,
+        Long previousId,
+        Instant occurredAt
+) {
+}
@@ -0,0 +1,21 @@
+package cz.itnetwork.dto;
+
+/**
+ * Data Transfer Object (DTO) with request coalescing metrics of a single service operation.
+ *
+ * @param operation The name of the operation.
+ * @param calls The total number of calls.
+ * @param executions The number of calls that actually ran the computation.
+ * @param coalesced The number of calls that received the result of another call's computation.
+ * @param coalescingRatio The share of coalesced calls among all calls, between 0 and 1.
+ * @param inFlight The number of computations running right now.
+ */
+public record CoalescingMetricsDTO(
+        String operation,
+        long calls,
+        long executions,
+        long coalesced,
+        double coalescingRatio,
+        int inFlight
+) {
+}
@@ -0,0 +1,27 @@
+package cz.itnetwork.dto;
+
+/**
+ * Data Transfer Object (DTO) with metrics of a single consumer of the domain event pipeline.
+ *
+ * @param name The name of the consumer.
+ * @param sequence The sequence of the last event the consumer has processed.
+ * @param lag The number of published events the consumer hasn't processed yet.
+ * @param deliveredEvents The total number of events processed by the consumer.
+ * @param batches The number of batches the events were delivered in.
+ * @param averageBatchSize The average number of events per batch.
+ * @param failures The number of failed deliveries, each of which was retried or led to skipped events.
+ * @param skippedEvents The number of events skipped because the consumer kept failing to process them.
+ * @param eventsPerSecond The average throughput since startup.
+ */
+public record ConsumerMetricsDTO(
+        String name,
+        long sequence,
+        long lag,
+        long deliveredEvents,
+        long batches,
+        double averageBatchSize,
+        long failures,
+        long skippedEvents,
+        double eventsPerSecond
+) {
+}
@@ -0,0 +1,23 @@
+package cz.itnetwork.dto;
+
+import cz.itnetwork.constant.Countries;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) with the invoice statistics of one combination of seller and buyer country.
+ *
+ * @param sellerCountry The country of the seller.
+ * @param buyerCountry The country of the buyer.
+ * @param invoicesCount The number of invoices.
+ * @param sum The sum of prices without VAT.
+ * @param sumWithVat The sum of prices including VAT.
+ */
+public record CountryRevenueDTO(
+        Countries sellerCountry,
+        Countries buyerCountry,
+        long invoicesCount,
+        BigDecimal sum,
+        BigDecimal sumWithVat
+) {
+}
@@ -0,0 +1,24 @@
+package cz.itnetwork.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) with metrics of the domain event pipeline.
+ *
+ * @param publishedEvents The number of events published to the ring buffer since startup.
+ * @param droppedEvents The number of events that couldn't be published because the ring buffer stayed full;
+ *                      they remain in the outbox and are redelivered by the next outbox poll.
+ * @param redeliveredEvents The number of unprocessed events the outbox poll has published again.
+ * @param cursor The sequence of the most recently published event in the ring buffer.
+ * @param pendingOutboxEvents The number of events in the outbox not yet processed by all consumers.
+ * @param consumers Metrics of the individual consumers.
+ */
+public record EventBusMetricsDTO(
+        long publishedEvents,
+        long droppedEvents,
+        long redeliveredEvents,
+        long cursor,
+        long pendingOutboxEvents,
+        List<ConsumerMetricsDTO> consumers
+) {
+}
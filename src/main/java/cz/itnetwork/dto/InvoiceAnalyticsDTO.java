@@ -0,0 +1,23 @@
+package cz.itnetwork.dto;
+
+import cz.itnetwork.constant.AnalyticsDimension;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) with the result of an ad-hoc invoice aggregation.
+ *
+ * @param groupBy The dimension the invoices were grouped by.
+ * @param scannedInvoices The number of invoices scanned.
+ * @param matchedInvoices The number of invoices that matched the filters.
+ * @param tookMicros The time the aggregation took, in microseconds.
+ * @param groups The groups ordered from the highest total down.
+ */
+public record InvoiceAnalyticsDTO(
+        AnalyticsDimension groupBy,
+        long scannedInvoices,
+        long matchedInvoices,
+        long tookMicros,
+        List<AnalyticsGroupDTO> groups
+) {
+}
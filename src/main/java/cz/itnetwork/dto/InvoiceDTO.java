@@ -26,7 +26,8 @@ public class InvoiceDTO {
     private Long id;
 
     /**
-     * The unique invoice number.
+     * The invoice number. It is allocated by the server when the invoice is created;
+     * a value sent by the client is ignored.
      */
     private Integer invoiceNumber;
 
@@ -69,4 +70,10 @@ public class InvoiceDTO {
      * The {@link PersonDTO} representing the seller of the invoice.
      */
     private PersonDTO seller;
+
+    /**
+     * The version of the record. When sent with an edit, the edit succeeds only
+     * if the record hasn't been modified since this version was read.
+     */
+    private Long version;
 }
@@ -0,0 +1,170 @@
+package cz.itnetwork.dto;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of an {@link InvoiceDTO} a client asked for with the {@code fields} parameter,
+ * e.g. {@code fields=id,invoiceNumber,price,buyer.name}.
+ * <p>
+ * Fields of the buyer and seller are written as {@code buyer.name}; {@code buyer} alone stands for all
+ * fields of the buyer. Only the selected columns are read from the database and the rows are returned
+ * as nested maps, so the response contains nothing but the requested fields.
+ * </p>
+ *
+ * @param paths The requested fields in the order they were asked for, without duplicates.
+ */
+public record InvoiceFieldSet(List<String> paths) {
+
+    /**
+     * Fields of the invoice itself.
+     */
+    public static final List<String> INVOICE_FIELDS = List.of(
+            "id", "invoiceNumber", "issued", "dueDate", "product", "price", "vat", "note", "version");
+
+    /**
+     * Fields of the buyer and of the seller.
+     */
+    public static final List<String> PERSON_FIELDS = List.of(
+            "id", "name", "identificationNumber", "taxNumber", "accountNumber", "bankCode", "iban",
+            "telephone", "mail", "street", "zip", "city", "country", "note", "version");
+
+    /**
+     * The parties of an invoice, whose fields are prefixed with their name.
+     */
+    public static final List<String> PARTIES = List.of("buyer", "seller");
+
+    public InvoiceFieldSet {
+        paths = List.copyOf(paths);
+    }
+
+    /**
+     * Parses the comma-separated list of fields.
+     *
+     * @param fields The value of the {@code fields} parameter.
+     * @return The requested fields.
+     * @throws ResponseStatusException if no field is given or a field is unknown.
+     */
+    public static InvoiceFieldSet parse(String fields) {
+        Set<String> paths = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                String path = field.trim();
+                if (path.isEmpty()) {
+                    continue;
+                }
+                if (PARTIES.contains(path)) {
+                    PERSON_FIELDS.forEach(personField -> paths.add(path + "." + personField));
+                } else {
+                    paths.add(validate(path));
+                }
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Je nutné uvést alespoň jedno pole faktury.");
+        }
+        return new InvoiceFieldSet(new ArrayList<>(paths));
+    }
+
+    /**
+     * Adds the properties of the sort to the fields, so that rows sorted on several shards can be merged.
+     *
+     * @param sort The requested order.
+     * @return The fields including every sort property.
+     * @throws ResponseStatusException if a sort property is not a field of an invoice.
+     */
+    public InvoiceFieldSet withSortProperties(Sort sort) {
+        Set<String> extended = new LinkedHashSet<>(paths);
+        for (Sort.Order order : sort) {
+            extended.add(validate(order.getProperty()));
+        }
+        return extended.size() == paths.size() ? this : new InvoiceFieldSet(new ArrayList<>(extended));
+    }
+
+    /**
+     * Checks whether any field of the party other than its ID is requested; only those need a join.
+     *
+     * @param party {@code buyer} or {@code seller}.
+     * @return {@code true} if the person table of the party has to be read.
+     */
+    public boolean needsJoin(String party) {
+        String prefix = party + ".";
+        return paths.stream().anyMatch(path -> path.startsWith(prefix) && !path.equals(prefix + "id"));
+    }
+
+    /**
+     * Builds the row written to the client from the selected values.
+     *
+     * @param values The values of the fields in the order of {@link #paths()}.
+     * @return The fields nested like in {@link InvoiceDTO}.
+     */
+    public Map<String, Object> toRow(Object[] values) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            put(row, paths.get(i), values[i]);
+        }
+        return row;
+    }
+
+    /**
+     * Keeps only these fields of a row read with a wider set of fields.
+     *
+     * @param row The row with possibly more fields.
+     * @return A new row with these fields only.
+     */
+    public Map<String, Object> retain(Map<String, Object> row) {
+        Map<String, Object> retained = new LinkedHashMap<>();
+        for (String path : paths) {
+            put(retained, path, read(row, path));
+        }
+        return retained;
+    }
+
+    /**
+     * Reads a field of a row, following the party prefix.
+     *
+     * @param row The row built by {@link #toRow(Object[])}.
+     * @param path The field, e.g. {@code buyer.name}.
+     * @return The value, or {@code null} if the row doesn't contain it.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object read(Map<String, Object> row, String path) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            return row.get(path);
+        }
+        Object party = row.get(path.substring(0, dot));
+        return party instanceof Map ? ((Map<String, Object>) party).get(path.substring(dot + 1)) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> row, String path, Object value) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            row.put(path, value);
+            return;
+        }
+        Map<String, Object> party = (Map<String, Object>) row.computeIfAbsent(
+                path.substring(0, dot), key -> new LinkedHashMap<String, Object>());
+        party.put(path.substring(dot + 1), value);
+    }
+
+    private static String validate(String path) {
+        int dot = path.indexOf('.');
+        boolean known = dot < 0
+                ? INVOICE_FIELDS.contains(path)
+                : PARTIES.contains(path.substring(0, dot)) && PERSON_FIELDS.contains(path.substring(dot + 1));
+        if (!known) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Neznámé pole faktury: " + path + ".");
+        }
+        return path;
+    }
+}
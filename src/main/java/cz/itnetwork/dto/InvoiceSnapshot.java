@@ -0,0 +1,36 @@
+package cz.itnetwork.dto;
+
+import cz.itnetwork.constant.Countries;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * An immutable copy of the fields of a visible invoice that in-memory rollups aggregate over.
+ * The parties are identified by their identification number (IČO), which, unlike the person ID,
+ * doesn't change when a person is edited.
+ *
+ * @param id The unique identifier of the invoice.
+ * @param sellerIdentificationNumber The identification number of the seller.
+ * @param sellerCountry The country of the seller.
+ * @param buyerIdentificationNumber The identification number of the buyer.
+ * @param buyerCountry The country of the buyer.
+ * @param product A description of the product or service.
+ * @param price The price without VAT.
+ * @param vat The VAT rate in percent.
+ * @param issued The date the invoice was issued.
+ * @param dueDate The date the invoice is due.
+ */
+public record InvoiceSnapshot(
+        long id,
+        String sellerIdentificationNumber,
+        Countries sellerCountry,
+        String buyerIdentificationNumber,
+        Countries buyerCountry,
+        String product,
+        BigDecimal price,
+        int vat,
+        LocalDate issued,
+        LocalDate dueDate
+) {
+}
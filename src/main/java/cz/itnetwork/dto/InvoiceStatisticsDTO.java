@@ -5,11 +5,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * Data Transfer Object (DTO) for displaying invoice statistics.
  * This DTO aggregates key metrics like the sum of invoice prices for the current year,
- * the total sum of all invoice prices, and the total count of all invoices.
+ * the total sum of all invoice prices, and the total count of all invoices,
+ * both without and including VAT, together with a breakdown by VAT rate.
  */
 @Data
 @AllArgsConstructor
@@ -31,4 +33,19 @@ public class InvoiceStatisticsDTO {
      */
     private long invoicesSum;
 
+    /**
+     * The sum of prices including VAT from all invoices issued in the current year.
+     */
+    private BigDecimal currentYearSumWithVat;
+
+    /**
+     * The total sum of prices including VAT from all invoices across all time.
+     */
+    private BigDecimal allTimeSumWithVat;
+
+    /**
+     * The statistics broken down by VAT rate, ordered by the rate.
+     */
+    private List<VatRateStatisticsDTO> vatBreakdown;
+
 }
@@ -0,0 +1,46 @@
+package cz.itnetwork.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * A lean replacement for Spring's {@code PageImpl} JSON representation.
+ * It carries only the items of the page and the information a client needs to fetch the next one,
+ * leaving out the nested {@code pageable} and {@code sort} objects that dominate small payloads.
+ *
+ * @param items The items on the current page.
+ * @param page The zero-based number of the current page.
+ * @param size The requested page size.
+ * @param nextPage The number of the next page, or {@code null} if this is the last page.
+ * @param total The total number of items, present only when the client asked for it.
+ * @param <T> The type of the items.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PageEnvelope<T>(
+        List<T> items,
+        int page,
+        int size,
+        Integer nextPage,
+        Long total
+) {
+
+    /**
+     * Creates an envelope from a Spring Data {@link Page}.
+     *
+     * @param page The page to wrap.
+     * @param includeTotal Whether the total number of items should be included.
+     * @param <T> The type of the items.
+     * @return A new envelope containing the items of the page.
+     */
+    public static <T> PageEnvelope<T> of(Page<T> page, boolean includeTotal) {
+        return new PageEnvelope<>(
+                page.getContent(),
+                page.getNumber(),
+                page.getSize(),
+                page.hasNext() ? page.getNumber() + 1 : null,
+                includeTotal ? page.getTotalElements() : null
+        );
+    }
+}
@@ -85,4 +85,10 @@ public class PersonDTO {
      * Additional notes about the person.
      */
     private String note;
+
+    /**
+     * The version of the record. When sent with an edit, the edit succeeds only
+     * if the record hasn't been modified since this version was read.
+     */
+    private Long version;
 }
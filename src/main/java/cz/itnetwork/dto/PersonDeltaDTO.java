@@ -0,0 +1,22 @@
+package cz.itnetwork.dto;
+
+import cz.itnetwork.entity.PersonLookup;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) with the changes of the person lookup list since a sync token.
+ *
+ * @param token The token to send with the next synchronization.
+ * @param fullResync Whether the client has to replace its whole list with {@code upserted},
+ *                   because its token was missing, malformed or too old.
+ * @param upserted Persons that were added or replaced by a new version; the client adds or overwrites them by ID.
+ * @param removedIds IDs of persons that were hidden or replaced by a new version; the client deletes them.
+ */
+public record PersonDeltaDTO(
+        String token,
+        boolean fullResync,
+        List<PersonLookup> upserted,
+        List<Long> removedIds
+) {
+}
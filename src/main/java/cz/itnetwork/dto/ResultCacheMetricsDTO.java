@@ -0,0 +1,23 @@
+package cz.itnetwork.dto;
+
+/**
+ * Data Transfer Object (DTO) with the metrics of a query result cache.
+ *
+ * @param hits The number of calls answered from the cache.
+ * @param misses The number of calls that ran the query.
+ * @param stale The number of misses caused by an entry that was invalidated by a write or expired.
+ * @param evictions The number of entries evicted because the cache was full.
+ * @param hitRatio The share of hits among all calls, between 0 and 1.
+ * @param size The number of cached entries.
+ * @param maxEntries The maximum number of cached entries, 0 if the cache is disabled.
+ */
+public record ResultCacheMetricsDTO(
+        long hits,
+        long misses,
+        long stale,
+        long evictions,
+        double hitRatio,
+        int size,
+        int maxEntries
+) {
+}
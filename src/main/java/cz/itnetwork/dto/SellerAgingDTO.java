@@ -0,0 +1,18 @@
+package cz.itnetwork.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) with the aging report of the receivables of one seller.
+ *
+ * @param sellerIdentificationNumber The identification number (IČO) of the seller.
+ * @param overdueSumWithVat The sum of all overdue invoices including VAT.
+ * @param buckets The receivables of every aging bucket, from current to the oldest.
+ */
+public record SellerAgingDTO(
+        String sellerIdentificationNumber,
+        BigDecimal overdueSumWithVat,
+        List<AgingBucketDTO> buckets
+) {
+}
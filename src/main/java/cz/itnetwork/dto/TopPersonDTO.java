@@ -0,0 +1,23 @@
+package cz.itnetwork.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) of a single position on the leaderboard of persons.
+ *
+ * @param rank The position on the leaderboard, starting at 1.
+ * @param personId The ID of the current version of the person.
+ * @param personName The name of the person.
+ * @param identificationNumber The identification number (IČO) of the person.
+ * @param total The total price of the person's invoices by the requested metric, without VAT.
+ * @param invoiceCount The number of the person's invoices by the requested metric.
+ */
+public record TopPersonDTO(
+        int rank,
+        Long personId,
+        String personName,
+        String identificationNumber,
+        BigDecimal total,
+        long invoiceCount
+) {
+}
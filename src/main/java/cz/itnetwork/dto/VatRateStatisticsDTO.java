@@ -0,0 +1,23 @@
+package cz.itnetwork.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) with the invoice statistics of a single VAT rate.
+ *
+ * @param vat The VAT rate in percent.
+ * @param invoicesCount The number of invoices with this rate.
+ * @param allTimeSum The sum of prices without VAT for all time.
+ * @param allTimeSumWithVat The sum of prices including VAT for all time.
+ * @param currentYearSum The sum of prices without VAT of invoices issued in the current year.
+ * @param currentYearSumWithVat The sum of prices including VAT of invoices issued in the current year.
+ */
+public record VatRateStatisticsDTO(
+        int vat,
+        long invoicesCount,
+        BigDecimal allTimeSum,
+        BigDecimal allTimeSumWithVat,
+        BigDecimal currentYearSum,
+        BigDecimal currentYearSumWithVat
+) {
+}
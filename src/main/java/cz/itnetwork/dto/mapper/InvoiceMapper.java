@@ -17,12 +17,14 @@ public interface InvoiceMapper {
     /**
      * Converts an {@link InvoiceDTO} to an {@link InvoiceEntity} for creation purposes.
      * The buyer and seller are ignored in this mapping, as they are handled separately in the service layer.
+     * The version is ignored as well, because it is managed by the persistence layer.
      *
      * @param source The InvoiceDTO to convert.
      * @return A new InvoiceEntity instance.
      */
     @Mapping(target = "buyer", ignore = true)
     @Mapping(target = "seller", ignore = true)
+    @Mapping(target = "version", ignore = true)
     InvoiceEntity toEntity(InvoiceDTO source);
 
     /**
@@ -35,7 +37,7 @@ public interface InvoiceMapper {
 
     /**
      * Updates an existing {@link InvoiceEntity} with data from an {@link InvoiceDTO}.
-     * The ID, buyer, and seller fields are ignored to prevent accidental updates.
+     * The ID, buyer, seller and version fields are ignored to prevent accidental updates.
      *
      * @param invoiceDTO The source DTO with updated data.
      * @param entity The target entity to update.
@@ -43,6 +45,7 @@ public interface InvoiceMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "buyer", ignore = true)
     @Mapping(target = "seller", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void updateEntityFromDto(InvoiceDTO invoiceDTO, @MappingTarget InvoiceEntity entity);
 
     /**
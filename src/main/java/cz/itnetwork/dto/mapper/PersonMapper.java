@@ -3,6 +3,7 @@ package cz.itnetwork.dto.mapper;
 import cz.itnetwork.dto.PersonDTO;
 import cz.itnetwork.entity.PersonEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
 /**
@@ -14,10 +15,12 @@ public interface PersonMapper {
 
     /**
      * Converts a {@link PersonDTO} to a {@link PersonEntity}.
+     * The version is ignored, because it is managed by the persistence layer.
      *
      * @param source The DTO to convert.
      * @return The resulting {@link PersonEntity}.
      */
+    @Mapping(target = "version", ignore = true)
     PersonEntity toEntity(PersonDTO source);
 
     /**
@@ -34,5 +37,6 @@ public interface PersonMapper {
      * @param personDTO The DTO containing the updated data.
      * @param entity The target entity to update.
      */
+    @Mapping(target = "version", ignore = true)
     void updateEntityFromDto(PersonDTO personDTO, @MappingTarget PersonEntity entity);
 }
@@ -2,6 +2,7 @@ package cz.itnetwork.entity;
 
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Setter;
 
 import java.math.BigDecimal;
@@ -14,6 +15,10 @@ import java.time.LocalDate;
  * including its number, dates, product details, price, and associated buyer and seller.
  */
 @Entity (name = "invoice")
+@Table(name = "invoice", indexes = {
+        @Index(name = "idx_invoice_hidden_due_date", columnList = "hidden, dueDate"),
+        @Index(name = "idx_invoice_issued", columnList = "issued")
+})
 @Getter
 @Setter
 public class InvoiceEntity {
@@ -70,14 +75,14 @@ public class InvoiceEntity {
      * The {@link PersonEntity} representing the buyer of the invoice.
      */
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "buyer_id", nullable = false)
+    @JoinColumn(name = "buyer_id", nullable = false, foreignKey = @ForeignKey(name = "fk_invoice_buyer"))
     private PersonEntity buyer;
 
     /**
      * The {@link PersonEntity} representing the seller of the invoice.
      */
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "seller_id", nullable = false)
+    @JoinColumn(name = "seller_id", nullable = false, foreignKey = @ForeignKey(name = "fk_invoice_seller"))
     private PersonEntity seller;
 
     /**
@@ -85,4 +90,12 @@ public class InvoiceEntity {
      */
     private boolean hidden = false;
 
+    /**
+     * The version of the record, incremented whenever it is modified.
+     * Used for optimistic concurrency control of edits.
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
 }
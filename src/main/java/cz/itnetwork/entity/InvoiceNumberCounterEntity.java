@@ -0,0 +1,40 @@
+package cz.itnetwork.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Represents the counter of invoice numbers of one seller in one year.
+ * The server reserves numbers from the counter in blocks, so the row is locked only
+ * once per block instead of once per invoice.
+ */
+@Entity(name = "invoice_number_counter")
+@Getter
+@Setter
+public class InvoiceNumberCounterEntity {
+
+    /**
+     * The key of the counter, composed of the seller's identification number and the year.
+     */
+    @Id
+    private String counterKey;
+
+    /**
+     * The identification number (IČO) of the seller.
+     */
+    @Column(nullable = false)
+    private String sellerIdentificationNumber;
+
+    /**
+     * The year the numbers are issued in.
+     */
+    @Column(name = "counter_year", nullable = false)
+    private int year;
+
+    /**
+     * The first sequence number that hasn't been reserved yet.
+     */
+    @Column(nullable = false)
+    private long nextValue;
+}
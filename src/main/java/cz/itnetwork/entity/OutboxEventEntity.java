@@ -0,0 +1,64 @@
+package cz.itnetwork.entity;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Represents a domain event stored in the transactional outbox.
+ * The row is written in the same transaction as the change it describes, so after a crash
+ * every committed change can be replayed to the in-process projections.
+ */
+@Entity(name = "outbox_event")
+@Table(name = "outbox_event", indexes = @Index(columnList = "processed, id"))
+@Getter
+@Setter
+public class OutboxEventEntity {
+
+    /**
+     * The unique identifier of the event. It also serves as the event's sequence.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The type of the changed object.
+     */
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private AggregateType aggregateType;
+
+    /**
+     * The kind of change.
+     */
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ChangeAction action;
+
+    /**
+     * The ID of the created, updated (new version) or removed object.
+     */
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    /**
+     * For an update, the ID of the replaced version.
+     */
+    private Long previousId;
+
+    /**
+     * The time the event was recorded.
+     */
+    @Column(nullable = false)
+    private Instant occurredAt;
+
+    /**
+     * A flag indicating that all projections have processed the event.
+     */
+    private boolean processed = false;
+}
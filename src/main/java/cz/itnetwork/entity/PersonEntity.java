@@ -3,6 +3,7 @@ package cz.itnetwork.entity;
 import cz.itnetwork.constant.Countries;
 import jakarta.persistence.*;
 import lombok.Getter;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Setter;
 import java.util.List;
 
@@ -99,6 +100,14 @@ public class PersonEntity {
      */
     private boolean hidden = false;
 
+    /**
+     * The version of the record, incremented whenever it is modified.
+     * Used for optimistic concurrency control of edits.
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     /**
      * List of invoices where this person is the seller.
      */
@@ -0,0 +1,40 @@
+package cz.itnetwork.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * A projection interface for the aggregates of visible invoices with one VAT rate.
+ * VAT is rounded to two decimal places per invoice, the same way it is printed on the invoice.
+ */
+public interface VatRateStatistics {
+
+    /**
+     * @return The VAT rate in percent.
+     */
+    Integer getVat();
+
+    /**
+     * @return The number of invoices with this rate.
+     */
+    Long getInvoiceCount();
+
+    /**
+     * @return The sum of prices without VAT for all time.
+     */
+    BigDecimal getTotal();
+
+    /**
+     * @return The sum of VAT for all time.
+     */
+    BigDecimal getVatTotal();
+
+    /**
+     * @return The sum of prices without VAT of invoices issued in the current year.
+     */
+    BigDecimal getCurrentYearTotal();
+
+    /**
+     * @return The sum of VAT of invoices issued in the current year.
+     */
+    BigDecimal getCurrentYearVatTotal();
+}
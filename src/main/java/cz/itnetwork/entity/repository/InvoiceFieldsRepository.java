@@ -0,0 +1,37 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.dto.InvoiceFieldSet;
+import cz.itnetwork.entity.InvoiceEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Queries of {@link InvoiceRepository} that read only the fields a client asked for.
+ * The requested fields are translated into a projection selecting just their columns, and the person
+ * table is joined only for a party whose fields other than the ID are requested.
+ */
+public interface InvoiceFieldsRepository {
+
+    /**
+     * Retrieves the requested fields of a single invoice.
+     *
+     * @param id The ID of the invoice.
+     * @param fields The fields to read.
+     * @return The fields nested like in an invoice DTO, if the invoice exists.
+     */
+    Optional<Map<String, Object>> findFieldsById(long id, InvoiceFieldSet fields);
+
+    /**
+     * Retrieves the requested fields of a page of invoices matching the specification.
+     *
+     * @param fields The fields to read.
+     * @param spec The conditions the invoices must meet.
+     * @param pageable Pagination and sorting information.
+     * @return A page of rows nested like in an invoice DTO.
+     */
+    Page<Map<String, Object>> findFields(InvoiceFieldSet fields, Specification<InvoiceEntity> spec, Pageable pageable);
+}
@@ -0,0 +1,106 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.dto.InvoiceFieldSet;
+import cz.itnetwork.entity.InvoiceEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Implementation of {@link InvoiceFieldsRepository} with tuple queries of the Criteria API.
+ * The rows are read as lists: the queries run without a transaction, so the connection is released
+ * right after the query and a lazily consumed result stream would read from a closed connection.
+ */
+public class InvoiceFieldsRepositoryImpl implements InvoiceFieldsRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(long id, InvoiceFieldSet fields) {
+        Specification<InvoiceEntity> byId = (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("id"), id);
+        return createQuery(fields, byId, Pageable.unpaged()).getResultList().stream()
+                .findFirst()
+                .map(tuple -> fields.toRow(tuple.toArray()));
+    }
+
+    @Override
+    public Page<Map<String, Object>> findFields(InvoiceFieldSet fields, Specification<InvoiceEntity> spec, Pageable pageable) {
+        TypedQuery<Tuple> query = createQuery(fields, spec, pageable);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> rows = query.getResultList().stream()
+                .map(tuple -> fields.toRow(tuple.toArray()))
+                .toList();
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(spec));
+    }
+
+    /**
+     * Builds the projection of the requested fields. The ID of a party is its foreign key column
+     * of the invoice, so the person table is joined only when another field of the party is requested.
+     */
+    private TypedQuery<Tuple> createQuery(InvoiceFieldSet fields, Specification<InvoiceEntity> spec, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<InvoiceEntity> root = query.from(InvoiceEntity.class);
+
+        Map<String, From<?, ?>> parties = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>(fields.paths().size());
+        for (String path : fields.paths()) {
+            int dot = path.indexOf('.');
+            if (dot < 0) {
+                selections.add(root.get(path));
+                continue;
+            }
+            String party = path.substring(0, dot);
+            String field = path.substring(dot + 1);
+            if (fields.needsJoin(party)) {
+                selections.add(parties.computeIfAbsent(party, name -> root.join(name)).get(field));
+            } else {
+                selections.add(root.get(party).get(field));
+            }
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<InvoiceEntity> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<InvoiceEntity> root = query.from(InvoiceEntity.class);
+        query.select(criteriaBuilder.count(root));
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
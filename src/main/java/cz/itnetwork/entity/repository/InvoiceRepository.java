@@ -1,52 +1,131 @@
 package cz.itnetwork.entity.repository;
 
+import cz.itnetwork.dto.InvoiceSnapshot;
 import cz.itnetwork.dto.InvoiceSummary;
+import cz.itnetwork.dto.PersonFilterDTO;
 import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.VatRateStatistics;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * A repository for managing {@link InvoiceEntity} instances.
  * This interface extends JpaRepository for basic CRUD operations and JpaSpecificationExecutor
  * for advanced querying using specifications. It also includes custom-defined methods
- * for calculating invoice statistics and retrieving filtered summaries.
+ * for calculating invoice statistics and retrieving filtered summaries, and the sparse field queries
+ * of {@link InvoiceFieldsRepository}.
  */
 @Repository
-public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, JpaSpecificationExecutor<InvoiceEntity> {
+public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, JpaSpecificationExecutor<InvoiceEntity>,
+        InvoiceFieldsRepository {
 
     /**
-     * Calculates the sum of all invoice prices (without VAT) for all time.
-     * The query only considers invoices that are not hidden.
+     * Calculates the count and the sums of visible invoices, with and without VAT, for all time
+     * and for the given year, grouped by VAT rate. Everything is computed by a single statement,
+     * so all numbers come from the same consistent snapshot of the table.
+     * The year is given as a date range, which, unlike {@code YEAR(issued)}, can use an index on the issue date.
      *
-     * @return The total sum of all non-hidden invoice prices, or {@code null} if no invoices exist.
+     * @param yearStart The first day of the year.
+     * @param nextYearStart The first day of the following year.
+     * @return The statistics of every VAT rate used by a visible invoice, ordered by the rate.
      */
-    @Query(value = "SELECT SUM(i.price) FROM invoice i WHERE i.hidden = false", nativeQuery = true)
-    BigDecimal sumAllTimePricesWithoutVat();
+    @Query(value = "SELECT i.vat AS vat, " +
+            "COUNT(*) AS invoiceCount, " +
+            "SUM(i.price) AS total, " +
+            "SUM(ROUND(i.price * i.vat / 100, 2)) AS vatTotal, " +
+            "SUM(CASE WHEN i.issued >= :yearStart AND i.issued < :nextYearStart THEN i.price ELSE 0 END) AS currentYearTotal, " +
+            "SUM(CASE WHEN i.issued >= :yearStart AND i.issued < :nextYearStart THEN ROUND(i.price * i.vat / 100, 2) ELSE 0 END) AS currentYearVatTotal " +
+            "FROM invoice i " +
+            "WHERE i.hidden = false " +
+            "GROUP BY i.vat " +
+            "ORDER BY i.vat", nativeQuery = true)
+    List<VatRateStatistics> getStatisticsByVatRate(@Param("yearStart") LocalDate yearStart,
+                                                   @Param("nextYearStart") LocalDate nextYearStart);
+
+    /**
+     * Hides the invoice with the given ID, but only if it is still visible and, when a version is given,
+     * still has that version. The check and the update are a single statement, so of several concurrent
+     * edits of the same invoice exactly one succeeds.
+     *
+     * @param id The ID of the invoice to hide.
+     * @param version The version the caller has read, or {@code null} to skip the version check.
+     * @return {@code 1} if the invoice was hidden, {@code 0} if it was already hidden, modified or doesn't exist.
+     */
+    @Modifying
+    @Query("UPDATE invoice e SET e.hidden = true, e.version = e.version + 1 " +
+            "WHERE e.id = :id AND e.hidden = false AND (:version IS NULL OR e.version = :version)")
+    int hideIfCurrent(@Param("id") long id, @Param("version") Long version);
 
     /**
-     * Calculates the sum of all invoice prices (without VAT) for the current year.
-     * The query only considers invoices that are not hidden and were issued in the current year.
+     * Hides all the given invoices that are still visible with a single statement.
      *
-     * @return The total sum of non-hidden invoice prices from the current year, or {@code null} if no invoices exist.
+     * @param ids The IDs of the invoices to hide.
+     * @return The number of invoices that were hidden.
      */
-    @Query(value = "SELECT SUM(i.price) FROM invoice i WHERE YEAR(i.issued) = YEAR(CURDATE()) AND i.hidden = false", nativeQuery = true)
-    BigDecimal sumCurrentYearPricesWithoutVat();
+    @Modifying
+    @Query("UPDATE invoice e SET e.hidden = true, e.version = e.version + 1 WHERE e.id IN :ids AND e.hidden = false")
+    int hideAll(@Param("ids") Collection<Long> ids);
 
     /**
-     * Counts the total number of invoices based on their hidden status.
+     * Selects those of the given invoices that are still visible.
      *
-     * @param hidden A boolean flag to count either hidden or non-hidden invoices.
-     * @return The count of invoices matching the hidden status.
+     * @param ids The IDs of the invoices.
+     * @return The IDs of the invoices that exist and are not hidden.
      */
-    long countByHidden(boolean hidden);
+    @Query("SELECT e.id FROM invoice e WHERE e.id IN :ids AND e.hidden = false")
+    List<Long> findVisibleIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Retrieves the IDs of the next batch of visible invoices matching the filter, following the given ID.
+     * Only the IDs are read, so a large filtered set can be processed in chunks without loading entities.
+     *
+     * @param afterId The last ID already processed; only invoices with a greater ID are returned.
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product A substring of the product name for filtering (case-insensitive).
+     * @param minPrice The minimum price to filter by.
+     * @param maxPrice The maximum price to filter by.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedBefore The first issue date not to include.
+     * @param pageable Limits the size of the batch; sorting is always by ID.
+     * @return The IDs of the next batch ordered by ID.
+     */
+    @Query("SELECT i.id FROM invoice i " +
+            "WHERE i.id > :afterId " +
+            "AND (:buyerId IS NULL OR i.buyer.identificationNumber = :buyerId) " +
+            "AND (:sellerId IS NULL OR i.seller.identificationNumber = :sellerId) " +
+            "AND (:product IS NULL OR LOWER(i.product) LIKE CONCAT('%', LOWER(:product), '%')) " +
+            "AND (:minPrice IS NULL OR i.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR i.price <= :maxPrice) " +
+            "AND (:issuedFrom IS NULL OR i.issued >= :issuedFrom) " +
+            "AND (:issuedBefore IS NULL OR i.issued < :issuedBefore) " +
+            "AND i.hidden = false " +
+            "ORDER BY i.id")
+    List<Long> findVisibleIdsAfter(
+            @Param("afterId") long afterId,
+            @Param("buyerId") String buyerId,
+            @Param("sellerId") String sellerId,
+            @Param("product") String product,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("issuedFrom") LocalDate issuedFrom,
+            @Param("issuedBefore") LocalDate issuedBefore,
+            Pageable pageable
+    );
 
     //region Methods prepared for deletion
     // These methods are being replaced by the JpaSpecificationExecutor and new custom queries
@@ -72,6 +151,7 @@ public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, J
      * @param pageable Pagination information.
      * @return A page of invoices sold by the specified person.
      */
+    @EntityGraph(attributePaths = {"buyer", "seller"})
     Page<InvoiceEntity> findBySellerIdInAndHiddenFalse(List<Long> sellerIds, Pageable pageable);
 
     /**
@@ -81,8 +161,48 @@ public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, J
      * @param pageable Pagination information.
      * @return A page of invoices purchased by the specified person.
      */
+    @EntityGraph(attributePaths = {"buyer", "seller"})
     Page<InvoiceEntity> findByBuyerIdInAndHiddenFalse(List<Long> buyerIds, Pageable pageable);
 
+    /**
+     * Retrieves an invoice together with its buyer and seller in a single query.
+     *
+     * @param id The ID of the invoice.
+     * @return The invoice with both parties loaded, if it exists.
+     */
+    @EntityGraph(attributePaths = {"buyer", "seller"})
+    Optional<InvoiceEntity> findWithPartiesById(long id);
+
+    /**
+     * Retrieves a page of invoices matching the specification together with their buyers and sellers,
+     * so that the page can be mapped to summaries without loading the parties one by one.
+     *
+     * @param spec The conditions the invoices must meet.
+     * @param pageable Pagination information.
+     * @return A page of invoices with both parties loaded.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"buyer", "seller"})
+    Page<InvoiceEntity> findAll(Specification<InvoiceEntity> spec, Pageable pageable);
+
+    /**
+     * Retrieves the distinct buyers that appear on any invoice, for filtering invoices.
+     *
+     * @return The identification numbers and names of the buyers.
+     */
+    @Query("SELECT DISTINCT new cz.itnetwork.dto.PersonFilterDTO(p.identificationNumber, p.name) " +
+            "FROM invoice i JOIN i.buyer p WHERE p.identificationNumber IS NOT NULL")
+    List<PersonFilterDTO> findBuyerFilters();
+
+    /**
+     * Retrieves the distinct sellers that appear on any invoice, for filtering invoices.
+     *
+     * @return The identification numbers and names of the sellers.
+     */
+    @Query("SELECT DISTINCT new cz.itnetwork.dto.PersonFilterDTO(p.identificationNumber, p.name) " +
+            "FROM invoice i JOIN i.seller p WHERE p.identificationNumber IS NOT NULL")
+    List<PersonFilterDTO> findSellerFilters();
+
     /**
      * Retrieves a paginated and filtered list of invoice summaries.
      * The filtering is based on optional parameters for buyer ID, seller ID,
@@ -114,6 +234,89 @@ public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, J
             Pageable pageable
     );
 
+    /**
+     * Retrieves the next batch of filtered invoice summaries following the given invoice ID.
+     * Unlike offset pagination, this keyset query stays cheap regardless of how far into the
+     * result set the caller already is, which makes it suitable for streaming the whole filtered set
+     * in short, independent round trips.
+     *
+     * @param afterId The ID of the last invoice already returned; only invoices with a greater ID are returned.
+     * @param buyerId The ID of the buyer to filter by.
+     * @param sellerId The ID of the seller to filter by.
+     * @param product A substring of the product name for filtering (case-insensitive).
+     * @param minPrice The minimum price to filter by.
+     * @param maxPrice The maximum price to filter by.
+     * @param pageable Limits the size of the batch; sorting is always by ID.
+     * @return The next batch of invoice summaries ordered by ID.
+     */
+    @Query(value = "SELECT new cz.itnetwork.dto.InvoiceSummary(i.id, CAST(i.invoiceNumber AS String), i.product, i.price, i.issued, " +
+            "i.buyer.name, i.seller.name, i.buyer.identificationNumber, i.seller.identificationNumber) " +
+            "FROM invoice i " +
+            "WHERE i.id > :afterId " +
+            "AND (:buyerId IS NULL OR i.buyer.id = :buyerId) " +
+            "AND (:sellerId IS NULL OR i.seller.id = :sellerId) " +
+            "AND (:product IS NULL OR LOWER(i.product) LIKE CONCAT('%', LOWER(:product), '%')) " +
+            "AND (:minPrice IS NULL OR i.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR i.price <= :maxPrice) " +
+            "AND i.hidden = false " +
+            "ORDER BY i.id")
+    List<InvoiceSummary> findSummariesAfterId(
+            @Param("afterId") long afterId,
+            @Param("buyerId") Long buyerId,
+            @Param("sellerId") Long sellerId,
+            @Param("product") String product,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            Pageable pageable
+    );
+
+    /**
+     * Retrieves the next batch of complete filtered invoices, including their buyer and seller,
+     * following the given invoice ID. The parties are fetched in the same query, so the returned
+     * entities can be converted to DTOs outside of a persistence context.
+     *
+     * @param afterId The ID of the last invoice already processed; only invoices with a greater ID are returned.
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product A substring of the product name for filtering (case-insensitive).
+     * @param minPrice The minimum price to filter by.
+     * @param maxPrice The maximum price to filter by.
+     * @param pageable Limits the size of the batch; sorting is always by ID.
+     * @return The next batch of invoices ordered by ID.
+     */
+    @Query(value = "SELECT i FROM invoice i " +
+            "JOIN FETCH i.buyer b " +
+            "JOIN FETCH i.seller s " +
+            "WHERE i.id > :afterId " +
+            "AND (:buyerId IS NULL OR b.identificationNumber = :buyerId) " +
+            "AND (:sellerId IS NULL OR s.identificationNumber = :sellerId) " +
+            "AND (:product IS NULL OR LOWER(i.product) LIKE CONCAT('%', LOWER(:product), '%')) " +
+            "AND (:minPrice IS NULL OR i.price >= :minPrice) " +
+            "AND (:maxPrice IS NULL OR i.price <= :maxPrice) " +
+            "AND i.hidden = false " +
+            "ORDER BY i.id")
+    List<InvoiceEntity> findWithPartiesAfterId(
+            @Param("afterId") long afterId,
+            @Param("buyerId") String buyerId,
+            @Param("sellerId") String sellerId,
+            @Param("product") String product,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            Pageable pageable
+    );
+
+    /**
+     * Retrieves several invoices at once as {@link InvoiceSummary} projections using a single {@code IN} query.
+     *
+     * @param ids The IDs of the invoices.
+     * @return A list of invoice summaries in no particular order; IDs that don't exist are skipped.
+     */
+    @Query(value = "SELECT new cz.itnetwork.dto.InvoiceSummary(i.id, CAST(i.invoiceNumber AS String), i.product, i.price, i.issued, " +
+            "i.buyer.name, i.seller.name, i.buyer.identificationNumber, i.seller.identificationNumber) " +
+            "FROM invoice i " +
+            "WHERE i.id IN :ids")
+    List<InvoiceSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Retrieves a paginated list of invoice summaries based on a seller's identification number.
      * The result is a projection into the {@link InvoiceSummary} DTO.
@@ -149,4 +352,44 @@ public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, J
             @Param("ic") String ic,
             Pageable pageable
     );
+
+    /**
+     * Retrieves a paginated list of visible invoices that are past their due date, the oldest first.
+     * The query is served by the index on {@code (hidden, due_date)}.
+     *
+     * @param today The current date; invoices due before it are overdue.
+     * @param pageable Pagination information.
+     * @return A page of overdue invoice summaries ordered by due date.
+     */
+    @Query(value = "SELECT new cz.itnetwork.dto.InvoiceSummary(i.id, CAST(i.invoiceNumber AS String), i.product, i.price, i.issued, " +
+            "i.buyer.name, i.seller.name, i.buyer.identificationNumber, i.seller.identificationNumber) " +
+            "FROM invoice i " +
+            "WHERE i.hidden = false AND i.dueDate < :today " +
+            "ORDER BY i.dueDate, i.id",
+            countQuery = "SELECT COUNT(i) FROM invoice i WHERE i.hidden = false AND i.dueDate < :today")
+    Page<InvoiceSummary> findOverdueSummaries(@Param("today") LocalDate today, Pageable pageable);
+
+    /**
+     * Retrieves snapshots of all visible invoices for building in-memory rollups.
+     * Only the aggregated columns are selected, so no entities are loaded into the persistence context.
+     *
+     * @return The snapshots of all non-hidden invoices.
+     */
+    @Query(value = "SELECT new cz.itnetwork.dto.InvoiceSnapshot(i.id, s.identificationNumber, s.country, " +
+            "b.identificationNumber, b.country, i.product, i.price, i.vat, i.issued, i.dueDate) " +
+            "FROM invoice i JOIN i.seller s JOIN i.buyer b " +
+            "WHERE i.hidden = false")
+    List<InvoiceSnapshot> findAllSnapshots();
+
+    /**
+     * Retrieves snapshots of the given invoices that are still visible.
+     *
+     * @param ids The IDs of the invoices.
+     * @return The snapshots of those invoices that exist and are not hidden.
+     */
+    @Query(value = "SELECT new cz.itnetwork.dto.InvoiceSnapshot(i.id, s.identificationNumber, s.country, " +
+            "b.identificationNumber, b.country, i.product, i.price, i.vat, i.issued, i.dueDate) " +
+            "FROM invoice i JOIN i.seller s JOIN i.buyer b " +
+            "WHERE i.id IN :ids AND i.hidden = false")
+    List<InvoiceSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
 }
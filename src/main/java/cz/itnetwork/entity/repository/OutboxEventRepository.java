@@ -0,0 +1,91 @@
+package cz.itnetwork.entity.repository;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.entity.OutboxEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the transactional outbox of domain events.
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    /**
+     * Retrieves all events that haven't been processed by every projection yet, in the order they were recorded.
+     *
+     * @return A list of unprocessed events.
+     */
+    List<OutboxEventEntity> findByProcessedFalseOrderById();
+
+    /**
+     * Retrieves the oldest events that haven't been processed by every projection yet and were recorded before the given time.
+     *
+     * @param threshold Only events recorded before this time are returned.
+     * @param pageable Limits the number of returned events.
+     * @return The unprocessed events in the order they were recorded.
+     */
+    List<OutboxEventEntity> findByProcessedFalseAndOccurredAtBeforeOrderById(Instant threshold, Pageable pageable);
+
+    /**
+     * Counts the events that haven't been processed by every projection yet.
+     *
+     * @return The number of unprocessed events.
+     */
+    long countByProcessedFalse();
+
+    /**
+     * Retrieves the events of one aggregate type recorded after the given event, or at or after the given time.
+     * The time condition catches events whose transaction committed only after later events had already
+     * been read, i.e. whose ID is lower than the ID the reader already got past.
+     *
+     * @param type The type of the changed objects.
+     * @param afterId Events with a greater ID are returned.
+     * @param since Events recorded at or after this time are returned as well.
+     * @param pageable Limits the number of returned events.
+     * @return The events in the order they were recorded.
+     */
+    @Query("SELECT o FROM outbox_event o WHERE o.aggregateType = :type " +
+            "AND (o.id > :afterId OR o.occurredAt >= :since) ORDER BY o.id")
+    List<OutboxEventEntity> findChangesSince(@Param("type") AggregateType type,
+                                             @Param("afterId") long afterId,
+                                             @Param("since") Instant since,
+                                             Pageable pageable);
+
+    /**
+     * @return The ID of the most recently recorded event, or {@code 0} if the outbox is empty.
+     */
+    @Query("SELECT COALESCE(MAX(o.id), 0) FROM outbox_event o")
+    long findMaxId();
+
+    /**
+     * Marks the given events as processed in a single statement.
+     *
+     * @param ids The IDs of the processed events.
+     * @return The number of updated rows.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE outbox_event o SET o.processed = true WHERE o.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes processed events recorded before the given time.
+     *
+     * @param threshold Events older than this are deleted.
+     * @return The number of deleted rows.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM outbox_event o WHERE o.processed = true AND o.occurredAt < :threshold")
+    int deleteProcessedBefore(@Param("threshold") Instant threshold);
+}
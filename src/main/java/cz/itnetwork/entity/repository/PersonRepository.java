@@ -1,15 +1,20 @@
 package cz.itnetwork.entity.repository;
 
+import cz.itnetwork.constant.Countries;
 import cz.itnetwork.dto.PersonStatisticsDTO;
 import cz.itnetwork.entity.PersonEntity;
 import cz.itnetwork.entity.PersonLookup;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing {@link PersonEntity} data.
@@ -36,6 +41,64 @@ public interface PersonRepository extends JpaRepository<PersonEntity, Long> {
      */
     Page<PersonLookup> findByHidden(boolean hidden, Pageable pageable);
 
+    /**
+     * Hides the person with the given ID, but only if it is still visible and, when a version is given,
+     * still has that version. The check and the update are a single statement, so of several concurrent
+     * edits of the same person exactly one succeeds.
+     *
+     * @param id The ID of the person to hide.
+     * @param version The version the caller has read, or {@code null} to skip the version check.
+     * @return {@code 1} if the person was hidden, {@code 0} if it was already hidden, modified or doesn't exist.
+     */
+    @Modifying
+    @Query("UPDATE person e SET e.hidden = true, e.version = e.version + 1 " +
+            "WHERE e.id = :id AND e.hidden = false AND (:version IS NULL OR e.version = :version)")
+    int hideIfCurrent(@Param("id") long id, @Param("version") Long version);
+
+    /**
+     * Hides all the given persons that are still visible with a single statement.
+     *
+     * @param ids The IDs of the persons to hide.
+     * @return The number of persons that were hidden.
+     */
+    @Modifying
+    @Query("UPDATE person e SET e.hidden = true, e.version = e.version + 1 WHERE e.id IN :ids AND e.hidden = false")
+    int hideAll(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Selects those of the given persons that are still visible.
+     *
+     * @param ids The IDs of the persons.
+     * @return The IDs of the persons that exist and are not hidden.
+     */
+    @Query("SELECT e.id FROM person e WHERE e.id IN :ids AND e.hidden = false")
+    List<Long> findVisibleIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Retrieves the IDs of the next batch of visible persons matching the filter, following the given ID.
+     *
+     * @param afterId The last ID already processed; only persons with a greater ID are returned.
+     * @param identificationNumber The identification number to filter by.
+     * @param name A substring of the name for filtering (case-insensitive).
+     * @param country The country to filter by.
+     * @param pageable Limits the size of the batch; sorting is always by ID.
+     * @return The IDs of the next batch ordered by ID.
+     */
+    @Query("SELECT p.id FROM person p " +
+            "WHERE p.id > :afterId " +
+            "AND (:identificationNumber IS NULL OR p.identificationNumber = :identificationNumber) " +
+            "AND (:name IS NULL OR LOWER(p.name) LIKE CONCAT('%', LOWER(:name), '%')) " +
+            "AND (:country IS NULL OR p.country = :country) " +
+            "AND p.hidden = false " +
+            "ORDER BY p.id")
+    List<Long> findVisibleIdsAfter(
+            @Param("afterId") long afterId,
+            @Param("identificationNumber") String identificationNumber,
+            @Param("name") String name,
+            @Param("country") Countries country,
+            Pageable pageable
+    );
+
     /**
      * Finds a list of persons by their identification number.
      *
@@ -44,6 +107,42 @@ public interface PersonRepository extends JpaRepository<PersonEntity, Long> {
      */
     List<PersonEntity> findByIdentificationNumber(String identificationNumber);
 
+    /**
+     * Retrieves a single person as a {@link PersonLookup} projection,
+     * selecting only the ID, name and identification number.
+     *
+     * @param id The ID of the person.
+     * @return The lookup object, or an empty {@link Optional} if the person doesn't exist.
+     */
+    Optional<PersonLookup> findLookupById(Long id);
+
+    /**
+     * Retrieves several persons at once as {@link PersonLookup} projections using a single {@code IN} query,
+     * selecting only the ID, name and identification number.
+     *
+     * @param ids The IDs of the persons.
+     * @return A list of lookup objects in no particular order; IDs that don't exist are skipped.
+     */
+    List<PersonLookup> findLookupByIdIn(Collection<Long> ids);
+
+    /**
+     * Retrieves those of the given persons that are not hidden as {@link PersonLookup} projections
+     * using a single {@code IN} query.
+     *
+     * @param ids The IDs of the persons.
+     * @return A list of lookup objects in no particular order; hidden and missing persons are skipped.
+     */
+    List<PersonLookup> findLookupByIdInAndHiddenFalse(Collection<Long> ids);
+
+    /**
+     * Retrieves the current (non-hidden) versions of the persons with the given identification numbers
+     * as {@link PersonLookup} projections using a single {@code IN} query.
+     *
+     * @param identificationNumbers The identification numbers (IČO) of the persons.
+     * @return A list of lookup objects in no particular order; removed persons are skipped.
+     */
+    List<PersonLookup> findLookupByIdentificationNumberInAndHiddenFalse(Collection<String> identificationNumbers);
+
     /**
      * Retrieves a list of all persons that are not hidden.
      *
@@ -0,0 +1,19 @@
+package cz.itnetwork.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * The service interface for the server-push change feed of invoices and persons.
+ * Changes are received from the domain event pipeline.
+ */
+public interface ChangeFeedService {
+
+    /**
+     * Registers a new subscriber of the change feed.
+     *
+     * @param lastSequence The sequence of the last event the client has received, or {@code null}
+     *                     to receive only events published from now on.
+     * @return The emitter delivering Server-Sent Events to the subscriber.
+     */
+    SseEmitter subscribe(Long lastSequence);
+}
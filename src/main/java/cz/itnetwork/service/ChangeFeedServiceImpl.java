@@ -0,0 +1,364 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.ChangeEventDTO;
+import cz.itnetwork.service.event.DomainEvent;
+import cz.itnetwork.service.event.DomainEventProjection;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Implementation of the change feed based on a single shared ring buffer.
+ * <p>
+ * Every published event is written once into a fixed-size ring. Subscribers don't have their own queues;
+ * each of them only remembers the sequence of the last event it received (its cursor) and a small pool
+ * of dispatcher threads copies events from the ring to the subscribers that are behind.
+ * A subscriber that falls so far behind that its next event was already overwritten receives
+ * a {@code reset} event and is disconnected, so one slow client never holds back the others.
+ * </p>
+ * <p>
+ * Sending to a client blocks while its TCP window is full. Every send therefore has a deadline: a subscriber
+ * whose send takes longer is disconnected, and the pool it blocks is given an extra thread until the send
+ * gives up, so the other subscribers keep all dispatcher threads. A subscriber has at most one drain
+ * or heartbeat pending at a time, and heartbeats are sent by their own thread only to idle subscribers.
+ * </p>
+ * <p>
+ * Sequences start at the startup time in microseconds. A client reconnecting after a server restart
+ * therefore presents a sequence that is too old and is told to reset instead of silently missing events.
+ * </p>
+ */
+@Service
+public class ChangeFeedServiceImpl implements ChangeFeedService, DomainEventProjection {
+
+    /**
+     * Name of the event telling the client that it missed events and has to reload its data.
+     */
+    public static final String RESET_EVENT = "reset";
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedServiceImpl.class);
+
+    private final ChangeEventDTO[] ring;
+    private final int mask;
+    private final long emitterTimeout;
+    private final long sendTimeoutNanos;
+    private final int maxStalledSends;
+    private final ThreadPoolExecutor dispatcher;
+    private final ThreadPoolExecutor heartbeatSender;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of threads blocked in a send to a disconnected subscriber, each replaced by an extra thread.
+     */
+    private final AtomicInteger stalledSends = new AtomicInteger();
+
+    /**
+     * Sequence of the most recently published event.
+     */
+    private volatile long head;
+
+    public ChangeFeedServiceImpl(@Value("${invoicing.changes.buffer-size:4096}") int bufferSize,
+                                 @Value("${invoicing.changes.dispatch-threads:4}") int dispatchThreads,
+                                 @Value("${invoicing.changes.emitter-timeout:1800000}") long emitterTimeout,
+                                 @Value("${invoicing.changes.send-timeout:10000}") long sendTimeout,
+                                 @Value("${invoicing.changes.max-stalled-sends:32}") int maxStalledSends) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Velikost bufferu změn musí být mocninou dvou.");
+        }
+        this.ring = new ChangeEventDTO[bufferSize];
+        this.mask = bufferSize - 1;
+        this.emitterTimeout = emitterTimeout;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeout);
+        this.maxStalledSends = maxStalledSends;
+        this.head = System.currentTimeMillis() * 1000;
+        this.dispatcher = newPool("change-feed-", dispatchThreads);
+        this.heartbeatSender = newPool("change-feed-heartbeat-", 1);
+    }
+
+    private static ThreadPoolExecutor newPool(String threadPrefix, int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes a batch of committed domain events into the ring and wakes up subscribers waiting for them.
+     */
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        synchronized (ring) {
+            for (DomainEvent event : events) {
+                long sequence = head + 1;
+                ring[(int) (sequence & mask)] = new ChangeEventDTO(
+                        sequence, event.type(), event.action(), event.id(), event.previousId(), event.occurredAt());
+                head = sequence;
+            }
+        }
+        subscriptions.forEach(this::scheduleDrain);
+    }
+
+    @Override
+    public SseEmitter subscribe(Long lastSequence) {
+        SseEmitter emitter = createEmitter(emitterTimeout);
+        long current = head;
+        boolean resumable = lastSequence != null && lastSequence <= current && current - lastSequence <= ring.length;
+        Subscription subscription = new Subscription(emitter, resumable ? lastSequence : current);
+
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(error -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+
+        if (lastSequence != null && !resumable) {
+            // The emitter isn't connected to the response yet and only buffers the event, so this can't block.
+            sendReset(subscription, null, false);
+        }
+        scheduleDrain(subscription);
+        return emitter;
+    }
+
+    /**
+     * Creates the emitter of a new subscriber.
+     */
+    SseEmitter createEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    /**
+     * Sends a comment line to every idle subscriber so that proxies keep idle connections open
+     * and connections of clients that went away are detected and released. A subscriber that is
+     * receiving events doesn't need it.
+     */
+    @Scheduled(fixedDelayString = "${invoicing.changes.heartbeat-interval:15000}")
+    public void sendHeartbeat() {
+        subscriptions.forEach(subscription -> {
+            if (subscription.busy.compareAndSet(false, true)) {
+                heartbeatSender.execute(() -> heartbeat(subscription));
+            }
+        });
+    }
+
+    private void heartbeat(Subscription subscription) {
+        try {
+            send(subscription, heartbeatSender, SseEmitter.event().comment("heartbeat"));
+        } catch (IOException | IllegalStateException e) {
+            drop(subscription);
+            return;
+        } finally {
+            subscription.busy.set(false);
+        }
+        scheduleDrain(subscription);
+    }
+
+    /**
+     * Disconnects the subscribers whose send has been blocked for longer than the send timeout.
+     * The thread stuck in the send stays blocked until the servlet container gives up writing,
+     * so its pool gets an extra thread for that time, up to the limit of stalled sends.
+     */
+    @Scheduled(fixedDelayString = "${invoicing.changes.stall-check-interval:1000}")
+    public void disconnectStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            PendingSend pending = subscription.pendingSend.get();
+            if (pending == null || pending.stalled() || now - pending.startedAt() <= sendTimeoutNanos) {
+                continue;
+            }
+            // The pool grows before the send is marked, so the sending thread never shrinks it first.
+            boolean replaceThread = stalledSends.incrementAndGet() <= maxStalledSends;
+            if (replaceThread) {
+                resize(pending.pool(), 1);
+            } else {
+                stalledSends.decrementAndGet();
+            }
+            if (!subscription.pendingSend.compareAndSet(pending, pending.markStalled(replaceThread))) {
+                // The send has just finished.
+                releaseThread(pending.pool(), replaceThread);
+                continue;
+            }
+            subscriptions.remove(subscription);
+            log.info("Change feed subscriber disconnected, a send didn't finish within {} ms{}.",
+                    TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos),
+                    replaceThread ? "" : "; too many stalled sends, the other subscribers may be delayed");
+        }
+    }
+
+    /**
+     * Schedules copying of pending events to the subscriber, unless a drain or a heartbeat is already pending.
+     */
+    private void scheduleDrain(Subscription subscription) {
+        if (subscription.cursor < head && subscription.busy.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscription));
+        }
+    }
+
+    /**
+     * Sends all events between the subscriber's cursor and the head of the ring.
+     */
+    private void drain(Subscription subscription) {
+        try {
+            while (subscription.cursor < head) {
+                long next = subscription.cursor + 1;
+                ChangeEventDTO event = ring[(int) (next & mask)];
+                if (event == null || event.sequence() != next) {
+                    // The subscriber is too slow and the event was already overwritten.
+                    sendReset(subscription, dispatcher, true);
+                    return;
+                }
+                send(subscription, dispatcher, SseEmitter.event()
+                        .id(Long.toString(next))
+                        .name(event.type().name().toLowerCase())
+                        .data(event));
+                subscription.cursor = next;
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscription);
+            return;
+        } finally {
+            subscription.busy.set(false);
+        }
+        // An event may have been published after the loop ended but before the flag was cleared.
+        scheduleDrain(subscription);
+    }
+
+    /**
+     * Sends an event while recording when the send started, so that {@link #disconnectStalled()} can find it.
+     *
+     * @param pool The pool whose thread sends, or {@code null} if the send can't block.
+     * @throws IOException if the send failed, or the subscriber was disconnected because the send took too long.
+     */
+    private void send(Subscription subscription, ThreadPoolExecutor pool, SseEmitter.SseEventBuilder event) throws IOException {
+        if (pool == null) {
+            subscription.emitter.send(event);
+            return;
+        }
+        PendingSend pending = new PendingSend(pool, System.nanoTime(), false, false);
+        if (!subscription.pendingSend.compareAndSet(null, pending)) {
+            throw new IOException("Odběratel byl odpojen.");
+        }
+        boolean finishedInTime;
+        try {
+            subscription.emitter.send(event);
+        } finally {
+            finishedInTime = subscription.pendingSend.compareAndSet(pending, null);
+            if (!finishedInTime) {
+                releaseThread(pool, subscription.pendingSend.get().replacedThread());
+            }
+        }
+        if (!finishedInTime) {
+            throw new IOException("Odeslání odběrateli nebylo dokončeno včas.");
+        }
+    }
+
+    /**
+     * Removes the extra thread a pool got for a stalled send, once the send has ended.
+     */
+    private void releaseThread(ThreadPoolExecutor pool, boolean replacedThread) {
+        if (replacedThread) {
+            resize(pool, -1);
+            stalledSends.decrementAndGet();
+        }
+    }
+
+    /**
+     * Changes the number of threads of the pool by the given number.
+     */
+    private static void resize(ThreadPoolExecutor pool, int delta) {
+        synchronized (pool) {
+            int threads = pool.getMaximumPoolSize() + delta;
+            if (delta > 0) {
+                pool.setMaximumPoolSize(threads);
+                pool.setCorePoolSize(threads);
+            } else {
+                pool.setCorePoolSize(threads);
+                pool.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    /**
+     * Tells the subscriber to reload its data because the requested events are no longer available.
+     *
+     * @param subscription The subscriber.
+     * @param pool The pool whose thread sends, or {@code null} if the send can't block.
+     * @param disconnect Whether to close the connection afterwards.
+     */
+    private void sendReset(Subscription subscription, ThreadPoolExecutor pool, boolean disconnect) {
+        try {
+            send(subscription, pool, SseEmitter.event().name(RESET_EVENT).data(head));
+            if (disconnect) {
+                drop(subscription);
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(subscription);
+        }
+    }
+
+    private void drop(Subscription subscription) {
+        subscriptions.remove(subscription);
+        subscription.emitter.complete();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        dispatcher.shutdownNow();
+        heartbeatSender.shutdownNow();
+    }
+
+    /**
+     * State kept for a single subscriber: its emitter, the sequence of the last event it received
+     * and the send in progress.
+     */
+    private static final class Subscription {
+
+        private final SseEmitter emitter;
+
+        /**
+         * Whether a drain or a heartbeat of the subscriber is queued or running.
+         */
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        /**
+         * The send in progress; stays set once the subscriber is disconnected for a stalled send.
+         */
+        private final AtomicReference<PendingSend> pendingSend = new AtomicReference<>();
+        private volatile long cursor;
+
+        private Subscription(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * A send to a subscriber that has started and not yet finished.
+     *
+     * @param pool The pool whose thread is sending.
+     * @param startedAt When the send started, in {@link System#nanoTime()}.
+     * @param stalled Whether the send took too long and the subscriber was disconnected.
+     * @param replacedThread Whether the pool got an extra thread while the send is blocked.
+     */
+    private record PendingSend(ThreadPoolExecutor pool, long startedAt, boolean stalled, boolean replacedThread) {
+
+        private PendingSend markStalled(boolean replacedThread) {
+            return new PendingSend(pool, startedAt, true, replacedThread);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cz.itnetwork.service;
+
+import java.time.LocalDate;
+
+/**
+ * The service interface for allocating invoice numbers.
+ */
+public interface InvoiceNumberService {
+
+    /**
+     * Allocates the next invoice number of a seller for the year of the given date.
+     * The number has the form {@code YYYYNNNNN}, where {@code NNNNN} is the sequence within the year.
+     *
+     * @param sellerIdentificationNumber The identification number (IČO) of the seller.
+     * @param issued The issue date of the invoice; the current date is used if {@code null}.
+     * @return A new invoice number, unique for the seller.
+     */
+    int nextInvoiceNumber(String sellerIdentificationNumber, LocalDate issued);
+}
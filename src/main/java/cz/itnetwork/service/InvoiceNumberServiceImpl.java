@@ -0,0 +1,192 @@
+package cz.itnetwork.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import cz.itnetwork.configuration.ShardingProperties;
+import cz.itnetwork.service.shard.ShardContext;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates sequential invoice numbers per seller and year.
+ * <p>
+ * Numbers are reserved from the {@code invoice_number_counter} table in blocks. Each block is reserved
+ * in its own short transaction that locks only the counter row of that seller and year, and the numbers
+ * of the block are then handed out from an in-memory atomic counter. Invoices of one seller issued
+ * concurrently therefore don't wait for each other's transactions, and invoices of different sellers
+ * never touch the same counter at all.
+ * </p>
+ * <p>
+ * The reservation runs while the transaction of the invoice already holds a connection, so it takes its
+ * connection from a small pool of its own for each database instead of the application's pool. Otherwise
+ * every writer refilling a block would hold two connections of the same pool, and as many writers as the pool
+ * has connections could wait for each other forever. The reservation pool adds its connections to those
+ * the database has to allow for each server instance.
+ * </p>
+ * <p>
+ * Numbers are unique but only nearly gapless: numbers of a block that weren't used before a restart,
+ * and numbers of invoices whose transaction was rolled back, are skipped. A block size of 1 makes
+ * the sequence gapless except for rollbacks, at the cost of one counter update per invoice.
+ * </p>
+ */
+@Service
+public class InvoiceNumberServiceImpl implements InvoiceNumberService {
+
+    /**
+     * The sequence within a year is stored in the last five digits of the invoice number.
+     */
+    private static final int YEAR_MULTIPLIER = 100_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final List<HikariDataSource> reservationPools = new ArrayList<>();
+    private final List<JdbcTemplate> reservationJdbc = new ArrayList<>();
+    private final List<TransactionTemplate> reservationTransactions = new ArrayList<>();
+    private final int blockSize;
+    private final Map<String, NumberBlock> blocks = new ConcurrentHashMap<>();
+    private final Object[] refillLocks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param dataSourceProperties The connection settings of the database when it isn't sharded.
+     * @param shardingProperties The connection settings of the shards when the database is sharded.
+     * @param blockSize The number of invoice numbers reserved at once.
+     * @param reservationPoolSize The number of connections of the reservation pool of each database.
+     */
+    public InvoiceNumberServiceImpl(DataSourceProperties dataSourceProperties,
+                                    ShardingProperties shardingProperties,
+                                    @Value("${invoicing.invoice-number.block-size:20}") int blockSize,
+                                    @Value("${invoicing.invoice-number.reservation-pool-size:2}") int reservationPoolSize) {
+        if (shardingProperties.isEnabled()) {
+            for (ShardingProperties.Shard shard : shardingProperties.getShards()) {
+                addReservationPool(DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .driverClassName(shard.getDriverClassName())
+                        .build(), reservationPoolSize);
+            }
+        } else {
+            addReservationPool(dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build(),
+                    reservationPoolSize);
+        }
+        this.blockSize = blockSize;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            refillLocks[i] = new Object();
+        }
+    }
+
+    private void addReservationPool(HikariDataSource pool, int size) {
+        pool.setPoolName("invoice-number-" + reservationPools.size());
+        pool.setMaximumPoolSize(Math.max(1, size));
+        pool.setMinimumIdle(0);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        // Suspends the synchronizations of the invoice's transaction, which runs on the application's pool.
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        reservationPools.add(pool);
+        reservationJdbc.add(new JdbcTemplate(pool));
+        reservationTransactions.add(transaction);
+    }
+
+    @PreDestroy
+    public void closeReservationPools() {
+        reservationPools.forEach(HikariDataSource::close);
+    }
+
+    @Override
+    public int nextInvoiceNumber(String sellerIdentificationNumber, LocalDate issued) {
+        int year = (issued != null ? issued : LocalDate.now()).getYear();
+        String key = sellerIdentificationNumber + "/" + year;
+
+        long sequence = takeFromBlock(key);
+        if (sequence < 0) {
+            synchronized (refillLocks[Math.floorMod(key.hashCode(), LOCK_STRIPES)]) {
+                // Another thread may have refilled the block while this one was waiting.
+                sequence = takeFromBlock(key);
+                if (sequence < 0) {
+                    NumberBlock block = reserveBlock(key, sellerIdentificationNumber, year);
+                    sequence = block.next.getAndIncrement();
+                    blocks.put(key, block);
+                }
+            }
+        }
+
+        if (sequence >= YEAR_MULTIPLIER) {
+            throw new IllegalStateException("Prodávající " + sellerIdentificationNumber + " vyčerpal číselnou řadu faktur pro rok " + year + ".");
+        }
+        return year * YEAR_MULTIPLIER + (int) sequence;
+    }
+
+    /**
+     * Takes the next number from the cached block of the counter.
+     *
+     * @return The sequence number, or {@code -1} if there is no block or it is exhausted.
+     */
+    private long takeFromBlock(String key) {
+        NumberBlock block = blocks.get(key);
+        if (block == null) {
+            return -1;
+        }
+        long sequence = block.next.getAndIncrement();
+        return sequence < block.end ? sequence : -1;
+    }
+
+    /**
+     * Reserves a new block of numbers in a separate transaction on the reservation pool of the current shard,
+     * creating the counter if needed.
+     */
+    private NumberBlock reserveBlock(String key, String sellerIdentificationNumber, int year) {
+        Integer shard = ShardContext.current();
+        int index = shard != null ? shard : 0;
+        JdbcTemplate jdbc = reservationJdbc.get(index);
+        TransactionTemplate transaction = reservationTransactions.get(index);
+        try {
+            return transaction.execute(status -> reserve(jdbc, key, sellerIdentificationNumber, year));
+        } catch (DataIntegrityViolationException e) {
+            // Another server instance created the counter at the same time; now it exists and can be locked.
+            return transaction.execute(status -> reserve(jdbc, key, sellerIdentificationNumber, year));
+        }
+    }
+
+    private NumberBlock reserve(JdbcTemplate jdbc, String key, String sellerIdentificationNumber, int year) {
+        List<Long> nextValues = jdbc.queryForList(
+                "SELECT next_value FROM invoice_number_counter WHERE counter_key = ? FOR UPDATE", Long.class, key);
+        long start;
+        if (nextValues.isEmpty()) {
+            start = 1;
+            jdbc.update("INSERT INTO invoice_number_counter (counter_key, seller_identification_number, counter_year, next_value) " +
+                    "VALUES (?, ?, ?, ?)", key, sellerIdentificationNumber, year, start + blockSize);
+        } else {
+            start = nextValues.get(0);
+            jdbc.update("UPDATE invoice_number_counter SET next_value = ? WHERE counter_key = ?", start + blockSize, key);
+        }
+        return new NumberBlock(start, start + blockSize);
+    }
+
+    /**
+     * A reserved range of sequence numbers, {@code [next, end)}.
+     */
+    private static final class NumberBlock {
+
+        private final AtomicLong next;
+        private final long end;
+
+        private NumberBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
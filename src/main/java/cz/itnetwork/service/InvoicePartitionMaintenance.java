@@ -0,0 +1,173 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.service.shard.ShardOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the {@code invoice} table partitioned by the year of issue on MySQL.
+ * <p>
+ * On startup the table is partitioned unless it already is: its foreign keys are dropped under the names
+ * the database actually has, which differ between databases whose schema Hibernate generated, the primary key
+ * is extended by {@code db/partition-invoice-by-year.sql}, and the table is split into a partition for each of
+ * the last ten years up to the next one. A monthly job then splits the partition of future invoices, so that every year up to the configured
+ * number of years ahead has its own partition before the first invoice of that year is issued.
+ * Queries restricted by a range of issue dates then read only the partitions of the range.
+ * On other databases, such as the embedded ones of the {@code sharded} profile, the job does nothing.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "invoicing.partitioning", name = "enabled", havingValue = "true")
+public class InvoicePartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoicePartitionMaintenance.class);
+    private static final String OLD_PARTITION = "p_old";
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final int HISTORY_YEARS = 10;
+    private static final Pattern YEAR_PARTITION = Pattern.compile("p(\\d{4})");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardOperations shardOperations;
+    private final Resource migration;
+    private final int yearsAhead;
+
+    public InvoicePartitionMaintenance(DataSource dataSource,
+                                       ShardOperations shardOperations,
+                                       @Value("classpath:db/partition-invoice-by-year.sql") Resource migration,
+                                       @Value("${invoicing.partitioning.years-ahead:2}") int yearsAhead) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardOperations = shardOperations;
+        this.migration = migration;
+        this.yearsAhead = yearsAhead;
+    }
+
+    /**
+     * Partitions the table on every shard where it isn't partitioned yet and creates the future partitions.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        shardOperations.onAllShards(() -> {
+            if (isMySql() && listPartitions().isEmpty()) {
+                log.info("Partitioning the invoice table by year of issue.");
+                dropForeignKeys();
+                new ResourceDatabasePopulator(migration).execute(dataSource);
+                partitionByYear(LocalDate.now().getYear());
+            }
+            return null;
+        });
+        createFuturePartitions();
+    }
+
+    /**
+     * Splits the partition of future invoices so that the coming years have partitions of their own.
+     */
+    @Scheduled(cron = "${invoicing.partitioning.maintenance-cron:0 30 2 1 * *}")
+    public void createFuturePartitions() {
+        shardOperations.onAllShards(() -> {
+            if (isMySql()) {
+                createFuturePartitions(LocalDate.now().getYear() + yearsAhead);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drops the foreign keys of the invoice table, which a partitioned table can't have. Their names are
+     * read from the database, because Hibernate generates them unless the mapping names them.
+     */
+    private void dropForeignKeys() {
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT constraint_name FROM information_schema.referential_constraints " +
+                        "WHERE constraint_schema = DATABASE() AND table_name = 'invoice'",
+                String.class);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE invoice DROP FOREIGN KEY `" + foreignKey + "`");
+        }
+        log.info("Dropped foreign keys {} of the invoice table.", foreignKeys);
+    }
+
+    /**
+     * Partitions the table with a partition for each of the last ten years up to the next one,
+     * one for older invoices and one for future invoices.
+     */
+    private void partitionByYear(int currentYear) {
+        int firstYear = currentYear - HISTORY_YEARS + 1;
+        List<String> partitions = new ArrayList<>();
+        partitions.add("PARTITION " + OLD_PARTITION + " VALUES LESS THAN ('" + firstYear + "-01-01')");
+        partitions.addAll(yearPartitions(firstYear, currentYear + 1));
+        partitions.add("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE invoice PARTITION BY RANGE COLUMNS (issued) ("
+                + String.join(", ", partitions) + ")");
+    }
+
+    private void createFuturePartitions(int lastYear) {
+        List<String> partitions = listPartitions();
+        if (!partitions.contains(FUTURE_PARTITION)) {
+            return;
+        }
+        // New partitions continue from the last yearly one, so that every year keeps a partition of its own.
+        int highestYear = 0;
+        for (String partition : partitions) {
+            Matcher matcher = YEAR_PARTITION.matcher(partition);
+            if (matcher.matches()) {
+                highestYear = Math.max(highestYear, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        if (highestYear == 0) {
+            highestYear = LocalDate.now().getYear() - 1;
+        }
+        if (highestYear >= lastYear) {
+            return;
+        }
+
+        List<String> created = new ArrayList<>(yearPartitions(highestYear + 1, lastYear));
+        created.add("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE invoice REORGANIZE PARTITION " + FUTURE_PARTITION
+                + " INTO (" + String.join(", ", created) + ")");
+        log.info("Created invoice partitions for years {} to {}.", highestYear + 1, lastYear);
+    }
+
+    private List<String> yearPartitions(int firstYear, int lastYear) {
+        List<String> partitions = new ArrayList<>();
+        for (int year = firstYear; year <= lastYear; year++) {
+            partitions.add("PARTITION p" + year + " VALUES LESS THAN ('" + (year + 1) + "-01-01')");
+        }
+        return partitions;
+    }
+
+    /**
+     * @return The names of the partitions of the invoice table; empty if it isn't partitioned.
+     */
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT partition_name FROM information_schema.partitions " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'invoice' AND partition_name IS NOT NULL",
+                String.class);
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase(Locale.ROOT).contains("mysql");
+    }
+}
@@ -0,0 +1,171 @@
+package cz.itnetwork.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Renders a single invoice into a one-page PDF document.
+ * <p>
+ * Everything that doesn't depend on the invoice (fonts, labels, column widths) is prepared once
+ * when the renderer is created, so rendering only fills in the data. Every thread reuses its own
+ * output buffer, which avoids growing a fresh buffer for each document. The renderer is thread-safe.
+ * </p>
+ */
+@Component
+public class InvoicePdfRenderer {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("d. M. yyyy");
+    private static final float[] PARTY_COLUMN_WIDTHS = {1f, 1f};
+    private static final float[] ITEM_COLUMN_WIDTHS = {4f, 2f, 1f, 2f, 2f};
+    private static final String[] ITEM_HEADERS = {"Položka", "Cena bez DPH", "DPH %", "DPH", "Cena s DPH"};
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    private final Font titleFont;
+    private final Font headingFont;
+    private final Font textFont;
+    private final Font boldFont;
+    private final ThreadLocal<ByteArrayOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+
+    public InvoicePdfRenderer() {
+        try {
+            // CP1250 covers Czech and Slovak diacritics with the standard, non-embedded Helvetica fonts.
+            BaseFont regular = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1250, BaseFont.NOT_EMBEDDED);
+            BaseFont bold = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.CP1250, BaseFont.NOT_EMBEDDED);
+            this.titleFont = new Font(bold, 18);
+            this.headingFont = new Font(bold, 11);
+            this.textFont = new Font(regular, 10);
+            this.boldFont = new Font(bold, 10);
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("Nepodařilo se načíst písma pro PDF.", e);
+        }
+    }
+
+    /**
+     * Renders the invoice into a PDF document.
+     *
+     * @param invoice The invoice including its buyer and seller.
+     * @return The PDF document.
+     */
+    public byte[] render(InvoiceDTO invoice) {
+        ByteArrayOutputStream buffer = buffers.get();
+        buffer.reset();
+
+        Document document = new Document(PageSize.A4, 40, 40, 40, 40);
+        try {
+            PdfWriter.getInstance(document, buffer);
+            document.open();
+
+            document.add(new Paragraph("Faktura č. " + invoice.getInvoiceNumber(), titleFont));
+            document.add(new Paragraph(
+                    "Datum vystavení: " + format(invoice.getIssued()) + "    Datum splatnosti: " + format(invoice.getDueDate()),
+                    textFont));
+            document.add(spacer());
+
+            PdfPTable parties = new PdfPTable(PARTY_COLUMN_WIDTHS);
+            parties.setWidthPercentage(100);
+            parties.addCell(partyCell("Dodavatel", invoice.getSeller(), true));
+            parties.addCell(partyCell("Odběratel", invoice.getBuyer(), false));
+            document.add(parties);
+            document.add(spacer());
+
+            document.add(itemTable(invoice));
+
+            if (invoice.getNote() != null && !invoice.getNote().isBlank()) {
+                document.add(spacer());
+                document.add(new Paragraph("Poznámka: " + invoice.getNote(), textFont));
+            }
+            document.close();
+        } catch (DocumentException e) {
+            throw new IllegalStateException("Fakturu s ID " + invoice.getId() + " se nepodařilo vykreslit.", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Builds the block with the address, identification numbers and, for the seller, bank details of a party.
+     */
+    private PdfPCell partyCell(String label, PersonDTO person, boolean withBankDetails) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.addElement(new Paragraph(label, headingFont));
+        if (person == null) {
+            return cell;
+        }
+        cell.addElement(new Paragraph(person.getName(), boldFont));
+        cell.addElement(new Paragraph(person.getStreet(), textFont));
+        cell.addElement(new Paragraph(person.getZip() + " " + person.getCity(), textFont));
+        if (person.getCountry() != null) {
+            cell.addElement(new Paragraph(person.getCountry().name(), textFont));
+        }
+        cell.addElement(new Paragraph("IČO: " + person.getIdentificationNumber(), textFont));
+        if (person.getTaxNumber() != null) {
+            cell.addElement(new Paragraph("DIČ: " + person.getTaxNumber(), textFont));
+        }
+        if (withBankDetails) {
+            cell.addElement(new Paragraph("Číslo účtu: " + person.getAccountNumber() + "/" + person.getBankCode(), textFont));
+            if (person.getIban() != null) {
+                cell.addElement(new Paragraph("IBAN: " + person.getIban(), textFont));
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Builds the table with the invoiced item and its VAT line.
+     */
+    private PdfPTable itemTable(InvoiceDTO invoice) {
+        PdfPTable table = new PdfPTable(ITEM_COLUMN_WIDTHS);
+        table.setWidthPercentage(100);
+        for (String header : ITEM_HEADERS) {
+            table.addCell(new Phrase(header, boldFont));
+        }
+
+        BigDecimal price = invoice.getPrice() != null ? invoice.getPrice() : BigDecimal.ZERO;
+        int vatRate = invoice.getVat() != null ? invoice.getVat() : 0;
+        BigDecimal vat = price.multiply(BigDecimal.valueOf(vatRate)).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+
+        table.addCell(new Phrase(invoice.getProduct(), textFont));
+        table.addCell(amountCell(price, textFont));
+        PdfPCell vatRateCell = new PdfPCell(new Phrase(Integer.toString(vatRate), textFont));
+        vatRateCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        table.addCell(vatRateCell);
+        table.addCell(amountCell(vat, textFont));
+        table.addCell(amountCell(price.add(vat), boldFont));
+        return table;
+    }
+
+    private PdfPCell amountCell(BigDecimal amount, Font font) {
+        PdfPCell cell = new PdfPCell(new Phrase(amount.setScale(2, RoundingMode.HALF_UP).toPlainString(), font));
+        cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        return cell;
+    }
+
+    private Paragraph spacer() {
+        return new Paragraph(" ", textFont);
+    }
+
+    private String format(LocalDate date) {
+        return date != null ? DATE_FORMAT.format(date) : "";
+    }
+}
@@ -0,0 +1,41 @@
+package cz.itnetwork.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+/**
+ * The service interface for rendering invoices as PDF documents.
+ */
+public interface InvoicePdfService {
+
+    /**
+     * Renders a single invoice as a PDF document.
+     *
+     * @param invoiceId The ID of the invoice.
+     * @return The PDF document.
+     */
+    byte[] renderInvoice(long invoiceId);
+
+    /**
+     * Renders all invoices matching the filter and writes them to the output as a ZIP archive,
+     * one PDF document per invoice.
+     *
+     * @param outputStream The stream to write the ZIP archive to.
+     * @param buyerId The identification number of the buyer for filtering.
+     * @param sellerId The identification number of the seller for filtering.
+     * @param product A product name substring for filtering.
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @return The number of rendered invoices.
+     * @throws IOException if writing to the output fails.
+     */
+    int renderInvoicesZip(
+            OutputStream outputStream,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice
+    ) throws IOException;
+}
@@ -0,0 +1,153 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.mapper.InvoiceMapper;
+import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.service.shard.ShardOperations;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Implementation of PDF rendering of invoices.
+ * <p>
+ * Batch rendering reads the filtered invoices in keyset batches and renders each batch in parallel
+ * on a bounded worker pool shared by all requests. While a batch is being rendered, the next one is
+ * already loaded from the database; the finished documents are written to the ZIP stream in order.
+ * At most two batches are held in memory at any time, regardless of the size of the filtered set.
+ * </p>
+ */
+@Service
+public class InvoicePdfServiceImpl implements InvoicePdfService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoicePdfServiceImpl.class);
+
+    private final InvoiceService invoiceService;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceMapper invoiceMapper;
+    private final InvoicePdfRenderer renderer;
+    private final ShardOperations shardOperations;
+    private final ThreadPoolExecutor workers;
+    private final int batchSize;
+
+    public InvoicePdfServiceImpl(InvoiceService invoiceService,
+                                 InvoiceRepository invoiceRepository,
+                                 InvoiceMapper invoiceMapper,
+                                 InvoicePdfRenderer renderer,
+                                 ShardOperations shardOperations,
+                                 @Value("${invoicing.pdf.worker-threads:0}") int workerThreads,
+                                 @Value("${invoicing.pdf.batch-size:100}") int batchSize) {
+        this.invoiceService = invoiceService;
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceMapper = invoiceMapper;
+        this.renderer = renderer;
+        this.shardOperations = shardOperations;
+        this.batchSize = batchSize;
+
+        int threads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-renderer-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // When the pool is saturated by other requests, the requesting thread renders itself.
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public byte[] renderInvoice(long invoiceId) {
+        return renderer.render(invoiceService.getInvoice(invoiceId));
+    }
+
+    @Override
+    public int renderInvoicesZip(
+            OutputStream outputStream,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice) throws IOException {
+
+        long start = System.nanoTime();
+        int rendered = 0;
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+
+        List<InvoiceEntity> batch = loadBatch(0, buyerId, sellerId, product, minPrice, maxPrice);
+        while (!batch.isEmpty()) {
+            List<InvoiceDTO> invoices = batch.stream().map(invoiceMapper::toDTO).toList();
+            List<Future<byte[]>> documents = new ArrayList<>(invoices.size());
+            for (InvoiceDTO invoice : invoices) {
+                documents.add(workers.submit(() -> renderer.render(invoice)));
+            }
+
+            // Load the next batch while the current one is being rendered.
+            long lastId = batch.get(batch.size() - 1).getId();
+            batch = batch.size() == batchSize
+                    ? loadBatch(lastId, buyerId, sellerId, product, minPrice, maxPrice)
+                    : List.of();
+
+            for (int i = 0; i < invoices.size(); i++) {
+                InvoiceDTO invoice = invoices.get(i);
+                zip.putNextEntry(new ZipEntry("faktura-" + invoice.getInvoiceNumber() + "-" + invoice.getId() + ".pdf"));
+                zip.write(await(documents.get(i)));
+                zip.closeEntry();
+                rendered++;
+            }
+            zip.flush();
+        }
+        zip.finish();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Rendered {} invoices in {} s ({} pages/s).",
+                rendered, String.format("%.2f", seconds), String.format("%.1f", seconds > 0 ? rendered / seconds : 0));
+        return rendered;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private List<InvoiceEntity> loadBatch(long afterId, String buyerId, String sellerId, String product,
+                                          BigDecimal minPrice, BigDecimal maxPrice) {
+        return shardOperations.findAfterId(afterId, shardAfterId -> invoiceRepository.findWithPartiesAfterId(
+                shardAfterId, blankToNull(buyerId), blankToNull(sellerId), blankToNull(product), minPrice, maxPrice,
+                PageRequest.ofSize(batchSize)));
+    }
+
+    private byte[] await(Future<byte[]> document) throws IOException {
+        try {
+            return document.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Vykreslování faktur bylo přerušeno.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Fakturu se nepodařilo vykreslit.", e.getCause());
+        }
+    }
+
+    private String blankToNull(String value) {
+        return (value == null || value.trim().isEmpty()) ? null : value.trim();
+    }
+}
@@ -1,12 +1,18 @@
 package cz.itnetwork.service;
 
+import cz.itnetwork.dto.CountryRevenueDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsDTO;
 import cz.itnetwork.dto.InvoiceDTO;
 import cz.itnetwork.dto.InvoiceStatisticsDTO;
 import cz.itnetwork.dto.InvoiceSummary;
+import cz.itnetwork.dto.SellerAgingDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The service interface for managing invoices.
@@ -29,6 +35,36 @@ public interface InvoiceService {
      */
     void removeInvoice(long invoiceId);
 
+    /**
+     * Soft-deletes several invoices at once.
+     *
+     * @param ids The IDs of the invoices to be removed.
+     * @return The number of invoices removed; IDs that don't exist or are already removed are skipped.
+     */
+    int removeInvoices(List<Long> ids);
+
+    /**
+     * Soft-deletes all visible invoices matching the filter. At least one filter has to be given.
+     *
+     * @param buyerId The identification number of the buyer for filtering.
+     * @param sellerId The identification number of the seller for filtering.
+     * @param product A product name substring for filtering.
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @return The number of invoices removed.
+     */
+    int removeFilteredInvoices(
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo
+    );
+
     /**
      * Retrieves a single invoice by its unique ID.
      *
@@ -37,6 +73,15 @@ public interface InvoiceService {
      */
     InvoiceDTO getInvoice(long id);
 
+    /**
+     * Retrieves only the requested fields of a single invoice.
+     *
+     * @param id The unique identifier of the invoice.
+     * @param fields The comma-separated fields of the invoice, e.g. {@code id,price,buyer.name}.
+     * @return The requested fields nested like in {@link InvoiceDTO}.
+     */
+    Map<String, Object> getInvoiceFields(long id, String fields);
+
     /**
      * Edits an existing invoice by its ID.
      *
@@ -53,6 +98,52 @@ public interface InvoiceService {
      */
     InvoiceStatisticsDTO getInvoiceStatistics();
 
+    /**
+     * Retrieves the number and sums of invoices for every combination of seller country and buyer country.
+     *
+     * @return One item per combination of countries.
+     */
+    List<CountryRevenueDTO> getInvoiceStatisticsByCountry();
+
+    /**
+     * Retrieves the aging of receivables per seller: not yet due, 1–30, 31–60, 61–90 and over 90 days overdue.
+     *
+     * @param sellerId The identification number of the seller to report on; all sellers if empty.
+     * @return The aging report of each seller, the highest overdue sum first.
+     */
+    List<SellerAgingDTO> getReceivablesAging(String sellerId);
+
+    /**
+     * Retrieves a paginated list of visible invoices that are past their due date, the oldest first.
+     *
+     * @param pageable Pagination information.
+     * @return A page of overdue invoice summaries.
+     */
+    Page<InvoiceSummary> getOverdueInvoiceSummaries(Pageable pageable);
+
+    /**
+     * Aggregates the visible invoices by the given dimension, optionally filtered.
+     *
+     * @param groupBy The dimension to group by: {@code seller}, {@code buyer}, {@code month}, {@code year},
+     *                {@code vat_rate}, {@code seller_country} or {@code buyer_country}.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @param sellerId The identification number of the seller for filtering.
+     * @param buyerId The identification number of the buyer for filtering.
+     * @param vat The VAT rate for filtering.
+     * @param limit The maximum number of groups to return.
+     * @return The groups ordered from the highest total down.
+     */
+    InvoiceAnalyticsDTO getInvoiceAnalytics(
+            String groupBy,
+            LocalDate issuedFrom,
+            LocalDate issuedTo,
+            String sellerId,
+            String buyerId,
+            Integer vat,
+            int limit
+    );
+
     /**
      * Retrieves a paginated and filtered list of invoice summaries.
      *
@@ -62,6 +153,8 @@ public interface InvoiceService {
      * @param product A product name substring for filtering.
      * @param minPrice The minimum price for filtering.
      * @param maxPrice The maximum price for filtering.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
      * @return A page of invoice summaries.
      */
     Page<InvoiceSummary> getFilteredInvoiceSummaries(
@@ -70,9 +163,42 @@ public interface InvoiceService {
             String sellerId,
             String product,
             BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo
+    );
+
+    /**
+     * Retrieves the next batch of filtered invoice summaries that follow the given invoice ID.
+     * Used for streaming the whole filtered set without offset pagination.
+     *
+     * @param afterId The ID of the last invoice the client has already received.
+     * @param batchSize The maximum number of summaries to return.
+     * @param buyerId The identification number of the buyer for filtering.
+     * @param sellerId The identification number of the seller for filtering.
+     * @param product A product name substring for filtering.
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @return The next batch of invoice summaries ordered by ID; empty when there are no more.
+     */
+    List<InvoiceSummary> getInvoiceSummariesAfter(
+            long afterId,
+            int batchSize,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
             BigDecimal maxPrice
     );
 
+    /**
+     * Retrieves summaries of several invoices at once.
+     *
+     * @param ids The IDs of the invoices to retrieve.
+     * @return The invoice summaries in the order of the requested IDs; IDs that don't exist are skipped.
+     */
+    List<InvoiceSummary> getInvoiceSummariesByIds(List<Long> ids);
+
     /**
      * Retrieves a paginated list of invoices by seller's identification number.
      *
@@ -90,4 +216,50 @@ public interface InvoiceService {
      * @return A page of invoices purchased by the specified buyer.
      */
     Page<InvoiceDTO> getInvoicesByBuyerIdentificationNumber(String identificationNumber, Pageable pageable);
+
+    /**
+     * Retrieves only the requested fields of a paginated and filtered list of invoices.
+     *
+     * @param fields The comma-separated fields of the invoice, e.g. {@code id,price,buyer.name}.
+     * @param pageable Pagination information.
+     * @param buyerId The identification number of the buyer for filtering.
+     * @param sellerId The identification number of the seller for filtering.
+     * @param product A product name substring for filtering.
+     * @param minPrice The minimum price for filtering.
+     * @param maxPrice The maximum price for filtering.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @return A page of the requested fields nested like in {@link InvoiceDTO}.
+     */
+    Page<Map<String, Object>> getFilteredInvoiceFields(
+            String fields,
+            Pageable pageable,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo
+    );
+
+    /**
+     * Retrieves only the requested fields of the invoices of a seller.
+     *
+     * @param identificationNumber The identification number of the seller.
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable Pagination information.
+     * @return A page of the requested fields of invoices sold by the specified seller.
+     */
+    Page<Map<String, Object>> getInvoiceFieldsBySellerIdentificationNumber(String identificationNumber, String fields, Pageable pageable);
+
+    /**
+     * Retrieves only the requested fields of the invoices of a buyer.
+     *
+     * @param identificationNumber The identification number of the buyer.
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable Pagination information.
+     * @return A page of the requested fields of invoices purchased by the specified buyer.
+     */
+    Page<Map<String, Object>> getInvoiceFieldsByBuyerIdentificationNumber(String identificationNumber, String fields, Pageable pageable);
 }
@@ -1,22 +1,50 @@
 package cz.itnetwork.service;
 
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.dto.CountryRevenueDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsDTO;
 import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceFieldSet;
 import cz.itnetwork.dto.InvoiceStatisticsDTO;
 import cz.itnetwork.dto.InvoiceSummary;
+import cz.itnetwork.dto.SellerAgingDTO;
+import cz.itnetwork.dto.VatRateStatisticsDTO;
 import cz.itnetwork.dto.mapper.InvoiceMapper;
 import cz.itnetwork.entity.InvoiceEntity;
 import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.VatRateStatistics;
 import cz.itnetwork.entity.repository.InvoiceRepository;
 import cz.itnetwork.entity.repository.PersonRepository;
+import cz.itnetwork.service.event.DomainEventBus;
+import cz.itnetwork.service.rollup.CountryRevenueMatrix;
+import cz.itnetwork.service.rollup.InvoiceColumnStore;
+import cz.itnetwork.service.rollup.ReceivablesAging;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 import org.webjars.NotFoundException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -26,9 +54,28 @@ import java.util.stream.Collectors;
 @Service
 public class InvoiceServiceImpl implements InvoiceService {
 
+    /**
+     * The maximum number of invoices that can be retrieved in one batch lookup.
+     */
+    public static final int MAX_BATCH_LOOKUP_SIZE = 1000;
+
+    /**
+     * The maximum number of groups returned by an analytics query.
+     */
+    public static final int MAX_ANALYTICS_GROUPS = 10_000;
+
     private final InvoiceMapper invoiceMapper;
     private final InvoiceRepository invoiceRepository;
     private final PersonRepository personRepository;
+    private final DomainEventBus domainEventBus;
+    private final InvoiceNumberService invoiceNumberService;
+    private final SingleFlight singleFlight;
+    private final InvoiceSummaryCache summaryCache;
+    private final InvoiceColumnStore invoiceColumnStore;
+    private final CountryRevenueMatrix countryRevenueMatrix;
+    private final ReceivablesAging receivablesAging;
+    private final TransactionTemplate chunkTransaction;
+    private final int bulkChunkSize;
 
     /**
      * Constructs the service with required dependencies.
@@ -36,16 +83,40 @@ public class InvoiceServiceImpl implements InvoiceService {
      * @param invoiceMapper The mapper for converting between DTO and Entity objects.
      * @param invoiceRepository The repository for accessing invoice data.
      * @param personRepository The repository for accessing person data (buyer/seller).
+     * @param domainEventBus The pipeline notifying projections about changed invoices.
+     * @param invoiceNumberService The service allocating invoice numbers.
+     * @param singleFlight The coalescing of identical concurrent read queries.
+     * @param summaryCache The cache of filtered invoice summary pages.
+     * @param invoiceColumnStore The in-memory column store for ad-hoc aggregations.
+     * @param countryRevenueMatrix The in-memory statistics by seller and buyer country.
+     * @param receivablesAging The in-memory aging of receivables.
+     * @param transactionManager The transaction manager running each chunk of a bulk removal in its own transaction.
+     * @param bulkChunkSize The number of records hidden by one statement of a bulk removal.
      */
-    public InvoiceServiceImpl(InvoiceMapper invoiceMapper, InvoiceRepository invoiceRepository, PersonRepository personRepository) {
+    public InvoiceServiceImpl(InvoiceMapper invoiceMapper, InvoiceRepository invoiceRepository, PersonRepository personRepository,
+                              DomainEventBus domainEventBus, InvoiceNumberService invoiceNumberService, SingleFlight singleFlight,
+                              InvoiceSummaryCache summaryCache, InvoiceColumnStore invoiceColumnStore,
+                              CountryRevenueMatrix countryRevenueMatrix, ReceivablesAging receivablesAging,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${invoicing.bulk.chunk-size:1000}") int bulkChunkSize) {
         this.invoiceMapper = invoiceMapper;
         this.invoiceRepository = invoiceRepository;
         this.personRepository = personRepository;
+        this.domainEventBus = domainEventBus;
+        this.invoiceNumberService = invoiceNumberService;
+        this.singleFlight = singleFlight;
+        this.summaryCache = summaryCache;
+        this.invoiceColumnStore = invoiceColumnStore;
+        this.countryRevenueMatrix = countryRevenueMatrix;
+        this.receivablesAging = receivablesAging;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.bulkChunkSize = bulkChunkSize;
     }
 
     /**
      * Creates and saves a new invoice based on the provided DTO.
      * It first converts the DTO to an entity, links the buyer and seller,
+     * allocates the next invoice number of the seller (any number sent by the client is ignored),
      * and then persists the entity to the database.
      *
      * @param invoiceDTO The DTO containing the invoice data.
@@ -56,26 +127,117 @@ public class InvoiceServiceImpl implements InvoiceService {
     public InvoiceDTO addInvoice(InvoiceDTO invoiceDTO) {
         InvoiceEntity entity = invoiceMapper.toEntity(invoiceDTO);
         setBuyerAndSellerForInvoice(invoiceDTO, entity);
+        entity.setInvoiceNumber(invoiceNumberService.nextInvoiceNumber(
+                entity.getSeller().getIdentificationNumber(), entity.getIssued()));
         entity = invoiceRepository.save(entity);
+        domainEventBus.publish(AggregateType.INVOICE, ChangeAction.CREATED, entity.getId(), null);
+        summaryCache.invalidateParties(List.of(
+                entity.getSeller().getIdentificationNumber(), entity.getBuyer().getIdentificationNumber()));
         return invoiceMapper.toDTO(entity);
     }
 
     /**
      * Marks an existing invoice as hidden by setting its {@code hidden} flag to true.
-     * This simulates a soft-delete operation. If the invoice is not found,
-     * the method silently ignores the request.
+     * This simulates a soft-delete operation. The flag is set by a single conditional update, without loading
+     * the invoice. If the invoice is not found or already hidden, the method silently ignores the request.
      *
      * @param invoiceId The unique identifier of the invoice to be removed.
      */
     @Override
+    @Transactional
     public void removeInvoice(long invoiceId) {
-        try {
-            InvoiceEntity invoice = fetchInvoiceById(invoiceId);
-            invoice.setHidden(true);
-            invoiceRepository.save(invoice);
-        } catch (NotFoundException ignored) {
-            // Ignored, if the invoice wasn't found, no action is needed.
+        if (invoiceRepository.hideIfCurrent(invoiceId, null) == 1) {
+            domainEventBus.publish(AggregateType.INVOICE, ChangeAction.REMOVED, invoiceId, null);
+            // The parties of the hidden invoice aren't loaded, so all cached summaries are dropped.
+            summaryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Hides the invoices in chunks, each chunk by one {@code UPDATE} in its own transaction,
+     * so a large removal neither holds locks on all rows until the end nor loads any entities.
+     *
+     * @param ids The IDs of the invoices to be removed.
+     * @return The number of invoices removed.
+     */
+    @Override
+    public int removeInvoices(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        int removed = 0;
+        for (int from = 0; from < distinctIds.size(); from += bulkChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + bulkChunkSize, distinctIds.size()));
+            removed += chunkTransaction.execute(status -> hideVisibleInvoices(chunk));
+        }
+        return removed;
+    }
+
+    /**
+     * Hides all visible invoices matching the filter. The IDs are read in keyset chunks and every chunk
+     * is hidden by one {@code UPDATE} in its own transaction.
+     *
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product A substring of the product name for filtering.
+     * @param minPrice The minimum price to filter by.
+     * @param maxPrice The maximum price to filter by.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @return The number of invoices removed.
+     * @throws ResponseStatusException if no filter is given.
+     */
+    @Override
+    public int removeFilteredInvoices(
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo) {
+
+        if (isBlank(buyerId) && isBlank(sellerId) && isBlank(product)
+                && minPrice == null && maxPrice == null && issuedFrom == null && issuedTo == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pro hromadné odstranění faktur je nutné zadat alespoň jeden filtr.");
         }
+        LocalDate issuedBefore = issuedTo != null ? issuedTo.plusDays(1) : null;
+        int removed = 0;
+        long afterId = 0;
+        List<Long> chunk;
+        do {
+            chunk = invoiceRepository.findVisibleIdsAfter(afterId, blankToNull(buyerId), blankToNull(sellerId),
+                    blankToNull(product), minPrice, maxPrice, issuedFrom, issuedBefore, PageRequest.ofSize(bulkChunkSize));
+            if (!chunk.isEmpty()) {
+                List<Long> visibleIds = chunk;
+                removed += chunkTransaction.execute(status -> hideInvoices(visibleIds));
+                afterId = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == bulkChunkSize);
+        return removed;
+    }
+
+    /**
+     * A private helper method that hides those of the given invoices that are still visible.
+     */
+    private int hideVisibleInvoices(Collection<Long> ids) {
+        return hideInvoices(invoiceRepository.findVisibleIds(ids));
+    }
+
+    /**
+     * A private helper method that hides the visible invoices with one statement and notifies
+     * the projections, so the rollups and caches derived from the invoices drop them.
+     *
+     * @param visibleIds The IDs of invoices that were visible when they were read.
+     * @return The number of invoices hidden.
+     */
+    private int hideInvoices(List<Long> visibleIds) {
+        if (visibleIds.isEmpty()) {
+            return 0;
+        }
+        int hidden = invoiceRepository.hideAll(visibleIds);
+        domainEventBus.publishAll(AggregateType.INVOICE, ChangeAction.REMOVED, visibleIds);
+        // The parties of the hidden invoices aren't loaded, so all cached summaries are dropped.
+        summaryCache.invalidateAll();
+        return hidden;
     }
 
     /**
@@ -91,7 +253,22 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
 
     /**
-     * A private helper method to fetch an InvoiceEntity by its ID.
+     * Retrieves only the requested fields of a single invoice with a projection selecting just their columns.
+     *
+     * @param id The unique identifier of the invoice.
+     * @param fields The comma-separated fields of the invoice.
+     * @return The requested fields of the invoice.
+     * @throws NotFoundException if no invoice with the given ID exists.
+     * @throws ResponseStatusException if a field is unknown.
+     */
+    @Override
+    public Map<String, Object> getInvoiceFields(long id, String fields) {
+        return invoiceRepository.findFieldsById(id, InvoiceFieldSet.parse(fields))
+                .orElseThrow(() -> new NotFoundException("Faktura s ID " + id + " nebyla nalezena v databázi."));
+    }
+
+    /**
+     * A private helper method to fetch an InvoiceEntity by its ID together with its buyer and seller.
      * This centralizes the logic for retrieving an invoice and handling not-found cases.
      *
      * @param id The ID of the invoice to fetch.
@@ -99,54 +276,180 @@ public class InvoiceServiceImpl implements InvoiceService {
      * @throws NotFoundException if the invoice does not exist in the database.
      */
     private InvoiceEntity fetchInvoiceById(long id) {
-        return invoiceRepository.findById(id)
+        return invoiceRepository.findWithPartiesById(id)
                 .orElseThrow(() -> new NotFoundException("Faktura s ID " + id + " nebyla nalezena v databázi."));
     }
 
     /**
      * "Edits" an existing invoice by hiding the original and creating a new one
      * with the updated data. This approach preserves a record of the original invoice.
+     * The original is hidden with a conditional update, so if several edits of the same invoice
+     * (or the same version, when {@code version} is sent) race each other, only one of them succeeds.
+     * The new version keeps the original invoice number, unless the seller or the year of issue changed,
+     * in which case a new number is allocated.
      *
      * @param invoiceId The ID of the invoice to be edited.
      * @param invoiceDTO The DTO with the new data for the invoice.
      * @return The DTO of the newly created invoice.
+     * @throws NotFoundException if the invoice does not exist.
+     * @throws ResponseStatusException with status 409 if the invoice was already edited or removed by someone else.
      */
     @Override
     @Transactional
     public InvoiceDTO editInvoice(long invoiceId, InvoiceDTO invoiceDTO) {
-        InvoiceEntity originalInvoice = fetchInvoiceById(invoiceId);
-        originalInvoice.setHidden(true);
-        invoiceRepository.save(originalInvoice);
+        if (invoiceRepository.hideIfCurrent(invoiceId, invoiceDTO.getVersion()) == 0) {
+            if (!invoiceRepository.existsById(invoiceId)) {
+                throw new NotFoundException("Faktura s ID " + invoiceId + " nebyla nalezena v databázi.");
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Faktura s ID " + invoiceId + " byla mezitím změněna nebo odstraněna.");
+        }
 
         InvoiceEntity newInvoice = invoiceMapper.toEntity(invoiceDTO);
         newInvoice.setId(null); // Ensure a new ID is generated
         setBuyerAndSellerForInvoice(invoiceDTO, newInvoice);
+        InvoiceEntity original = fetchInvoiceById(invoiceId);
+        newInvoice.setInvoiceNumber(resolveEditedInvoiceNumber(original, newInvoice));
         newInvoice = invoiceRepository.save(newInvoice);
+        domainEventBus.publish(AggregateType.INVOICE, ChangeAction.UPDATED, newInvoice.getId(), invoiceId);
+        // The edit may move the invoice to other parties, so the pages of the original ones change too.
+        summaryCache.invalidateParties(List.of(
+                original.getSeller().getIdentificationNumber(), original.getBuyer().getIdentificationNumber(),
+                newInvoice.getSeller().getIdentificationNumber(), newInvoice.getBuyer().getIdentificationNumber()));
         return invoiceMapper.toDTO(newInvoice);
     }
 
+    /**
+     * A private helper method that decides which number the new version of an edited invoice gets.
+     *
+     * @param original The original version of the invoice.
+     * @param edited The new version of the invoice with the buyer and seller already set.
+     * @return The original number if the seller and the year of issue are unchanged, otherwise a newly allocated one.
+     */
+    private int resolveEditedInvoiceNumber(InvoiceEntity original, InvoiceEntity edited) {
+        String sellerIdentificationNumber = edited.getSeller().getIdentificationNumber();
+        boolean sameSeller = original.getSeller().getIdentificationNumber().equals(sellerIdentificationNumber);
+        boolean sameYear = edited.getIssued() != null && original.getIssued().getYear() == edited.getIssued().getYear();
+        if (sameSeller && sameYear) {
+            return original.getInvoiceNumber();
+        }
+        return invoiceNumberService.nextInvoiceNumber(sellerIdentificationNumber, edited.getIssued());
+    }
+
     /**
      * Calculates and retrieves statistics about all invoices, including
      * the total count of visible invoices, the total sum of prices for all time,
-     * and the total sum of prices for the current year.
+     * and the total sum of prices for the current year, each without and including VAT
+     * and broken down by VAT rate. All numbers come from a single query, so they always agree
+     * with each other. Concurrent calls share a single computation.
      *
      * @return An {@link InvoiceStatisticsDTO} object containing the calculated statistics.
      */
     @Override
     public InvoiceStatisticsDTO getInvoiceStatistics() {
-        long invoicesCount = invoiceRepository.countByHidden(false);
+        return singleFlight.execute("InvoiceService.getInvoiceStatistics", List.of(), this::computeInvoiceStatistics);
+    }
 
-        BigDecimal allTimeSum = invoiceRepository.sumAllTimePricesWithoutVat();
-        if (allTimeSum == null) {
-            allTimeSum = BigDecimal.ZERO;
-        }
+    private InvoiceStatisticsDTO computeInvoiceStatistics() {
+        LocalDate yearStart = LocalDate.now().withDayOfYear(1);
+        List<VatRateStatistics> rates = invoiceRepository.getStatisticsByVatRate(yearStart, yearStart.plusYears(1));
 
-        BigDecimal currentYearSum = invoiceRepository.sumCurrentYearPricesWithoutVat();
-        if (currentYearSum == null) {
-            currentYearSum = BigDecimal.ZERO;
+        long invoicesCount = 0;
+        BigDecimal allTimeSum = BigDecimal.ZERO;
+        BigDecimal allTimeSumWithVat = BigDecimal.ZERO;
+        BigDecimal currentYearSum = BigDecimal.ZERO;
+        BigDecimal currentYearSumWithVat = BigDecimal.ZERO;
+        List<VatRateStatisticsDTO> vatBreakdown = new ArrayList<>(rates.size());
+        for (VatRateStatistics rate : rates) {
+            BigDecimal total = zeroIfNull(rate.getTotal());
+            BigDecimal totalWithVat = total.add(zeroIfNull(rate.getVatTotal()));
+            BigDecimal yearTotal = zeroIfNull(rate.getCurrentYearTotal());
+            BigDecimal yearTotalWithVat = yearTotal.add(zeroIfNull(rate.getCurrentYearVatTotal()));
+            vatBreakdown.add(new VatRateStatisticsDTO(
+                    rate.getVat(), rate.getInvoiceCount(), total, totalWithVat, yearTotal, yearTotalWithVat));
+
+            invoicesCount += rate.getInvoiceCount();
+            allTimeSum = allTimeSum.add(total);
+            allTimeSumWithVat = allTimeSumWithVat.add(totalWithVat);
+            currentYearSum = currentYearSum.add(yearTotal);
+            currentYearSumWithVat = currentYearSumWithVat.add(yearTotalWithVat);
         }
 
-        return new InvoiceStatisticsDTO(currentYearSum, allTimeSum, invoicesCount);
+        return new InvoiceStatisticsDTO(currentYearSum, allTimeSum, invoicesCount,
+                currentYearSumWithVat, allTimeSumWithVat, vatBreakdown);
+    }
+
+    private BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * Retrieves the statistics by seller and buyer country from counters maintained in memory
+     * on every invoice write, without querying the database.
+     *
+     * @return One item per combination of seller country and buyer country.
+     */
+    @Override
+    public List<CountryRevenueDTO> getInvoiceStatisticsByCountry() {
+        return countryRevenueMatrix.getMatrix();
+    }
+
+    /**
+     * Retrieves the aging of receivables per seller, maintained in memory and advanced daily
+     * by a timing wheel, without querying the database.
+     *
+     * @param sellerId The identification number of the seller to report on; all sellers if empty.
+     * @return The aging report of each seller, the highest overdue sum first.
+     */
+    @Override
+    public List<SellerAgingDTO> getReceivablesAging(String sellerId) {
+        return receivablesAging.getReport(blankToNull(sellerId));
+    }
+
+    /**
+     * Retrieves a paginated list of overdue invoices using the index on {@code (hidden, due_date)}.
+     *
+     * @param pageable Pagination information.
+     * @return A page of overdue invoice summaries, the oldest due date first.
+     */
+    @Override
+    public Page<InvoiceSummary> getOverdueInvoiceSummaries(Pageable pageable) {
+        return invoiceRepository.findOverdueSummaries(LocalDate.now(), pageable);
+    }
+
+    /**
+     * Aggregates the visible invoices in the in-memory column store, without querying the database.
+     *
+     * @param groupBy The dimension to group by (case-insensitive).
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param vat The VAT rate to filter by.
+     * @param limit The maximum number of groups to return, at most {@link #MAX_ANALYTICS_GROUPS}.
+     * @return The groups ordered from the highest total down.
+     * @throws ResponseStatusException if the dimension is unknown or the limit is out of range.
+     */
+    @Override
+    public InvoiceAnalyticsDTO getInvoiceAnalytics(
+            String groupBy,
+            LocalDate issuedFrom,
+            LocalDate issuedTo,
+            String sellerId,
+            String buyerId,
+            Integer vat,
+            int limit) {
+
+        AnalyticsDimension dimension;
+        try {
+            dimension = AnalyticsDimension.valueOf(groupBy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Neznámý způsob seskupení: " + groupBy + ".");
+        }
+        if (limit < 1 || limit > MAX_ANALYTICS_GROUPS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Počet skupin musí být mezi 1 a " + MAX_ANALYTICS_GROUPS + ".");
+        }
+        return invoiceColumnStore.aggregate(new InvoiceColumnStore.Query(
+                dimension, issuedFrom, issuedTo, blankToNull(sellerId), blankToNull(buyerId), vat), limit);
     }
 
     /**
@@ -178,7 +481,8 @@ public class InvoiceServiceImpl implements InvoiceService {
     /**
      * Retrieves a paginated and filtered list of invoice summaries.
      * The filtering can be done by buyer's or seller's identification number,
-     * a product name (case-insensitive), and a price range.
+     * a product name (case-insensitive), a price range and a range of issue dates.
+     * Pages are cached until an invoice of the filtered parties changes; concurrent misses share a single query.
      *
      * @param pageable Pagination information.
      * @param buyerId The identification number of the buyer to filter by.
@@ -186,6 +490,8 @@ public class InvoiceServiceImpl implements InvoiceService {
      * @param product A substring of the product name for filtering.
      * @param minPrice The minimum price to filter by.
      * @param maxPrice The maximum price to filter by.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
      * @return A page of filtered invoice summaries.
      */
     @Override
@@ -195,20 +501,97 @@ public class InvoiceServiceImpl implements InvoiceService {
             String sellerId,
             String product,
             BigDecimal minPrice,
-            BigDecimal maxPrice) {
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo) {
+
+        // Filters that select the same invoices share one query; blank filters are ignored by the query anyway.
+        String normalizedBuyerId = blankToNull(buyerId);
+        String normalizedSellerId = blankToNull(sellerId);
+        List<Object> arguments = Arrays.asList(
+                pageable,
+                normalizedBuyerId,
+                normalizedSellerId,
+                isBlank(product) ? null : product.toLowerCase(),
+                minPrice != null ? minPrice.stripTrailingZeros() : null,
+                maxPrice != null ? maxPrice.stripTrailingZeros() : null,
+                issuedFrom,
+                issuedTo);
+        return summaryCache.get("InvoiceService.getFilteredInvoiceSummaries", arguments, normalizedBuyerId, normalizedSellerId,
+                () -> findFilteredInvoiceSummaries(pageable, normalizedBuyerId, normalizedSellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+    }
+
+    private Page<InvoiceSummary> findFilteredInvoiceSummaries(
+            Pageable pageable,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo) {
+
+        Specification<InvoiceEntity> spec = filterSpecification(buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo);
+        return invoiceRepository.findAll(spec, pageable).map(invoiceMapper::toSummary);
+    }
+
+    /**
+     * Retrieves only the requested fields of a page of filtered invoices. The filter is the same
+     * as for the summaries, but only the columns of the requested fields are selected.
+     *
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable Pagination information.
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product A substring of the product name for filtering.
+     * @param minPrice The minimum price to filter by.
+     * @param maxPrice The maximum price to filter by.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @return A page of the requested fields.
+     * @throws ResponseStatusException if a field is unknown.
+     */
+    @Override
+    public Page<Map<String, Object>> getFilteredInvoiceFields(
+            String fields,
+            Pageable pageable,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo) {
+
+        InvoiceFieldSet fieldSet = InvoiceFieldSet.parse(fields);
+        return invoiceRepository.findFields(fieldSet,
+                filterSpecification(buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo), pageable);
+    }
+
+    /**
+     * A private helper method that builds the conditions of the invoice filter.
+     *
+     * @throws NotFoundException if the buyer or seller to filter by doesn't exist.
+     */
+    private Specification<InvoiceEntity> filterSpecification(
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            LocalDate issuedFrom,
+            LocalDate issuedTo) {
 
         Specification<InvoiceEntity> spec = Specification.where(null);
         spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("hidden"), false));
 
         if (buyerId != null && !buyerId.trim().isEmpty()) {
-            PersonEntity buyer = personRepository.findByIdentificationNumber(buyerId).stream().findFirst()
-                    .orElseThrow(() -> new NotFoundException("Kupující s identifikačním číslem " + buyerId + " nebyl nalezen."));
+            PersonEntity buyer = findFilterParty("Kupující", buyerId);
             spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("buyer"), buyer));
         }
 
         if (sellerId != null && !sellerId.trim().isEmpty()) {
-            PersonEntity seller = personRepository.findByIdentificationNumber(sellerId).stream().findFirst()
-                    .orElseThrow(() -> new NotFoundException("Prodávající s identifikačním číslem " + sellerId + " nebyl nalezen."));
+            PersonEntity seller = findFilterParty("Prodávající", sellerId);
             spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("seller"), seller));
         }
 
@@ -225,7 +608,102 @@ public class InvoiceServiceImpl implements InvoiceService {
             spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.lessThanOrEqualTo(root.get("price"), maxPrice));
         }
 
-        return invoiceRepository.findAll(spec, pageable).map(invoiceMapper::toSummary);
+        // The issue date is compared as a half-open range, so the index on it and partition pruning can be used.
+        if (issuedFrom != null) {
+            spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("issued"), issuedFrom));
+        }
+
+        if (issuedTo != null) {
+            spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.lessThan(root.get("issued"), issuedTo.plusDays(1)));
+        }
+
+        return spec;
+    }
+
+    /**
+     * A private helper method that finds the person a filter refers to by identification number.
+     * Like in the rest of the filter, the first version of the person is used.
+     *
+     * @param party The party in the message, e.g. {@code Kupující}.
+     * @param identificationNumber The identification number of the person.
+     * @return The first version of the person.
+     * @throws NotFoundException if no person has the identification number.
+     */
+    private PersonEntity findFilterParty(String party, String identificationNumber) {
+        return personRepository.findByIdentificationNumber(identificationNumber).stream().findFirst()
+                .orElseThrow(() -> new NotFoundException(party + " s identifikačním číslem " + identificationNumber + " nebyl nalezen."));
+    }
+
+    /**
+     * Retrieves the next batch of filtered invoice summaries following the given invoice ID.
+     * Every call is a short, independent query, so no database connection is held
+     * between batches while the caller is busy sending data to the client.
+     *
+     * @param afterId The ID of the last invoice the client has already received.
+     * @param batchSize The maximum number of summaries to return.
+     * @param buyerId The identification number of the buyer to filter by.
+     * @param sellerId The identification number of the seller to filter by.
+     * @param product A substring of the product name for filtering.
+     * @param minPrice The minimum price to filter by.
+     * @param maxPrice The maximum price to filter by.
+     * @return The next batch of invoice summaries ordered by ID.
+     * @throws NotFoundException if the buyer or seller to filter by doesn't exist.
+     */
+    @Override
+    public List<InvoiceSummary> getInvoiceSummariesAfter(
+            long afterId,
+            int batchSize,
+            String buyerId,
+            String sellerId,
+            String product,
+            BigDecimal minPrice,
+            BigDecimal maxPrice) {
+
+        return invoiceRepository.findSummariesAfterId(
+                afterId,
+                isBlank(buyerId) ? null : findFilterParty("Kupující", buyerId).getId(),
+                isBlank(sellerId) ? null : findFilterParty("Prodávající", sellerId).getId(),
+                blankToNull(product),
+                minPrice,
+                maxPrice,
+                PageRequest.ofSize(batchSize));
+    }
+
+    /**
+     * A private helper method that treats empty or whitespace-only filter values as absent.
+     *
+     * @param value The value to normalize.
+     * @return The trimmed value, or {@code null} if it is blank.
+     */
+    private String blankToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Retrieves summaries of several invoices with a single projection query.
+     *
+     * @param ids The IDs of the invoices to retrieve.
+     * @return The invoice summaries in the order of the requested IDs.
+     * @throws ResponseStatusException if more than {@link #MAX_BATCH_LOOKUP_SIZE} IDs are requested.
+     */
+    @Override
+    public List<InvoiceSummary> getInvoiceSummariesByIds(List<Long> ids) {
+        if (ids.size() > MAX_BATCH_LOOKUP_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Najednou lze načíst nejvýše " + MAX_BATCH_LOOKUP_SIZE + " faktur.");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, InvoiceSummary> summariesById = invoiceRepository.findSummariesByIdIn(new HashSet<>(ids)).stream()
+                .collect(Collectors.toMap(InvoiceSummary::id, Function.identity()));
+        return ids.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -261,4 +739,51 @@ public class InvoiceServiceImpl implements InvoiceService {
         List<Long> buyerIds = buyers.stream().map(PersonEntity::getId).collect(Collectors.toList());
         return invoiceRepository.findByBuyerIdInAndHiddenFalse(buyerIds, pageable).map(invoiceMapper::toDTO);
     }
+
+    /**
+     * Retrieves only the requested fields of the visible invoices of a seller.
+     *
+     * @param identificationNumber The identification number of the seller.
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable Pagination information.
+     * @return A page of the requested fields of invoices sold by the specified person.
+     * @throws ResponseStatusException if a field is unknown.
+     */
+    @Override
+    public Page<Map<String, Object>> getInvoiceFieldsBySellerIdentificationNumber(String identificationNumber, String fields, Pageable pageable) {
+        return findPartyInvoiceFields("seller", identificationNumber, InvoiceFieldSet.parse(fields), pageable);
+    }
+
+    /**
+     * Retrieves only the requested fields of the visible invoices of a buyer.
+     *
+     * @param identificationNumber The identification number of the buyer.
+     * @param fields The comma-separated fields of the invoice.
+     * @param pageable Pagination information.
+     * @return A page of the requested fields of invoices purchased by the specified person.
+     * @throws ResponseStatusException if a field is unknown.
+     */
+    @Override
+    public Page<Map<String, Object>> getInvoiceFieldsByBuyerIdentificationNumber(String identificationNumber, String fields, Pageable pageable) {
+        return findPartyInvoiceFields("buyer", identificationNumber, InvoiceFieldSet.parse(fields), pageable);
+    }
+
+    /**
+     * A private helper method that reads the requested fields of the visible invoices in which any person
+     * with the identification number is the given party. The persons are matched by their IDs,
+     * so the person table is joined only if the fields require it.
+     */
+    private Page<Map<String, Object>> findPartyInvoiceFields(String party, String identificationNumber,
+                                                            InvoiceFieldSet fields, Pageable pageable) {
+        List<Long> personIds = personRepository.findByIdentificationNumber(identificationNumber).stream()
+                .map(PersonEntity::getId)
+                .collect(Collectors.toList());
+        if (personIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        Specification<InvoiceEntity> spec = (root, query, criteriaBuilder) -> criteriaBuilder.and(
+                root.get(party).get("id").in(personIds),
+                criteriaBuilder.equal(root.get("hidden"), false));
+        return invoiceRepository.findFields(fields, spec, pageable);
+    }
 }
@@ -0,0 +1,244 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.ResultCacheMetricsDTO;
+import cz.itnetwork.service.shard.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of filtered invoice summary pages, invalidated by generation counters instead of
+ * by removing entries.
+ * <p>
+ * Every entry remembers the generation of the data it was computed from. A page filtered by a buyer
+ * or a seller depends on the generations of those parties, so a write of an invoice only invalidates
+ * the pages of its own parties and the unfiltered pages; a write whose parties are unknown, such as
+ * a removal, invalidates everything. An entry whose generation no longer matches is simply treated
+ * as a miss and replaced, so invalidation never has to find the affected keys.
+ * </p>
+ * <p>
+ * Generations are raised after the writing transaction commits. Concurrent misses share one query
+ * through {@link SingleFlight}, but only callers that read the same generation share it: a caller that
+ * arrives after a write never joins a query started before it. A result is stored under the generation
+ * read before its query started, and only if no write committed while the query ran, so a cached page
+ * is never older than the last local write.
+ * </p>
+ * <p>
+ * Writes made by other server instances don't raise the local generations; entries therefore also
+ * expire after a maximum age. When the cache is full, the least recently used entry is evicted.
+ * Cached results are shared between callers and therefore must not be modified by them.
+ * </p>
+ */
+@Component
+public class InvoiceSummaryCache {
+
+    /**
+     * The number of party generation counters, a power of two.
+     */
+    private static final int PARTY_STRIPES = 1024;
+
+    private final SingleFlight singleFlight;
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final Map<CacheKey, CacheEntry> entries;
+
+    /**
+     * Raised by every write; unfiltered pages depend on it.
+     */
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    /**
+     * Raised by writes whose parties are unknown; pages filtered by a party depend on it.
+     */
+    private final AtomicLong unknownPartyGeneration = new AtomicLong();
+
+    /**
+     * Raised by writes of invoices of the parties whose identification numbers hash to the counter.
+     * The number of counters is fixed however many parties are written; parties sharing a counter
+     * only invalidate each other's pages needlessly.
+     */
+    private final AtomicLongArray partyGenerations = new AtomicLongArray(PARTY_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param singleFlight The coalescing of concurrent misses.
+     * @param enabled Whether results are cached at all.
+     * @param maxEntries The maximum number of cached pages.
+     * @param maxAgeSeconds The maximum age of a cached page, which bounds how long writes of other server instances stay unseen.
+     */
+    public InvoiceSummaryCache(SingleFlight singleFlight,
+                               @Value("${invoicing.summary-cache.enabled:true}") boolean enabled,
+                               @Value("${invoicing.summary-cache.max-entries:1000}") int maxEntries,
+                               @Value("${invoicing.summary-cache.max-age-seconds:60}") long maxAgeSeconds) {
+        this.singleFlight = singleFlight;
+        this.maxEntries = enabled ? Math.max(0, maxEntries) : 0;
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > InvoiceSummaryCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result of the query, or runs the query, joining an identical one of the same
+     * generation that is already running, and caches its result.
+     *
+     * @param operation The name of the operation, usually the service method.
+     * @param arguments The normalized arguments of the query, including the page; queries with equal arguments share an entry.
+     * @param buyerId The normalized identification number of the buyer the query filters by, or {@code null}.
+     * @param sellerId The normalized identification number of the seller the query filters by, or {@code null}.
+     * @param computation The query.
+     * @param <T> The type of the result.
+     * @return The result of the query.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String operation, List<?> arguments, String buyerId, String sellerId, Supplier<T> computation) {
+        if (maxEntries == 0) {
+            return singleFlight.execute(operation, arguments, computation);
+        }
+
+        // The same query on different shards reads different data.
+        CacheKey key = new CacheKey(ShardContext.current(), arguments);
+        long generation = generation(buyerId, sellerId);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.generation() == generation && now - entry.createdNanos() <= maxAgeNanos) {
+                hits.increment();
+                return (T) entry.result();
+            }
+            if (entry != null) {
+                stale.increment();
+            }
+        }
+
+        misses.increment();
+        // Callers of different generations must not share a query, or a caller arriving after a write
+        // would receive the result of a query that started before it.
+        List<Object> flightArguments = new ArrayList<>(arguments);
+        flightArguments.add(generation);
+        T result = singleFlight.execute(operation, flightArguments, computation);
+        if (generation(buyerId, sellerId) != generation) {
+            // A write committed while the query ran; the result may not contain it.
+            return result;
+        }
+        CacheEntry computed = new CacheEntry(generation, now, result);
+        synchronized (entries) {
+            // A slower query started before a write must not replace a result computed after it.
+            CacheEntry current = entries.get(key);
+            if (current == null || current.generation() <= generation) {
+                entries.put(key, computed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates the cached pages of the parties of a written invoice once the current transaction commits.
+     *
+     * @param identificationNumbers The identification numbers of the sellers and buyers of the written invoices.
+     */
+    public void invalidateParties(Collection<String> identificationNumbers) {
+        afterCommit(() -> {
+            for (String identificationNumber : identificationNumbers) {
+                if (identificationNumber != null) {
+                    partyGenerations.incrementAndGet(partyStripe(identificationNumber));
+                }
+            }
+            writeGeneration.incrementAndGet();
+        });
+    }
+
+    /**
+     * Invalidates all cached pages once the current transaction commits.
+     */
+    public void invalidateAll() {
+        afterCommit(() -> {
+            unknownPartyGeneration.incrementAndGet();
+            writeGeneration.incrementAndGet();
+        });
+    }
+
+    /**
+     * Retrieves how often the cached pages were used instead of running the query.
+     *
+     * @return The cache metrics.
+     */
+    public ResultCacheMetricsDTO getMetrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new ResultCacheMetricsDTO(
+                hitCount,
+                missCount,
+                stale.sum(),
+                evictions.sum(),
+                hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount),
+                size,
+                maxEntries);
+    }
+
+    /**
+     * A private helper method that combines the generations the query depends on into one number.
+     * Generations only grow, so the sum changes whenever any of them does.
+     */
+    private long generation(String buyerId, String sellerId) {
+        if (buyerId == null && sellerId == null) {
+            return writeGeneration.get();
+        }
+        return unknownPartyGeneration.get() + partyGeneration(buyerId) + partyGeneration(sellerId);
+    }
+
+    private long partyGeneration(String identificationNumber) {
+        return identificationNumber != null ? partyGenerations.get(partyStripe(identificationNumber)) : 0;
+    }
+
+    private static int partyStripe(String identificationNumber) {
+        int hash = identificationNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (PARTY_STRIPES - 1);
+    }
+
+    private void afterCommit(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    private record CacheKey(Integer shard, List<?> arguments) {
+    }
+
+    private record CacheEntry(long generation, long createdNanos, Object result) {
+    }
+}
@@ -1,8 +1,11 @@
 package cz.itnetwork.service;
 
+import cz.itnetwork.constant.Countries;
 import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonDeltaDTO;
 import cz.itnetwork.dto.PersonFilterDTO;
 import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.dto.TopPersonDTO;
 import cz.itnetwork.entity.PersonLookup;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +28,22 @@ public interface PersonService {
      */
     void removePerson(long id);
 
+    /**
+     * Sets the 'hidden' flag of several persons at once.
+     * @param ids The IDs of the persons to "remove".
+     * @return The number of persons removed; IDs that don't exist or are already removed are skipped.
+     */
+    int removePersons(List<Long> ids);
+
+    /**
+     * Sets the 'hidden' flag of all visible persons matching the filter. At least one filter has to be given.
+     * @param identificationNumber The identification number (IČO) to filter by.
+     * @param name A substring of the name to filter by.
+     * @param country The country to filter by.
+     * @return The number of persons removed.
+     */
+    int removeFilteredPersons(String identificationNumber, String name, Countries country);
+
     /**
      * Fetches a detailed person by their ID.
      * @param personId The ID of the person.
@@ -64,6 +83,13 @@ public interface PersonService {
      */
     List<PersonLookup> getAllPersonsLookup();
 
+    /**
+     * Retrieves the changes of the list of non-hidden persons since the client's last synchronization.
+     * @param since The token returned by the previous synchronization; empty for the first one.
+     * @return The added, changed and removed persons, and the token for the next synchronization.
+     */
+    PersonDeltaDTO getPersonsLookupChanges(String since);
+
     /**
      * Retrieves a single person lookup object by its ID.
      * @param id The ID of the person to retrieve.
@@ -71,9 +97,32 @@ public interface PersonService {
      */
     PersonLookup getPersonLookupById(Long id);
 
+    /**
+     * Retrieves several person lookup objects at once.
+     * @param ids The IDs of the persons to retrieve.
+     * @return The lookup objects in the order of the requested IDs; IDs that don't exist are skipped.
+     */
+    List<PersonLookup> getPersonsLookupByIds(List<Long> ids);
+
     /**
      * Gets a list of all unique persons (buyers and sellers) from invoices.
      * @return A list of DTOs with person IDs and names.
      */
     List<PersonFilterDTO> getInvoiceRelatedPersons();
+
+    /**
+     * Retrieves the persons with the highest total sales or purchases.
+     * @param by The metric to rank by, {@code sales} or {@code purchases}.
+     * @param n The number of persons to return.
+     * @return The top persons, from the highest total down.
+     */
+    List<TopPersonDTO> getTopPersons(String by, int n);
+
+    /**
+     * Finds persons for a typeahead picker by the beginning of their name, a word of their name or IČO.
+     * @param query The typed text; case and diacritics are ignored.
+     * @param limit The maximum number of persons to return.
+     * @return The matching persons as lightweight lookup objects.
+     */
+    List<PersonLookup> searchPersons(String query, int limit);
 }
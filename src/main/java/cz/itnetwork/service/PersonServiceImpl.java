@@ -1,25 +1,51 @@
 package cz.itnetwork.service;
 
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.constant.RankingMetric;
 import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.PersonDeltaDTO;
 import cz.itnetwork.dto.PersonFilterDTO;
 import cz.itnetwork.dto.PersonStatisticsDTO;
+import cz.itnetwork.dto.TopPersonDTO;
 import cz.itnetwork.dto.mapper.PersonMapper;
 import cz.itnetwork.entity.InvoiceEntity;
+import cz.itnetwork.entity.OutboxEventEntity;
 import cz.itnetwork.entity.PersonEntity;
 import cz.itnetwork.entity.PersonLookup;
 import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.OutboxEventRepository;
 import cz.itnetwork.entity.repository.PersonRepository;
+import cz.itnetwork.service.event.DomainEventBus;
+import cz.itnetwork.service.rollup.PersonLeaderboard;
+import cz.itnetwork.service.search.PersonSearchIndex;
+import cz.itnetwork.service.shard.PageMerger;
+import cz.itnetwork.service.shard.ShardOperations;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 import org.webjars.NotFoundException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -30,14 +56,59 @@ import java.util.stream.Stream;
 @Service
 public class PersonServiceImpl implements PersonService {
 
+    /**
+     * The maximum number of persons that can be retrieved in one batch lookup.
+     */
+    public static final int MAX_BATCH_LOOKUP_SIZE = 1000;
+
+    /**
+     * The maximum number of persons that can be retrieved from the leaderboard.
+     */
+    public static final int MAX_TOP_PERSONS = 100;
+
+    /**
+     * The maximum number of persons returned by a typeahead search.
+     */
+    public static final int MAX_SEARCH_RESULTS = 50;
+
+    /**
+     * The maximum number of person changes sent as a delta; a client that missed more gets the whole list.
+     */
+    public static final int MAX_DELTA_CHANGES = 1000;
+
     private final PersonMapper personMapper;
     private final PersonRepository personRepository;
     private final InvoiceRepository invoiceRepository;
+    private final DomainEventBus domainEventBus;
+    private final PersonLeaderboard personLeaderboard;
+    private final PersonSearchIndex personSearchIndex;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ShardOperations shardOperations;
+    private final Duration syncGrace;
+    private final Duration maxSyncTokenAge;
+    private final TransactionTemplate chunkTransaction;
+    private final int bulkChunkSize;
 
-    public PersonServiceImpl(PersonMapper personMapper, PersonRepository personRepository, InvoiceRepository invoiceRepository) {
+    public PersonServiceImpl(PersonMapper personMapper, PersonRepository personRepository, InvoiceRepository invoiceRepository,
+                             DomainEventBus domainEventBus, PersonLeaderboard personLeaderboard, PersonSearchIndex personSearchIndex,
+                             OutboxEventRepository outboxEventRepository, ShardOperations shardOperations,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${invoicing.persons.sync-grace-seconds:60}") long syncGraceSeconds,
+                             @Value("${invoicing.events.outbox-retention-days:7}") int outboxRetentionDays,
+                             @Value("${invoicing.bulk.chunk-size:1000}") int bulkChunkSize) {
         this.personMapper = personMapper;
         this.personRepository = personRepository;
         this.invoiceRepository = invoiceRepository;
+        this.domainEventBus = domainEventBus;
+        this.personLeaderboard = personLeaderboard;
+        this.personSearchIndex = personSearchIndex;
+        this.outboxEventRepository = outboxEventRepository;
+        this.shardOperations = shardOperations;
+        this.syncGrace = Duration.ofSeconds(syncGraceSeconds);
+        // Events older than the outbox retention are purged, so older tokens can't be served from the log.
+        this.maxSyncTokenAge = Duration.ofDays(outboxRetentionDays).minus(syncGrace);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.bulkChunkSize = bulkChunkSize;
     }
 
     /**
@@ -50,24 +121,93 @@ public class PersonServiceImpl implements PersonService {
     public PersonDTO addPerson(PersonDTO personDTO) {
         PersonEntity entity = personMapper.toEntity(personDTO);
         entity = personRepository.save(entity);
+        domainEventBus.publish(AggregateType.PERSON, ChangeAction.CREATED, entity.getId(), null);
         return personMapper.toDTO(entity);
     }
 
     /**
-     * "Removes" a person by setting their hidden flag to true.
+     * "Removes" a person by setting their hidden flag to true with a single conditional update, without loading the person.
      * @param id The ID of the person to remove.
      */
     @Override
+    @Transactional
     public void removePerson(long id) {
-        try {
-            PersonEntity person = fetchPersonById(id);
-            person.setHidden(true);
-            personRepository.save(person);
-        } catch (NotFoundException ignored) {
-            // The contract in the interface states, that no exception is thrown, if the entity is not found.
+        // The contract in the interface states, that no exception is thrown, if the entity is not found.
+        if (personRepository.hideIfCurrent(id, null) == 1) {
+            domainEventBus.publish(AggregateType.PERSON, ChangeAction.REMOVED, id, null);
         }
     }
 
+    /**
+     * "Removes" the persons in chunks, each chunk by one {@code UPDATE} in its own transaction.
+     * @param ids The IDs of the persons to remove.
+     * @return The number of persons removed.
+     */
+    @Override
+    public int removePersons(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        int removed = 0;
+        for (int from = 0; from < distinctIds.size(); from += bulkChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + bulkChunkSize, distinctIds.size()));
+            removed += chunkTransaction.execute(status -> hideVisiblePersons(chunk));
+        }
+        return removed;
+    }
+
+    /**
+     * "Removes" all visible persons matching the filter. The IDs are read in keyset chunks and every chunk
+     * is hidden by one {@code UPDATE} in its own transaction.
+     * @param identificationNumber The identification number (IČO) to filter by.
+     * @param name A substring of the name to filter by.
+     * @param country The country to filter by.
+     * @return The number of persons removed.
+     * @throws ResponseStatusException if no filter is given.
+     */
+    @Override
+    public int removeFilteredPersons(String identificationNumber, String name, Countries country) {
+        String identificationNumberFilter = blankToNull(identificationNumber);
+        String nameFilter = blankToNull(name);
+        if (identificationNumberFilter == null && nameFilter == null && country == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pro hromadné odstranění osob je nutné zadat alespoň jeden filtr.");
+        }
+        int removed = 0;
+        long afterId = 0;
+        List<Long> chunk;
+        do {
+            chunk = personRepository.findVisibleIdsAfter(afterId, identificationNumberFilter, nameFilter, country,
+                    PageRequest.ofSize(bulkChunkSize));
+            if (!chunk.isEmpty()) {
+                List<Long> visibleIds = chunk;
+                removed += chunkTransaction.execute(status -> hidePersons(visibleIds));
+                afterId = chunk.get(chunk.size() - 1);
+            }
+        } while (chunk.size() == bulkChunkSize);
+        return removed;
+    }
+
+    private int hideVisiblePersons(Collection<Long> ids) {
+        return hidePersons(personRepository.findVisibleIds(ids));
+    }
+
+    /**
+     * Hides the visible persons with one statement and notifies the projections, so the search index,
+     * the change feed and the replicas on other shards drop them.
+     * @param visibleIds The IDs of persons that were visible when they were read.
+     * @return The number of persons hidden.
+     */
+    private int hidePersons(List<Long> visibleIds) {
+        if (visibleIds.isEmpty()) {
+            return 0;
+        }
+        int hidden = personRepository.hideAll(visibleIds);
+        domainEventBus.publishAll(AggregateType.PERSON, ChangeAction.REMOVED, visibleIds);
+        return hidden;
+    }
+
+    private String blankToNull(String value) {
+        return (value == null || value.trim().isEmpty()) ? null : value.trim();
+    }
+
     /**
      * Fetches a person entity from the database by their ID,
      * throwing a {@link NotFoundException} if not found.
@@ -95,7 +235,8 @@ public class PersonServiceImpl implements PersonService {
      * @param personId The ID of the person to edit.
      * @param personDTO The DTO with the updated person data.
      * @return The DTO of the newly created person entity.
-     * @throws ResponseStatusException if the identification number is attempted to be changed.
+     * @throws ResponseStatusException if the identification number is attempted to be changed,
+     *                                  or with status 409 if the person was already edited or removed by someone else.
      */
     @Override
     @Transactional
@@ -109,14 +250,16 @@ public class PersonServiceImpl implements PersonService {
         }
 
         // The rest of the logic to preserve history:
-        // 1. Hide the original entity
-        originalPerson.setHidden(true);
-        personRepository.save(originalPerson);
+        // 1. Hide the original entity, unless a concurrent edit has already done so
+        if (personRepository.hideIfCurrent(personId, personDTO.getVersion()) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Osoba s ID " + personId + " byla mezitím změněna nebo odstraněna.");
+        }
 
         // 2. Create and save a new entity with the new data, but with the same IČO
         PersonEntity newPerson = personMapper.toEntity(personDTO);
         newPerson.setId(null); // Ensure a new record is created
         newPerson = personRepository.save(newPerson);
+        domainEventBus.publish(AggregateType.PERSON, ChangeAction.UPDATED, newPerson.getId(), personId);
 
         // 3. Return the DTO of the new entity
         return personMapper.toDTO(newPerson);
@@ -129,7 +272,18 @@ public class PersonServiceImpl implements PersonService {
      */
     @Override
     public Page<PersonStatisticsDTO> getPersonStatistics(Pageable pageable) {
-        return personRepository.getPersonRevenueStatistics(pageable);
+        if (shardOperations.getShardCount() == 1) {
+            return personRepository.getPersonRevenueStatistics(pageable);
+        }
+        // Every shard holds all persons but only some of their invoices, so the revenues are summed per person.
+        Map<Long, PersonStatisticsDTO> statistics = new TreeMap<>();
+        for (Page<PersonStatisticsDTO> shard : shardOperations.onAllShards(() -> personRepository.getPersonRevenueStatistics(Pageable.unpaged()))) {
+            for (PersonStatisticsDTO person : shard) {
+                statistics.merge(person.getPersonId(), person, (a, b) ->
+                        new PersonStatisticsDTO(a.getPersonId(), a.getPersonName(), a.getRevenue().add(b.getRevenue())));
+            }
+        }
+        return PageMerger.page(pageable, new ArrayList<>(statistics.values()), PersonStatisticsDTO.class);
     }
 
     /**
@@ -153,6 +307,55 @@ public class PersonServiceImpl implements PersonService {
         return personRepository.findAllByHiddenFalse();
     }
 
+    /**
+     * Retrieves the changes of the list of non-hidden persons since the given token, based on the person
+     * events in the outbox. The persons touched by those events are reloaded, so the delta always reflects
+     * their current state no matter how many times they changed. The events are re-read with a short
+     * overlap, because an event may commit after an event with a higher ID; the client therefore may
+     * receive a change twice, which is harmless since it applies them by ID.
+     * A missing, malformed or expired token, or too many changes, result in the whole list.
+     * @param since The token returned by the previous synchronization.
+     * @return The delta and the token for the next synchronization.
+     */
+    @Override
+    public PersonDeltaDTO getPersonsLookupChanges(String since) {
+        Instant now = Instant.now();
+        SyncToken token = SyncToken.parse(since);
+        // The log position is read before the data, so anything changed in between is sent again next time.
+        SyncToken nextToken = new SyncToken(outboxEventRepository.findMaxId(), now.toEpochMilli());
+
+        if (token == null
+                || token.issuedAt() > now.toEpochMilli()
+                || Instant.ofEpochMilli(token.issuedAt()).isBefore(now.minus(maxSyncTokenAge))) {
+            return fullPersonsResync(nextToken);
+        }
+
+        List<OutboxEventEntity> events = outboxEventRepository.findChangesSince(AggregateType.PERSON, token.sequence(),
+                Instant.ofEpochMilli(token.issuedAt()).minus(syncGrace), PageRequest.ofSize(MAX_DELTA_CHANGES + 1));
+        if (events.size() > MAX_DELTA_CHANGES) {
+            return fullPersonsResync(nextToken);
+        }
+
+        Set<Long> affectedIds = new LinkedHashSet<>();
+        for (OutboxEventEntity event : events) {
+            if (event.getPreviousId() != null) {
+                affectedIds.add(event.getPreviousId());
+            }
+            affectedIds.add(event.getAggregateId());
+        }
+        if (affectedIds.isEmpty()) {
+            return new PersonDeltaDTO(nextToken.toString(), false, List.of(), List.of());
+        }
+
+        List<PersonLookup> upserted = personRepository.findLookupByIdInAndHiddenFalse(affectedIds);
+        upserted.forEach(person -> affectedIds.remove(person.getId()));
+        return new PersonDeltaDTO(nextToken.toString(), false, upserted, new ArrayList<>(affectedIds));
+    }
+
+    private PersonDeltaDTO fullPersonsResync(SyncToken nextToken) {
+        return new PersonDeltaDTO(nextToken.toString(), true, personRepository.findAllByHiddenFalse(), List.of());
+    }
+
     /**
      * Retrieves a single {@link PersonLookup} object by its ID.
      * @param id The ID of the person to retrieve.
@@ -160,26 +363,92 @@ public class PersonServiceImpl implements PersonService {
      */
     @Override
     public PersonLookup getPersonLookupById(Long id) {
-        return personRepository.findById(id)
-                .map(person -> new PersonLookup() {
-                    @Override
-                    public Long getId() {
-                        return person.getId();
-                    }
-
-                    @Override
-                    public String getName() {
-                        return person.getName();
-                    }
-
-                    @Override
-                    public String getIdentificationNumber() {
-                        return person.getIdentificationNumber();
-                    }
-                })
+        return personRepository.findLookupById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Osoba s ID " + id + " nebyla nalezena."));
     }
 
+    /**
+     * Retrieves several {@link PersonLookup} objects with a single projection query.
+     * @param ids The IDs of the persons to retrieve.
+     * @return The {@link PersonLookup} objects in the order of the requested IDs.
+     * @throws ResponseStatusException if more than {@link #MAX_BATCH_LOOKUP_SIZE} IDs are requested.
+     */
+    @Override
+    public List<PersonLookup> getPersonsLookupByIds(List<Long> ids) {
+        if (ids.size() > MAX_BATCH_LOOKUP_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Najednou lze načíst nejvýše " + MAX_BATCH_LOOKUP_SIZE + " osob.");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, PersonLookup> lookupsById = personRepository.findLookupByIdIn(new HashSet<>(ids)).stream()
+                .collect(Collectors.toMap(PersonLookup::getId, Function.identity()));
+        return ids.stream()
+                .map(lookupsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Retrieves the persons with the highest total sales or purchases from the in-memory leaderboard.
+     * Only the names of the returned persons are loaded, with a single query. Parties whose person
+     * was removed are skipped and the next ones on the leaderboard take their place.
+     * @param by The metric to rank by, {@code sales} or {@code purchases} (case-insensitive).
+     * @param n The number of persons to return, at most {@link #MAX_TOP_PERSONS}.
+     * @return The top persons, from the highest total down.
+     * @throws ResponseStatusException if the metric is unknown or {@code n} is out of range.
+     */
+    @Override
+    public List<TopPersonDTO> getTopPersons(String by, int n) {
+        RankingMetric metric;
+        try {
+            metric = RankingMetric.valueOf(by.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Neznámé kritérium žebříčku: " + by + ".");
+        }
+        if (n < 1 || n > MAX_TOP_PERSONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Počet osob v žebříčku musí být mezi 1 a " + MAX_TOP_PERSONS + ".");
+        }
+
+        List<TopPersonDTO> result = new ArrayList<>(n);
+        int offset = 0;
+        while (result.size() < n) {
+            List<PersonLeaderboard.PartyTotal> totals = personLeaderboard.getRanking(metric, offset, n - result.size());
+            if (totals.isEmpty()) {
+                break;
+            }
+            offset += totals.size();
+
+            Map<String, PersonLookup> persons = personRepository.findLookupByIdentificationNumberInAndHiddenFalse(
+                            totals.stream().map(PersonLeaderboard.PartyTotal::identificationNumber).toList()).stream()
+                    .collect(Collectors.toMap(PersonLookup::getIdentificationNumber, Function.identity(),
+                            (first, second) -> first.getId() > second.getId() ? first : second));
+            for (PersonLeaderboard.PartyTotal total : totals) {
+                PersonLookup person = persons.get(total.identificationNumber());
+                if (person != null) {
+                    result.add(new TopPersonDTO(result.size() + 1, person.getId(), person.getName(),
+                            total.identificationNumber(), total.total(), total.invoiceCount()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds persons for a typeahead picker in the in-memory search index, without querying the database.
+     * @param query The typed text; case and diacritics are ignored.
+     * @param limit The maximum number of persons to return, at most {@link #MAX_SEARCH_RESULTS}.
+     * @return The matching persons, whole-name and IČO matches first.
+     * @throws ResponseStatusException if the limit is out of range.
+     */
+    @Override
+    public List<PersonLookup> searchPersons(String query, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Počet výsledků hledání musí být mezi 1 a " + MAX_SEARCH_RESULTS + ".");
+        }
+        return personSearchIndex.search(query, limit);
+    }
+
     /**
      * Retrieves a unique list of persons who are either buyers or sellers on an invoice.
      * This is used for filtering invoices.
@@ -187,10 +456,17 @@ public class PersonServiceImpl implements PersonService {
      */
     @Override
     public List<PersonFilterDTO> getInvoiceRelatedPersons() {
-        return invoiceRepository.findAll().stream()
-                .flatMap(invoice -> Stream.of(invoice.getBuyer(), invoice.getSeller()))
-                .filter(person -> person != null && person.getIdentificationNumber() != null)
-                .map(person -> new PersonFilterDTO(person.getIdentificationNumber(), person.getName()))
+        if (shardOperations.getShardCount() == 1) {
+            return findInvoiceRelatedPersons();
+        }
+        return shardOperations.onAllShards(this::findInvoiceRelatedPersons).stream()
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private List<PersonFilterDTO> findInvoiceRelatedPersons() {
+        return Stream.concat(invoiceRepository.findBuyerFilters().stream(), invoiceRepository.findSellerFilters().stream())
                 .distinct()
                 .collect(Collectors.toList());
     }
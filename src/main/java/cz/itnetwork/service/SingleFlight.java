@@ -0,0 +1,123 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.dto.CoalescingMetricsDTO;
+import cz.itnetwork.service.shard.ShardContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent read operations into a single computation.
+ * <p>
+ * The first caller of an operation with a given key runs the computation; callers arriving with
+ * the same key while it is still running wait for it and receive the same result, or the same exception.
+ * Nothing is cached: once the computation finishes, the next call runs it again. A caller that joins
+ * a running computation, however, receives a result read when that computation started, i.e. possibly
+ * before the caller arrived and before writes that committed in the meantime. Callers that must see such
+ * writes have to include something that changes with them in the arguments, as {@link InvoiceSummaryCache}
+ * does with its generations.
+ * </p>
+ * <p>
+ * Results are shared between callers and therefore must not be modified by them.
+ * </p>
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the computation, or joins an identical one that is already running.
+     *
+     * @param operation The name of the operation, usually the service method.
+     * @param arguments The normalized arguments of the call; calls with equal arguments are coalesced.
+     * @param computation The computation to run.
+     * @param <T> The type of the result.
+     * @return The result of the computation.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, List<?> arguments, Supplier<T> computation) {
+        Counters operationCounters = counters.computeIfAbsent(operation, key -> new Counters());
+        operationCounters.calls.incrementAndGet();
+
+        // The same query on different shards reads different data.
+        FlightKey key = new FlightKey(operation, ShardContext.current(), arguments);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            operationCounters.coalesced.incrementAndGet();
+            return (T) await(running);
+        }
+
+        operationCounters.executions.incrementAndGet();
+        try {
+            T result = computation.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Retrieves how many calls of each operation were coalesced into another call's computation.
+     *
+     * @return The metrics, one item per operation.
+     */
+    public List<CoalescingMetricsDTO> getMetrics() {
+        return counters.entrySet().stream()
+                .map(entry -> entry.getValue().toMetrics(entry.getKey(), countInFlight(entry.getKey())))
+                .toList();
+    }
+
+    private int countInFlight(String operation) {
+        return (int) inFlight.keySet().stream().filter(key -> key.operation().equals(operation)).count();
+    }
+
+    private Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // Rethrow the original exception, so that followers fail exactly like the caller that ran the computation.
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record FlightKey(String operation, Integer shard, List<?> arguments) {
+    }
+
+    private static final class Counters {
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+
+        private CoalescingMetricsDTO toMetrics(String operation, int inFlight) {
+            long callCount = calls.get();
+            long coalescedCount = coalesced.get();
+            return new CoalescingMetricsDTO(
+                    operation,
+                    callCount,
+                    executions.get(),
+                    coalescedCount,
+                    callCount == 0 ? 0 : (double) coalescedCount / callCount,
+                    inFlight);
+        }
+    }
+}
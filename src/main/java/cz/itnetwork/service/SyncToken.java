@@ -0,0 +1,41 @@
+package cz.itnetwork.service;
+
+/**
+ * A position in the change log handed to clients that synchronize a list incrementally.
+ * It is serialized as {@code <sequence>-<issuedAt>}, both in base 36, and is opaque to clients.
+ *
+ * @param sequence The ID of the last outbox event the client has seen.
+ * @param issuedAt The time the token was issued, in epoch milliseconds.
+ */
+record SyncToken(long sequence, long issuedAt) {
+
+    private static final int RADIX = 36;
+
+    /**
+     * Parses a token sent by a client.
+     *
+     * @param token The serialized token.
+     * @return The token, or {@code null} if it is missing or malformed.
+     */
+    static SyncToken parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        int separator = token.indexOf('-');
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return new SyncToken(
+                    Long.parseLong(token.substring(0, separator), RADIX),
+                    Long.parseLong(token.substring(separator + 1), RADIX));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sequence, RADIX) + "-" + Long.toString(issuedAt, RADIX);
+    }
+}
@@ -0,0 +1,27 @@
+package cz.itnetwork.service.event;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+
+import java.time.Instant;
+
+/**
+ * An immutable description of a committed change of an invoice or a person,
+ * delivered to the registered {@link DomainEventProjection}s.
+ *
+ * @param sequence The ID of the event in the outbox.
+ * @param type The type of the changed object.
+ * @param action The kind of change.
+ * @param id The ID of the created, updated (new version) or removed object.
+ * @param previousId For {@link ChangeAction#UPDATED}, the ID of the replaced version; otherwise {@code null}.
+ * @param occurredAt The time the event was recorded.
+ */
+public record DomainEvent(
+        long sequence,
+        AggregateType type,
+        ChangeAction action,
+        Long id,
+        Long previousId,
+        Instant occurredAt
+) {
+}
@@ -0,0 +1,40 @@
+package cz.itnetwork.service.event;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.dto.EventBusMetricsDTO;
+
+import java.util.Collection;
+
+/**
+ * The in-process pipeline delivering domain events from the write services to the projections.
+ */
+public interface DomainEventBus {
+
+    /**
+     * Records a change in the outbox and publishes it to the projections once the current transaction commits.
+     *
+     * @param type The type of the changed object.
+     * @param action The kind of change.
+     * @param id The ID of the created, updated (new version) or removed object.
+     * @param previousId For an update, the ID of the replaced version; otherwise {@code null}.
+     */
+    void publish(AggregateType type, ChangeAction action, Long id, Long previousId);
+
+    /**
+     * Records the same change of several objects, such as a bulk removal, and publishes it to the projections
+     * once the current transaction commits.
+     *
+     * @param type The type of the changed objects.
+     * @param action The kind of change.
+     * @param ids The IDs of the changed objects.
+     */
+    void publishAll(AggregateType type, ChangeAction action, Collection<Long> ids);
+
+    /**
+     * Retrieves the throughput and lag of the pipeline and each of its consumers.
+     *
+     * @return The current metrics.
+     */
+    EventBusMetricsDTO getMetrics();
+}
@@ -0,0 +1,443 @@
+package cz.itnetwork.service.event;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.dto.ConsumerMetricsDTO;
+import cz.itnetwork.dto.EventBusMetricsDTO;
+import cz.itnetwork.entity.OutboxEventEntity;
+import cz.itnetwork.entity.repository.OutboxEventRepository;
+import cz.itnetwork.service.shard.ShardOperations;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementation of the domain event pipeline.
+ * <p>
+ * Each published event is first stored in the outbox within the caller's transaction. After the commit
+ * it is put into a pre-allocated {@link DomainEventRingBuffer}, from which every projection is fed
+ * in batches by its own thread. A final consumer, which runs behind all projections, marks the delivered
+ * events as processed in the outbox. Events left unprocessed by a crash are replayed on the next startup,
+ * and events that couldn't be put into a full buffer are redelivered by a periodic poll of the outbox,
+ * which gives the projections at-least-once delivery.
+ * </p>
+ * <p>
+ * A batch that a projection keeps failing to process is retried only a limited number of times, so that
+ * one event the projection can't handle doesn't stop the ring and, with it, the publishing transactions.
+ * The events of the batch are then delivered one by one and those that still fail are skipped and logged.
+ * </p>
+ * <p>
+ * With a sharded database the events are stored in the outbox of the shard written by the transaction;
+ * their IDs come from the shard's ID range, so they stay unique and are marked processed on the right shard.
+ * </p>
+ */
+@Service
+public class DomainEventBusImpl implements DomainEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(DomainEventBusImpl.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ShardOperations shardOperations;
+    private final DomainEventRingBuffer ringBuffer;
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final Consumer outboxCompletion;
+    private final long publishTimeoutNanos;
+    private final int maxBatchSize;
+    private final int maxDeliveryAttempts;
+    private final Duration outboxRetention;
+    private final Duration outboxPollInterval;
+    private final int maxRedeliveredEvents;
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong redeliveredEvents = new AtomicLong();
+    private volatile boolean running;
+
+    public DomainEventBusImpl(OutboxEventRepository outboxEventRepository,
+                              ShardOperations shardOperations,
+                              List<DomainEventProjection> projections,
+                              @Value("${invoicing.events.buffer-size:8192}") int bufferSize,
+                              @Value("${invoicing.events.max-batch-size:256}") int maxBatchSize,
+                              @Value("${invoicing.events.publish-timeout:1000}") long publishTimeoutMillis,
+                              @Value("${invoicing.events.max-delivery-attempts:10}") int maxDeliveryAttempts,
+                              @Value("${invoicing.events.outbox-retention-days:7}") int outboxRetentionDays,
+                              @Value("${invoicing.events.outbox-poll-interval:30000}") long outboxPollIntervalMillis) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.shardOperations = shardOperations;
+        this.ringBuffer = new DomainEventRingBuffer(bufferSize);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDeliveryAttempts = Math.max(1, maxDeliveryAttempts);
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMillis);
+        this.outboxRetention = Duration.ofDays(outboxRetentionDays);
+        this.outboxPollInterval = Duration.ofMillis(outboxPollIntervalMillis);
+        // A poll never redelivers more than half of the buffer, so it can't fill it for the publishing transactions.
+        this.maxRedeliveredEvents = Math.max(1, bufferSize / 2);
+
+        for (DomainEventProjection projection : projections) {
+            consumers.add(new Consumer(projection, List.of()));
+        }
+        List<AtomicLong> projectionSequences = consumers.stream().map(consumer -> consumer.sequence).toList();
+        outboxCompletion = new Consumer(new OutboxCompletion(), projectionSequences);
+        consumers.add(outboxCompletion);
+        consumers.forEach(consumer -> ringBuffer.addGatingSequence(consumer.sequence));
+    }
+
+    /**
+     * Stores the event in the outbox and schedules its publication after the current transaction commits.
+     */
+    @Override
+    public void publish(AggregateType type, ChangeAction action, Long id, Long previousId) {
+        OutboxEventEntity outboxEvent = outboxEventRepository.save(newOutboxEvent(type, action, id, previousId, Instant.now()));
+        enqueueAfterCommit(List.of(toDomainEvent(outboxEvent)));
+    }
+
+    /**
+     * Stores the events in the outbox and schedules their publication after the current transaction commits,
+     * all with a single transaction synchronization.
+     */
+    @Override
+    public void publishAll(AggregateType type, ChangeAction action, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Instant occurredAt = Instant.now();
+        List<OutboxEventEntity> outboxEvents = ids.stream()
+                .map(id -> newOutboxEvent(type, action, id, null, occurredAt))
+                .toList();
+        enqueueAfterCommit(outboxEventRepository.saveAll(outboxEvents).stream().map(this::toDomainEvent).toList());
+    }
+
+    private OutboxEventEntity newOutboxEvent(AggregateType type, ChangeAction action, Long id, Long previousId, Instant occurredAt) {
+        OutboxEventEntity outboxEvent = new OutboxEventEntity();
+        outboxEvent.setAggregateType(type);
+        outboxEvent.setAction(action);
+        outboxEvent.setAggregateId(id);
+        outboxEvent.setPreviousId(previousId);
+        outboxEvent.setOccurredAt(occurredAt);
+        return outboxEvent;
+    }
+
+    private void enqueueAfterCommit(List<DomainEvent> events) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(events);
+                }
+            });
+        } else {
+            enqueue(events);
+        }
+    }
+
+    /**
+     * Initializes the projections, starts their consumer threads and replays events
+     * that were committed but not processed before the last shutdown.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (Consumer consumer : consumers) {
+            consumer.projection.initialize();
+        }
+        running = true;
+        for (Consumer consumer : consumers) {
+            Thread thread = new Thread(consumer, "domain-events-" + consumer.projection.getProjectionName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        List<OutboxEventEntity> unprocessed = inRecordedOrder(
+                shardOperations.onAllShards(outboxEventRepository::findByProcessedFalseOrderById));
+        if (!unprocessed.isEmpty()) {
+            log.info("Replaying {} unprocessed domain events from the outbox.", unprocessed.size());
+            // Nothing waits for the replay, so each event may wait for a free slot as long as a whole batch.
+            unprocessed.forEach(outboxEvent -> enqueue(List.of(toDomainEvent(outboxEvent))));
+        }
+    }
+
+    /**
+     * Redelivers events that are still unprocessed in the outbox although they are no longer in the ring buffer,
+     * i.e. events that were dropped because the buffer was full, or that the outbox completion had to skip.
+     * Only events older than the poll interval are considered, so events whose transaction has just committed
+     * aren't delivered twice. An event can still occasionally be delivered twice, which at-least-once delivery allows.
+     */
+    @Scheduled(fixedDelayString = "${invoicing.events.outbox-poll-interval:30000}",
+            initialDelayString = "${invoicing.events.outbox-poll-interval:30000}")
+    public void redeliverUnprocessed() {
+        if (!running) {
+            return;
+        }
+        // Read before the outbox, so that events completed meanwhile are still found in the buffer.
+        long completed = outboxCompletion.sequence.get();
+        Instant threshold = Instant.now().minus(outboxPollInterval);
+        PageRequest limit = PageRequest.of(0, maxRedeliveredEvents);
+        List<OutboxEventEntity> unprocessed = inRecordedOrder(shardOperations.onAllShards(() ->
+                outboxEventRepository.findByProcessedFalseAndOccurredAtBeforeOrderById(threshold, limit)));
+        if (unprocessed.isEmpty()) {
+            return;
+        }
+
+        Set<Long> inFlight = new HashSet<>();
+        ringBuffer.publishedAfter(completed).forEach(event -> inFlight.add(event.sequence()));
+        List<DomainEvent> missing = unprocessed.stream()
+                .filter(outboxEvent -> !inFlight.contains(outboxEvent.getId()))
+                .limit(maxRedeliveredEvents)
+                .map(this::toDomainEvent)
+                .toList();
+        if (!missing.isEmpty()) {
+            log.info("Redelivering {} unprocessed domain events from the outbox.", missing.size());
+            redeliveredEvents.addAndGet(missing.size());
+            enqueue(missing);
+        }
+    }
+
+    /**
+     * Joins the events read from the individual shards. Each shard numbers its events separately,
+     * so events of different shards are ordered by time.
+     */
+    private List<OutboxEventEntity> inRecordedOrder(List<List<OutboxEventEntity>> shardEvents) {
+        List<OutboxEventEntity> events = new ArrayList<>();
+        shardEvents.forEach(events::addAll);
+        if (shardEvents.size() > 1) {
+            events.sort(Comparator.comparing(OutboxEventEntity::getOccurredAt).thenComparing(OutboxEventEntity::getId));
+        }
+        return events;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Deletes processed events that are older than the configured retention.
+     */
+    @Scheduled(cron = "${invoicing.events.outbox-purge-cron:0 0 3 * * *}")
+    public void purgeOutbox() {
+        Instant threshold = Instant.now().minus(outboxRetention);
+        int deleted = shardOperations.onAllShards(() -> outboxEventRepository.deleteProcessedBefore(threshold)).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        log.debug("Purged {} processed domain events from the outbox.", deleted);
+    }
+
+    @Override
+    public EventBusMetricsDTO getMetrics() {
+        long cursor = ringBuffer.getCursor();
+        List<ConsumerMetricsDTO> consumerMetrics = consumers.stream()
+                .map(consumer -> consumer.toMetrics(cursor))
+                .toList();
+        return new EventBusMetricsDTO(
+                publishedEvents.get(),
+                droppedEvents.get(),
+                redeliveredEvents.get(),
+                cursor,
+                shardOperations.onAllShards(outboxEventRepository::countByProcessedFalse).stream().mapToLong(Long::longValue).sum(),
+                consumerMetrics);
+    }
+
+    /**
+     * Puts the events into the ring buffer, waiting for free space at most for the publish timeout in total,
+     * so that a full buffer delays the committing thread only once per transaction. When the buffer stays full,
+     * the remaining events are dropped together, which keeps the events of the batch in order; they stay
+     * unprocessed in the outbox and are redelivered by the next outbox poll.
+     */
+    private void enqueue(List<DomainEvent> events) {
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        int published = 0;
+        while (published < events.size() && ringBuffer.tryPublish(events.get(published), deadline)) {
+            published++;
+        }
+        publishedEvents.addAndGet(published);
+        if (published < events.size()) {
+            int dropped = events.size() - published;
+            droppedEvents.addAndGet(dropped);
+            log.warn("Domain event buffer is full, {} events starting with {} will be redelivered from the outbox.",
+                    dropped, events.get(published).sequence());
+        }
+    }
+
+    private DomainEvent toDomainEvent(OutboxEventEntity outboxEvent) {
+        return new DomainEvent(
+                outboxEvent.getId(),
+                outboxEvent.getAggregateType(),
+                outboxEvent.getAction(),
+                outboxEvent.getAggregateId(),
+                outboxEvent.getPreviousId(),
+                outboxEvent.getOccurredAt());
+    }
+
+    /**
+     * The last consumer of the pipeline, which marks events delivered to all projections as processed.
+     * Events it has to skip stay unprocessed and are redelivered by the next outbox poll.
+     */
+    private class OutboxCompletion implements DomainEventProjection {
+
+        @Override
+        public String getProjectionName() {
+            return "OutboxCompletion";
+        }
+
+        @Override
+        public void onEvents(List<DomainEvent> events) {
+            List<Long> ids = events.stream().map(DomainEvent::sequence).toList();
+            shardOperations.groupByShard(ids).forEach((shard, shardIds) ->
+                    shardOperations.onShard(shard, () -> outboxEventRepository.markProcessed(shardIds)));
+        }
+    }
+
+    /**
+     * A thread feeding one projection from the ring buffer in batches.
+     * Failed batches are retried with an increasing pause up to the maximum number of attempts;
+     * only the events that then fail on their own are skipped.
+     */
+    private class Consumer implements Runnable {
+
+        private static final long INITIAL_RETRY_PAUSE_MILLIS = 100;
+        private static final long MAX_RETRY_PAUSE_MILLIS = 30_000;
+
+        private final DomainEventProjection projection;
+        private final List<AtomicLong> dependencies;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final AtomicLong deliveredEvents = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong skippedEvents = new AtomicLong();
+        private final long startedAt = System.nanoTime();
+
+        private Consumer(DomainEventProjection projection, List<AtomicLong> dependencies) {
+            this.projection = projection;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public void run() {
+            int idleRounds = 0;
+            while (running) {
+                long next = sequence.get() + 1;
+                long available = ringBuffer.highestPublished(next, Math.min(next + maxBatchSize - 1, dependencyLimit()));
+                if (available < next) {
+                    idle(idleRounds);
+                    idleRounds = Math.min(idleRounds + 1, 300);
+                    continue;
+                }
+                idleRounds = 0;
+
+                List<DomainEvent> batch = new ArrayList<>((int) (available - next + 1));
+                for (long s = next; s <= available; s++) {
+                    batch.add(ringBuffer.get(s));
+                }
+                deliver(batch);
+                sequence.set(available);
+            }
+        }
+
+        private void deliver(List<DomainEvent> batch) {
+            long pause = INITIAL_RETRY_PAUSE_MILLIS;
+            RuntimeException batchFailure = null;
+            for (int attempt = 1; running; attempt++) {
+                batchFailure = tryDeliver(batch);
+                if (batchFailure == null) {
+                    return;
+                }
+                if (attempt >= maxDeliveryAttempts) {
+                    break;
+                }
+                log.error("Projection {} failed to process {} events, retrying in {} ms.",
+                        projection.getProjectionName(), batch.size(), pause, batchFailure);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pause));
+                pause = Math.min(pause * 2, MAX_RETRY_PAUSE_MILLIS);
+            }
+
+            // The batch most likely contains an event the projection can't process;
+            // isolate it so that the other events of the batch are still delivered.
+            for (DomainEvent event : batch) {
+                if (!running) {
+                    return;
+                }
+                RuntimeException failure = batch.size() > 1 ? tryDeliver(List.of(event)) : batchFailure;
+                if (failure != null) {
+                    skippedEvents.incrementAndGet();
+                    log.error("Projection {} skipped event {} ({} {} of {}) after {} failed attempts.",
+                            projection.getProjectionName(), event.sequence(), event.action(), event.type(),
+                            event.id(), maxDeliveryAttempts, failure);
+                }
+            }
+        }
+
+        /**
+         * Delivers the events once.
+         *
+         * @return The failure of the projection, or {@code null} if the events were delivered.
+         */
+        private RuntimeException tryDeliver(List<DomainEvent> events) {
+            try {
+                projection.onEvents(events);
+                deliveredEvents.addAndGet(events.size());
+                batches.incrementAndGet();
+                return null;
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                return e;
+            }
+        }
+
+        private long dependencyLimit() {
+            long limit = Long.MAX_VALUE;
+            for (AtomicLong dependency : dependencies) {
+                limit = Math.min(limit, dependency.get());
+            }
+            return limit;
+        }
+
+        /**
+         * Waits for new events: spins briefly for low latency, then backs off to parking
+         * so that idle consumers don't burn CPU.
+         */
+        private void idle(int idleRounds) {
+            if (idleRounds < 100) {
+                Thread.onSpinWait();
+            } else if (idleRounds < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(Math.min(1000, 10L * (idleRounds - 199))));
+            }
+        }
+
+        private ConsumerMetricsDTO toMetrics(long cursor) {
+            long processed = sequence.get();
+            long delivered = deliveredEvents.get();
+            long batchCount = batches.get();
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            return new ConsumerMetricsDTO(
+                    projection.getProjectionName(),
+                    processed,
+                    Math.max(0, cursor - processed),
+                    delivered,
+                    batchCount,
+                    batchCount == 0 ? 0 : (double) delivered / batchCount,
+                    failures.get(),
+                    skippedEvents.get(),
+                    seconds == 0 ? 0 : delivered / seconds);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cz.itnetwork.service.event;
+
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/**
+ * A consumer of domain events maintaining some derived state, such as a cache, a rollup or a search index.
+ * <p>
+ * Every projection is fed by its own thread in batches. Delivery is at-least-once: a batch is retried
+ * when the projection throws, and events recorded before a crash are replayed on startup.
+ * Implementations must therefore tolerate seeing the same event more than once.
+ * </p>
+ */
+public interface DomainEventProjection {
+
+    /**
+     * @return The name under which the projection's metrics are reported.
+     */
+    default String getProjectionName() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+
+    /**
+     * Builds the initial state of the projection. Called once on startup before any event is delivered.
+     */
+    default void initialize() {
+    }
+
+    /**
+     * Processes a batch of events in the order they were published.
+     *
+     * @param events The events to process; never empty.
+     */
+    void onEvents(List<DomainEvent> events);
+}
@@ -0,0 +1,142 @@
+package cz.itnetwork.service.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, pre-allocated ring buffer of domain events with multiple producers and multiple consumers.
+ * <p>
+ * Producers claim a sequence with a CAS and publish the event by writing the slot's sequence last.
+ * Each consumer tracks its own position, so there are no per-consumer queues and publishing never
+ * allocates anything besides the event itself. A producer may only reuse a slot after every gating
+ * consumer has moved past it; if that doesn't happen in time, publishing fails instead of blocking forever.
+ * </p>
+ */
+final class DomainEventRingBuffer {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<AtomicLong> gatingSequences = new CopyOnWriteArrayList<>();
+
+    DomainEventRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Velikost bufferu událostí musí být mocninou dvou.");
+        }
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Registers the position of a consumer that producers must not overtake.
+     *
+     * @param sequence The sequence of the last event processed by the consumer.
+     */
+    void addGatingSequence(AtomicLong sequence) {
+        gatingSequences.add(sequence);
+    }
+
+    /**
+     * Publishes an event, waiting for free space at most until the given deadline. A deadline that
+     * has already passed still publishes the event if there is free space, but doesn't wait for it.
+     *
+     * @param event The event to publish.
+     * @param deadline The {@link System#nanoTime()} after which the producer stops waiting for a slot to be freed.
+     * @return {@code true} if the event was published, {@code false} if the buffer stayed full.
+     */
+    boolean tryPublish(DomainEvent event, long deadline) {
+        long sequence;
+        while (true) {
+            long current = claimed.get();
+            sequence = current + 1;
+            if (sequence - slots.length > minimumGatingSequence()) {
+                if (System.nanoTime() - deadline > 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            } else if (claimed.compareAndSet(current, sequence)) {
+                break;
+            }
+        }
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.event = event;
+        slot.sequence = sequence;
+        return true;
+    }
+
+    /**
+     * Finds the highest sequence that is published without gaps, starting from the given one.
+     *
+     * @param from The first sequence to check.
+     * @param limit The highest sequence to consider.
+     * @return The highest available sequence, or {@code from - 1} if {@code from} isn't published yet.
+     */
+    long highestPublished(long from, long limit) {
+        long sequence = from;
+        while (sequence <= limit && slots[(int) (sequence & mask)].sequence == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    /**
+     * Reads a published event. The caller must have checked that the sequence is available.
+     *
+     * @param sequence The sequence of the event.
+     * @return The event.
+     */
+    DomainEvent get(long sequence) {
+        return slots[(int) (sequence & mask)].event;
+    }
+
+    /**
+     * Reads the events published after the given sequence, i.e. those not yet released by the consumer
+     * at that position. Slots that are claimed but not yet published are left out.
+     *
+     * @param sequence The sequence of the last event to leave out.
+     * @return The published events in the order of their sequences.
+     */
+    List<DomainEvent> publishedAfter(long sequence) {
+        long cursor = claimed.get();
+        List<DomainEvent> events = new ArrayList<>((int) Math.min(slots.length, Math.max(0, cursor - sequence)));
+        for (long s = Math.max(sequence + 1, cursor - slots.length + 1); s <= cursor; s++) {
+            Slot slot = slots[(int) (s & mask)];
+            if (slot.sequence == s) {
+                events.add(slot.event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * @return The highest sequence claimed by a producer.
+     */
+    long getCursor() {
+        return claimed.get();
+    }
+
+    private long minimumGatingSequence() {
+        long minimum = claimed.get();
+        for (AtomicLong gatingSequence : gatingSequences) {
+            minimum = Math.min(minimum, gatingSequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * A pre-allocated slot of the ring. The volatile sequence is written after the event,
+     * which makes the event visible to consumers that observe the sequence.
+     */
+    private static final class Slot {
+
+        private volatile long sequence = -1;
+        private DomainEvent event;
+    }
+}
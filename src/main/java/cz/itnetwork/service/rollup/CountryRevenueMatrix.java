@@ -0,0 +1,92 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.CountryRevenueDTO;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.service.snapshot.InvoiceSnapshotListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the number and the sums of visible invoices for every combination of seller country
+ * and buyer country. The counters are primitive arrays indexed by the ordinals of {@link Countries},
+ * so an invoice write updates two cells and reading the whole matrix costs nothing but a copy.
+ */
+@Component
+public class CountryRevenueMatrix implements InvoiceSnapshotListener {
+
+    private static final Countries[] COUNTRIES = Countries.values();
+
+    private long[] invoiceCounts = new long[COUNTRIES.length * COUNTRIES.length];
+    private long[] priceCents = new long[COUNTRIES.length * COUNTRIES.length];
+    private long[] vatCents = new long[COUNTRIES.length * COUNTRIES.length];
+
+    @Override
+    public synchronized void onRebuild(Collection<InvoiceSnapshot> snapshots) {
+        invoiceCounts = new long[invoiceCounts.length];
+        priceCents = new long[priceCents.length];
+        vatCents = new long[vatCents.length];
+        snapshots.forEach(snapshot -> add(snapshot, 1));
+    }
+
+    @Override
+    public synchronized void onAdded(InvoiceSnapshot snapshot) {
+        add(snapshot, 1);
+    }
+
+    @Override
+    public synchronized void onRemoved(InvoiceSnapshot snapshot) {
+        add(snapshot, -1);
+    }
+
+    /**
+     * Retrieves the whole matrix, including combinations without any invoices.
+     *
+     * @return One item per combination of seller country and buyer country.
+     */
+    public List<CountryRevenueDTO> getMatrix() {
+        long[] counts;
+        long[] prices;
+        long[] vats;
+        synchronized (this) {
+            counts = invoiceCounts.clone();
+            prices = priceCents.clone();
+            vats = vatCents.clone();
+        }
+
+        List<CountryRevenueDTO> cells = new ArrayList<>(counts.length);
+        for (Countries seller : COUNTRIES) {
+            for (Countries buyer : COUNTRIES) {
+                int cell = cell(seller, buyer);
+                cells.add(new CountryRevenueDTO(
+                        seller,
+                        buyer,
+                        counts[cell],
+                        BigDecimal.valueOf(prices[cell], 2),
+                        BigDecimal.valueOf(prices[cell] + vats[cell], 2)));
+            }
+        }
+        return cells;
+    }
+
+    private void add(InvoiceSnapshot snapshot, int sign) {
+        if (snapshot.sellerCountry() == null || snapshot.buyerCountry() == null) {
+            return;
+        }
+        int cell = cell(snapshot.sellerCountry(), snapshot.buyerCountry());
+        long price = snapshot.price().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        invoiceCounts[cell] += sign;
+        priceCents[cell] += sign * price;
+        // VAT is rounded per invoice, the same way it is printed on the invoice.
+        vatCents[cell] += sign * Math.round(price * snapshot.vat() / 100.0);
+    }
+
+    private static int cell(Countries seller, Countries buyer) {
+        return seller.ordinal() * COUNTRIES.length + buyer.ordinal();
+    }
+}
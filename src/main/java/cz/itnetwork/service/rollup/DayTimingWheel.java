@@ -0,0 +1,174 @@
+package cz.itnetwork.service.rollup;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+/**
+ * A hierarchical timing wheel with a resolution of one day, holding timers identified by a {@code long} ID.
+ * <p>
+ * The inner wheel has a slot for each of the next 64 days, the outer wheel a slot for each of the next
+ * 64 blocks of 64 days (about eleven years), and timers even further away wait in a sorted overflow map.
+ * Scheduling and cancelling a timer is constant time. Advancing by a day only looks at the slot of that
+ * day; once every 64 days the next outer slot is spread over the inner wheel. The cost of advancing
+ * therefore depends on the number of timers that expire, not on the number of timers held.
+ * </p>
+ * <p>
+ * The wheel is not thread-safe.
+ * </p>
+ */
+class DayTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long INNER_SPAN = SLOTS;
+    private static final long OUTER_SPAN = (long) SLOTS * SLOTS;
+
+    private final Timers[] inner = new Timers[SLOTS];
+    private final Timers[] outer = new Timers[SLOTS];
+    private final NavigableMap<Long, Timers> overflow = new TreeMap<>();
+
+    /**
+     * The set each scheduled timer is held in, so that it can be cancelled without searching.
+     */
+    private final Map<Long, Timers> location = new HashMap<>();
+    private long currentDay;
+
+    /**
+     * @param currentDay The epoch day the wheel starts at; timers must expire after it.
+     */
+    DayTimingWheel(long currentDay) {
+        this.currentDay = currentDay;
+        for (int i = 0; i < SLOTS; i++) {
+            inner[i] = new Timers();
+            outer[i] = new Timers();
+        }
+    }
+
+    long getCurrentDay() {
+        return currentDay;
+    }
+
+    /**
+     * Schedules the timer to expire on the given day, replacing its previous schedule.
+     *
+     * @param id The ID of the timer.
+     * @param day The epoch day on which the timer expires; must be after the current day.
+     */
+    void schedule(long id, long day) {
+        if (day <= currentDay) {
+            throw new IllegalArgumentException("Timer " + id + " would expire in the past.");
+        }
+        cancel(id);
+        place(id, day);
+    }
+
+    /**
+     * Cancels the timer; does nothing if it isn't scheduled.
+     */
+    void cancel(long id) {
+        Timers timers = location.remove(id);
+        if (timers != null) {
+            timers.remove(id);
+        }
+    }
+
+    /**
+     * Moves the wheel day by day up to the given day and reports every timer that expires on the way,
+     * in the order of the days. The expired timers are no longer scheduled when they are reported,
+     * so the callback may schedule them again.
+     *
+     * @param day The epoch day to advance to; earlier days are ignored.
+     * @param expired Called with the ID of every expired timer.
+     */
+    void advanceTo(long day, LongConsumer expired) {
+        while (currentDay < day) {
+            currentDay++;
+            if ((currentDay & SLOT_MASK) == 0) {
+                cascade();
+            }
+            Timers due = inner[(int) (currentDay & SLOT_MASK)];
+            if (due.isEmpty()) {
+                continue;
+            }
+            inner[(int) (currentDay & SLOT_MASK)] = new Timers();
+            for (Map.Entry<Long, Long> timer : due.expiries.entrySet()) {
+                location.remove(timer.getKey());
+            }
+            for (Map.Entry<Long, Long> timer : due.expiries.entrySet()) {
+                if (timer.getValue() == currentDay) {
+                    expired.accept(timer.getKey());
+                } else if (!location.containsKey(timer.getKey())) {
+                    // Can't happen with the placement rules, but a timer must never be lost.
+                    place(timer.getKey(), Math.max(timer.getValue(), currentDay + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Spreads the outer slot of the block that has just begun over the inner wheel,
+     * and at the start of a new outer revolution brings timers from the overflow into the outer wheel.
+     */
+    private void cascade() {
+        if (((currentDay >> SLOT_BITS) & SLOT_MASK) == 0) {
+            NavigableMap<Long, Timers> near = overflow.headMap(currentDay + OUTER_SPAN, false);
+            Map<Long, Long> moved = new HashMap<>();
+            near.values().forEach(timers -> moved.putAll(timers.expiries));
+            near.clear();
+            moved.forEach(this::reschedule);
+        }
+        int slot = (int) ((currentDay >> SLOT_BITS) & SLOT_MASK);
+        Timers block = outer[slot];
+        if (!block.isEmpty()) {
+            outer[slot] = new Timers();
+            block.expiries.forEach(this::reschedule);
+        }
+    }
+
+    private void reschedule(long id, long day) {
+        location.remove(id);
+        place(id, day);
+    }
+
+    private void place(long id, long day) {
+        long delta = day - currentDay;
+        Timers timers;
+        if (delta < INNER_SPAN) {
+            // The slot of this day is the next inner slot to be visited with the same index.
+            timers = inner[(int) (day & SLOT_MASK)];
+        } else if ((day >> SLOT_BITS) - (currentDay >> SLOT_BITS) <= SLOTS) {
+            // The block of this day is the next outer slot to be cascaded with the same index.
+            timers = outer[(int) ((day >> SLOT_BITS) & SLOT_MASK)];
+        } else {
+            timers = overflow.computeIfAbsent(day, key -> new Timers());
+        }
+        timers.add(id, day);
+        location.put(id, timers);
+    }
+
+    /**
+     * The timers held in one slot, with the day each of them expires on.
+     */
+    private static final class Timers {
+
+        private final Map<Long, Long> expiries = new HashMap<>();
+
+        private void add(long id, long day) {
+            expiries.put(id, day);
+        }
+
+        private void remove(long id) {
+            expiries.remove(id);
+        }
+
+        private boolean isEmpty() {
+            return expiries.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.AnalyticsGroupDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsDTO;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.service.snapshot.InvoiceSnapshotListener;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory column store of the visible invoices for ad-hoc aggregations.
+ * <p>
+ * Every aggregated field is kept in its own primitive array: prices in cents, the issue date
+ * as an epoch day and as a month index, the VAT rate, and the seller and buyer encoded as indexes
+ * into a dictionary of identification numbers. A query scans only the arrays it needs, split into
+ * ranges that are aggregated in parallel on a fork/join pool and merged.
+ * </p>
+ * <p>
+ * Removed invoices are replaced by the last row, so the arrays never contain holes. Writes and scans
+ * are separated by a read-write lock; scans run concurrently with each other.
+ * </p>
+ */
+@Component
+public class InvoiceColumnStore implements InvoiceSnapshotListener {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The number of rows below which a range is scanned by a single task instead of being split.
+     */
+    private static final int SCAN_THRESHOLD = 16 * 1024;
+
+    private static final int NO_VALUE = -1;
+
+    private final ForkJoinPool scanPool;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns = new Columns(INITIAL_CAPACITY);
+
+    public InvoiceColumnStore(@Value("${invoicing.analytics.parallelism:0}") int parallelism) {
+        this.scanPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void onRebuild(Collection<InvoiceSnapshot> snapshots) {
+        Columns rebuilt = new Columns(Math.max(INITIAL_CAPACITY, snapshots.size()));
+        snapshots.forEach(rebuilt::append);
+        lock.writeLock().lock();
+        try {
+            columns = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onAdded(InvoiceSnapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            columns.append(snapshot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRemoved(InvoiceSnapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            columns.remove(snapshot.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates the invoices matching the query by the requested dimension.
+     *
+     * @param query The grouping dimension and filters.
+     * @param limit The maximum number of groups to return.
+     * @return The groups ordered from the highest total down, with scan statistics.
+     */
+    public InvoiceAnalyticsDTO aggregate(Query query, int limit) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Columns current = columns;
+            Filter filter = current.toFilter(query);
+            GroupKeys keys = current.groupKeys(query.groupBy());
+            GroupTotals totals = filter == null || current.size == 0
+                    ? new GroupTotals(0)
+                    : scanPool.invoke(new ScanTask(current, filter, keys, 0, current.size));
+
+            List<AnalyticsGroupDTO> groups = new ArrayList<>();
+            long matched = 0;
+            for (int group = 0; group < totals.counts.length; group++) {
+                long count = totals.counts[group];
+                if (count == 0) {
+                    continue;
+                }
+                matched += count;
+                long priceCents = totals.priceCents[group];
+                long vatCents = totals.vatCents[group];
+                groups.add(new AnalyticsGroupDTO(
+                        current.label(query.groupBy(), keys.min() + group),
+                        count,
+                        BigDecimal.valueOf(priceCents, 2),
+                        BigDecimal.valueOf(vatCents, 2),
+                        BigDecimal.valueOf(priceCents + vatCents, 2)));
+            }
+            groups.sort(Comparator.comparing(AnalyticsGroupDTO::total).reversed());
+            return new InvoiceAnalyticsDTO(
+                    query.groupBy(),
+                    current.size,
+                    matched,
+                    (System.nanoTime() - start) / 1000,
+                    groups.size() > limit ? List.copyOf(groups.subList(0, limit)) : groups);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanPool.shutdownNow();
+    }
+
+    /**
+     * An aggregation query. All filters are optional.
+     *
+     * @param groupBy The dimension to group by.
+     * @param issuedFrom The first issue date to include.
+     * @param issuedTo The last issue date to include.
+     * @param sellerIdentificationNumber The IČO of the seller to include.
+     * @param buyerIdentificationNumber The IČO of the buyer to include.
+     * @param vat The VAT rate to include.
+     */
+    public record Query(
+            AnalyticsDimension groupBy,
+            LocalDate issuedFrom,
+            LocalDate issuedTo,
+            String sellerIdentificationNumber,
+            String buyerIdentificationNumber,
+            Integer vat
+    ) {
+    }
+
+    /**
+     * The query filters translated to column values.
+     */
+    private record Filter(int issuedFrom, int issuedTo, int seller, int buyer, int vat) {
+    }
+
+    /**
+     * The column a query groups by and the range of its keys, so that the groups can be accumulated
+     * in arrays indexed by {@code column[row] / divisor - min}.
+     *
+     * @param column The key column.
+     * @param divisor The divisor of the column values, e.g. 12 to turn a month index into a year.
+     * @param min The lowest key.
+     * @param size The number of keys from the lowest to the highest.
+     */
+    private record GroupKeys(int[] column, int divisor, int min, int size) {
+    }
+
+    /**
+     * The columns themselves, together with the dictionary of parties and the row index of every invoice.
+     */
+    private static final class Columns {
+
+        private long[] ids;
+        private long[] priceCents;
+        private int[] issuedEpochDay;
+        private int[] issuedMonth;
+        private int[] vat;
+        private int[] seller;
+        private int[] buyer;
+        private int[] sellerCountry;
+        private int[] buyerCountry;
+        private int size;
+
+        /**
+         * The ranges of the month index and VAT rate columns. Removing rows doesn't narrow them.
+         */
+        private int minIssuedMonth = Integer.MAX_VALUE;
+        private int maxIssuedMonth = Integer.MIN_VALUE;
+        private int minVat = Integer.MAX_VALUE;
+        private int maxVat = Integer.MIN_VALUE;
+
+        private final Map<Long, Integer> rowById = new HashMap<>();
+        private final Map<String, Integer> partyCodes = new HashMap<>();
+        private final List<String> parties = new ArrayList<>();
+
+        private Columns(int capacity) {
+            ids = new long[capacity];
+            priceCents = new long[capacity];
+            issuedEpochDay = new int[capacity];
+            issuedMonth = new int[capacity];
+            vat = new int[capacity];
+            seller = new int[capacity];
+            buyer = new int[capacity];
+            sellerCountry = new int[capacity];
+            buyerCountry = new int[capacity];
+        }
+
+        private void append(InvoiceSnapshot snapshot) {
+            if (rowById.containsKey(snapshot.id())) {
+                return;
+            }
+            if (size == ids.length) {
+                grow();
+            }
+            int row = size++;
+            ids[row] = snapshot.id();
+            priceCents[row] = snapshot.price().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+            issuedEpochDay[row] = (int) snapshot.issued().toEpochDay();
+            issuedMonth[row] = snapshot.issued().getYear() * 12 + snapshot.issued().getMonthValue() - 1;
+            vat[row] = snapshot.vat();
+            seller[row] = encode(snapshot.sellerIdentificationNumber());
+            buyer[row] = encode(snapshot.buyerIdentificationNumber());
+            sellerCountry[row] = snapshot.sellerCountry() != null ? snapshot.sellerCountry().ordinal() : NO_VALUE;
+            buyerCountry[row] = snapshot.buyerCountry() != null ? snapshot.buyerCountry().ordinal() : NO_VALUE;
+            rowById.put(snapshot.id(), row);
+            minIssuedMonth = Math.min(minIssuedMonth, issuedMonth[row]);
+            maxIssuedMonth = Math.max(maxIssuedMonth, issuedMonth[row]);
+            minVat = Math.min(minVat, vat[row]);
+            maxVat = Math.max(maxVat, vat[row]);
+        }
+
+        /**
+         * Removes the row of the invoice by moving the last row into its place.
+         */
+        private void remove(long id) {
+            Integer row = rowById.remove(id);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                priceCents[row] = priceCents[last];
+                issuedEpochDay[row] = issuedEpochDay[last];
+                issuedMonth[row] = issuedMonth[last];
+                vat[row] = vat[last];
+                seller[row] = seller[last];
+                buyer[row] = buyer[last];
+                sellerCountry[row] = sellerCountry[last];
+                buyerCountry[row] = buyerCountry[last];
+                rowById.put(ids[row], row);
+            }
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            issuedEpochDay = Arrays.copyOf(issuedEpochDay, capacity);
+            issuedMonth = Arrays.copyOf(issuedMonth, capacity);
+            vat = Arrays.copyOf(vat, capacity);
+            seller = Arrays.copyOf(seller, capacity);
+            buyer = Arrays.copyOf(buyer, capacity);
+            sellerCountry = Arrays.copyOf(sellerCountry, capacity);
+            buyerCountry = Arrays.copyOf(buyerCountry, capacity);
+        }
+
+        private int encode(String identificationNumber) {
+            return partyCodes.computeIfAbsent(identificationNumber, key -> {
+                parties.add(key);
+                return parties.size() - 1;
+            });
+        }
+
+        /**
+         * @return The filter, or {@code null} if the query can't match any invoice.
+         */
+        private Filter toFilter(Query query) {
+            int sellerCode = NO_VALUE;
+            if (query.sellerIdentificationNumber() != null) {
+                Integer code = partyCodes.get(query.sellerIdentificationNumber());
+                if (code == null) {
+                    return null;
+                }
+                sellerCode = code;
+            }
+            int buyerCode = NO_VALUE;
+            if (query.buyerIdentificationNumber() != null) {
+                Integer code = partyCodes.get(query.buyerIdentificationNumber());
+                if (code == null) {
+                    return null;
+                }
+                buyerCode = code;
+            }
+            return new Filter(
+                    query.issuedFrom() != null ? (int) query.issuedFrom().toEpochDay() : Integer.MIN_VALUE,
+                    query.issuedTo() != null ? (int) query.issuedTo().toEpochDay() : Integer.MAX_VALUE,
+                    sellerCode,
+                    buyerCode,
+                    query.vat() != null ? query.vat() : NO_VALUE);
+        }
+
+        /**
+         * Must only be called with at least one row, so that the ranges of the columns are known.
+         */
+        private GroupKeys groupKeys(AnalyticsDimension dimension) {
+            int countries = Countries.values().length + 1;
+            return switch (dimension) {
+                case SELLER -> new GroupKeys(seller, 1, 0, parties.size());
+                case BUYER -> new GroupKeys(buyer, 1, 0, parties.size());
+                case MONTH -> new GroupKeys(issuedMonth, 1, minIssuedMonth, maxIssuedMonth - minIssuedMonth + 1);
+                case YEAR -> new GroupKeys(issuedMonth, 12, minIssuedMonth / 12, maxIssuedMonth / 12 - minIssuedMonth / 12 + 1);
+                case VAT_RATE -> new GroupKeys(vat, 1, minVat, maxVat - minVat + 1);
+                case SELLER_COUNTRY -> new GroupKeys(sellerCountry, 1, NO_VALUE, countries);
+                case BUYER_COUNTRY -> new GroupKeys(buyerCountry, 1, NO_VALUE, countries);
+            };
+        }
+
+        private String label(AnalyticsDimension dimension, int key) {
+            return switch (dimension) {
+                case SELLER, BUYER -> parties.get(key);
+                case MONTH -> YearMonth.of(key / 12, key % 12 + 1).toString();
+                case YEAR, VAT_RATE -> Integer.toString(key);
+                case SELLER_COUNTRY, BUYER_COUNTRY -> key == NO_VALUE ? null : Countries.values()[key].name();
+            };
+        }
+    }
+
+    /**
+     * The aggregates of the groups found in a range of rows: count, price in cents and VAT in cents,
+     * each in an array indexed by the group.
+     */
+    private static final class GroupTotals {
+
+        private final long[] counts;
+        private final long[] priceCents;
+        private final long[] vatCents;
+
+        private GroupTotals(int groups) {
+            counts = new long[groups];
+            priceCents = new long[groups];
+            vatCents = new long[groups];
+        }
+
+        private GroupTotals merge(GroupTotals other) {
+            for (int group = 0; group < counts.length; group++) {
+                counts[group] += other.counts[group];
+                priceCents[group] += other.priceCents[group];
+                vatCents[group] += other.vatCents[group];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Aggregates a range of rows, splitting it in halves until it is small enough to scan directly.
+     */
+    private static final class ScanTask extends RecursiveTask<GroupTotals> {
+
+        private final Columns columns;
+        private final Filter filter;
+        private final GroupKeys groupKeys;
+        private final int from;
+        private final int to;
+
+        private ScanTask(Columns columns, Filter filter, GroupKeys groupKeys, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.groupKeys = groupKeys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GroupTotals compute() {
+            if (to - from > SCAN_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, filter, groupKeys, from, middle);
+                left.fork();
+                GroupTotals right = new ScanTask(columns, filter, groupKeys, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            GroupTotals totals = new GroupTotals(groupKeys.size());
+            long[] counts = totals.counts;
+            long[] priceSums = totals.priceCents;
+            long[] vatSums = totals.vatCents;
+            int[] keys = groupKeys.column();
+            int divisor = groupKeys.divisor();
+            int min = groupKeys.min();
+            long[] prices = columns.priceCents;
+            int[] issued = columns.issuedEpochDay;
+            int[] vatRates = columns.vat;
+            for (int row = from; row < to; row++) {
+                if (issued[row] < filter.issuedFrom() || issued[row] > filter.issuedTo()
+                        || (filter.seller() != NO_VALUE && columns.seller[row] != filter.seller())
+                        || (filter.buyer() != NO_VALUE && columns.buyer[row] != filter.buyer())
+                        || (filter.vat() != NO_VALUE && vatRates[row] != filter.vat())) {
+                    continue;
+                }
+                int group = keys[row] / divisor - min;
+                counts[group]++;
+                priceSums[group] += prices[row];
+                vatSums[group] += Math.round(prices[row] * vatRates[row] / 100.0);
+            }
+            return totals;
+        }
+    }
+}
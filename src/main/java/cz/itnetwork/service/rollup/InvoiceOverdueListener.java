@@ -0,0 +1,23 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.dto.InvoiceSnapshot;
+
+import java.time.LocalDate;
+
+/**
+ * A hook notified by {@link ReceivablesAging} when a visible invoice passes its due date,
+ * e.g. to send a reminder. Implementations are discovered as Spring beans.
+ * <p>
+ * The hook is called once, by the daily tick on the first day the invoice is overdue (or by the first
+ * report requested that day, if it comes before the tick). It is not called for invoices that were
+ * already overdue when the server started or when they were created.
+ * </p>
+ */
+public interface InvoiceOverdueListener {
+
+    /**
+     * @param invoice The invoice that has just become overdue.
+     * @param today The current date.
+     */
+    void onOverdue(InvoiceSnapshot invoice, LocalDate today);
+}
@@ -0,0 +1,147 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.constant.RankingMetric;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.service.snapshot.InvoiceSnapshotListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the total sales and purchases of every party in memory, ordered from the highest total,
+ * so that the top of the leaderboard is read without aggregating or sorting the invoices.
+ * <p>
+ * Parties are identified by their identification number (IČO). Every added or removed invoice moves
+ * its seller and buyer within their rankings in logarithmic time; reading the top {@code n} parties
+ * only walks the first {@code n} entries.
+ * </p>
+ */
+@Component
+public class PersonLeaderboard implements InvoiceSnapshotListener {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<RankingMetric, Ranking> rankings = createRankings();
+
+    @Override
+    public void onRebuild(Collection<InvoiceSnapshot> snapshots) {
+        Map<RankingMetric, Ranking> rebuilt = createRankings();
+        for (InvoiceSnapshot snapshot : snapshots) {
+            add(rebuilt, snapshot, 1);
+        }
+        lock.writeLock().lock();
+        try {
+            rankings = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onAdded(InvoiceSnapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            add(rankings, snapshot, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRemoved(InvoiceSnapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            add(rankings, snapshot, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a slice of the ranking, from the highest total down.
+     *
+     * @param metric The metric to rank by.
+     * @param offset The number of leading parties to skip.
+     * @param limit The maximum number of parties to return.
+     * @return The totals of the parties in the slice, in ranking order.
+     */
+    public List<PartyTotal> getRanking(RankingMetric metric, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<PartyTotal> result = new ArrayList<>(limit);
+            Iterator<PartyTotal> iterator = rankings.get(metric).ordered.iterator();
+            for (int i = 0; i < offset && iterator.hasNext(); i++) {
+                iterator.next();
+            }
+            while (result.size() < limit && iterator.hasNext()) {
+                result.add(iterator.next());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Map<RankingMetric, Ranking> target, InvoiceSnapshot snapshot, int sign) {
+        BigDecimal amount = sign > 0 ? snapshot.price() : snapshot.price().negate();
+        target.get(RankingMetric.SALES).add(snapshot.sellerIdentificationNumber(), amount, sign);
+        target.get(RankingMetric.PURCHASES).add(snapshot.buyerIdentificationNumber(), amount, sign);
+    }
+
+    private static Map<RankingMetric, Ranking> createRankings() {
+        Map<RankingMetric, Ranking> created = new EnumMap<>(RankingMetric.class);
+        for (RankingMetric metric : RankingMetric.values()) {
+            created.put(metric, new Ranking());
+        }
+        return created;
+    }
+
+    /**
+     * The total of one party in one ranking.
+     *
+     * @param identificationNumber The identification number (IČO) of the party.
+     * @param total The sum of the prices of the party's invoices, without VAT.
+     * @param invoiceCount The number of the party's invoices.
+     */
+    public record PartyTotal(String identificationNumber, BigDecimal total, long invoiceCount) {
+    }
+
+    /**
+     * The totals of all parties by one metric, indexed by IČO and ordered from the highest total.
+     */
+    private static final class Ranking {
+
+        private static final Comparator<PartyTotal> ORDER = Comparator
+                .comparing(PartyTotal::total).reversed()
+                .thenComparing(PartyTotal::identificationNumber);
+
+        private final Map<String, PartyTotal> byIdentificationNumber = new HashMap<>();
+        private final TreeSet<PartyTotal> ordered = new TreeSet<>(ORDER);
+
+        private void add(String identificationNumber, BigDecimal amount, int invoices) {
+            PartyTotal previous = byIdentificationNumber.get(identificationNumber);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            BigDecimal total = previous != null ? previous.total().add(amount) : amount;
+            long invoiceCount = (previous != null ? previous.invoiceCount() : 0) + invoices;
+            if (invoiceCount <= 0) {
+                byIdentificationNumber.remove(identificationNumber);
+                return;
+            }
+            PartyTotal updated = new PartyTotal(identificationNumber, total, invoiceCount);
+            byIdentificationNumber.put(identificationNumber, updated);
+            ordered.add(updated);
+        }
+    }
+}
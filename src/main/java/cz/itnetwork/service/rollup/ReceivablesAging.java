@@ -0,0 +1,252 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.constant.AgingBucket;
+import cz.itnetwork.dto.AgingBucketDTO;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.dto.SellerAgingDTO;
+import cz.itnetwork.service.snapshot.InvoiceSnapshotListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the aging of receivables per seller: the number and the sum of visible invoices that are
+ * not yet due, and that are 1–30, 31–60, 61–90 and over 90 days overdue.
+ * <p>
+ * Every invoice that hasn't reached the last bucket has a timer in a {@link DayTimingWheel}, set to the day
+ * it moves to the next bucket. Advancing the wheel by a day visits only the invoices that change bucket
+ * that day, so the daily update never rescans all invoices. When an invoice moves out of the current bucket,
+ * the {@link InvoiceOverdueListener}s are notified.
+ * </p>
+ */
+@Component
+public class ReceivablesAging implements InvoiceSnapshotListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceivablesAging.class);
+    private static final AgingBucket[] BUCKETS = AgingBucket.values();
+
+    private final ObjectProvider<InvoiceOverdueListener> overdueListeners;
+    private final Clock clock;
+    private final Map<Long, AgedInvoice> invoices = new HashMap<>();
+    private final Map<String, SellerTotals> sellers = new HashMap<>();
+    private DayTimingWheel wheel;
+
+    @Autowired
+    public ReceivablesAging(ObjectProvider<InvoiceOverdueListener> overdueListeners) {
+        this(overdueListeners, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock The clock the current day is read from.
+     */
+    ReceivablesAging(ObjectProvider<InvoiceOverdueListener> overdueListeners, Clock clock) {
+        this.overdueListeners = overdueListeners;
+        this.clock = clock;
+        this.wheel = new DayTimingWheel(LocalDate.now(clock).toEpochDay());
+    }
+
+    @Override
+    public void onRebuild(Collection<InvoiceSnapshot> snapshots) {
+        synchronized (this) {
+            invoices.clear();
+            sellers.clear();
+            wheel = new DayTimingWheel(LocalDate.now(clock).toEpochDay());
+            snapshots.forEach(this::add);
+        }
+    }
+
+    @Override
+    public void onAdded(InvoiceSnapshot snapshot) {
+        List<InvoiceSnapshot> overdue;
+        synchronized (this) {
+            overdue = advance();
+            add(snapshot);
+        }
+        notifyOverdue(overdue);
+    }
+
+    @Override
+    public void onRemoved(InvoiceSnapshot snapshot) {
+        List<InvoiceSnapshot> overdue;
+        synchronized (this) {
+            overdue = advance();
+            AgedInvoice invoice = invoices.remove(snapshot.id());
+            if (invoice != null) {
+                wheel.cancel(snapshot.id());
+                sellerTotals(snapshot).add(invoice.bucket, -1, -invoice.amountCents);
+            }
+        }
+        notifyOverdue(overdue);
+    }
+
+    /**
+     * Moves invoices whose due date has passed to the next bucket. Runs shortly after midnight;
+     * reports also advance the aging before they are read, so a delayed tick never shows stale buckets.
+     */
+    @Scheduled(cron = "${invoicing.aging.tick-cron:0 0 0 * * *}")
+    public void tick() {
+        List<InvoiceSnapshot> overdue;
+        synchronized (this) {
+            overdue = advance();
+        }
+        if (!overdue.isEmpty()) {
+            log.info("{} invoices became overdue.", overdue.size());
+        }
+        notifyOverdue(overdue);
+    }
+
+    /**
+     * Retrieves the aging report, ordered from the seller with the highest overdue sum.
+     *
+     * @param sellerIdentificationNumber The IČO of the seller to report on, or {@code null} for all sellers.
+     * @return The aging of the receivables of each seller.
+     */
+    public List<SellerAgingDTO> getReport(String sellerIdentificationNumber) {
+        List<InvoiceSnapshot> overdue;
+        List<SellerAgingDTO> report = new ArrayList<>();
+        synchronized (this) {
+            overdue = advance();
+            for (Map.Entry<String, SellerTotals> seller : sellers.entrySet()) {
+                if (!seller.getValue().isEmpty()
+                        && (sellerIdentificationNumber == null || sellerIdentificationNumber.equals(seller.getKey()))) {
+                    report.add(seller.getValue().toReport(seller.getKey()));
+                }
+            }
+        }
+        notifyOverdue(overdue);
+        report.sort(Comparator.comparing(SellerAgingDTO::overdueSumWithVat).reversed()
+                .thenComparing(SellerAgingDTO::sellerIdentificationNumber));
+        return report;
+    }
+
+    /**
+     * Advances the wheel to today and moves the invoices whose timers expired to their new bucket.
+     *
+     * @return The invoices that have just become overdue.
+     */
+    private List<InvoiceSnapshot> advance() {
+        List<InvoiceSnapshot> overdue = new ArrayList<>();
+        wheel.advanceTo(LocalDate.now(clock).toEpochDay(), id -> {
+            AgedInvoice invoice = invoices.get(id);
+            if (invoice == null) {
+                return;
+            }
+            long day = wheel.getCurrentDay();
+            AgingBucket previous = invoice.bucket;
+            AgingBucket current = AgingBucket.of(day - invoice.dueDay);
+            SellerTotals totals = sellerTotals(invoice.snapshot);
+            totals.add(previous, -1, -invoice.amountCents);
+            totals.add(current, 1, invoice.amountCents);
+            invoice.bucket = current;
+            scheduleNextTransition(invoice);
+            if (previous == AgingBucket.CURRENT) {
+                overdue.add(invoice.snapshot);
+            }
+        });
+        return overdue;
+    }
+
+    private void add(InvoiceSnapshot snapshot) {
+        if (invoices.containsKey(snapshot.id()) || snapshot.dueDate() == null) {
+            return;
+        }
+        AgedInvoice invoice = new AgedInvoice(snapshot);
+        invoice.bucket = AgingBucket.of(wheel.getCurrentDay() - invoice.dueDay);
+        invoices.put(snapshot.id(), invoice);
+        sellerTotals(snapshot).add(invoice.bucket, 1, invoice.amountCents);
+        scheduleNextTransition(invoice);
+    }
+
+    private void scheduleNextTransition(AgedInvoice invoice) {
+        if (invoice.bucket.getMaxDaysOverdue() != Integer.MAX_VALUE) {
+            wheel.schedule(invoice.snapshot.id(), invoice.dueDay + invoice.bucket.getMaxDaysOverdue() + 1);
+        }
+    }
+
+    private SellerTotals sellerTotals(InvoiceSnapshot snapshot) {
+        return sellers.computeIfAbsent(snapshot.sellerIdentificationNumber(), key -> new SellerTotals());
+    }
+
+    private void notifyOverdue(List<InvoiceSnapshot> overdue) {
+        if (overdue.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        overdueListeners.orderedStream().forEach(listener -> {
+            for (InvoiceSnapshot invoice : overdue) {
+                try {
+                    listener.onOverdue(invoice, today);
+                } catch (RuntimeException e) {
+                    log.error("Overdue listener {} failed for invoice {}.", listener.getClass().getSimpleName(), invoice.id(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * An invoice tracked by the aging, with its amount including VAT and its current bucket.
+     */
+    private static final class AgedInvoice {
+
+        private final InvoiceSnapshot snapshot;
+        private final long dueDay;
+        private final long amountCents;
+        private AgingBucket bucket;
+
+        private AgedInvoice(InvoiceSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.dueDay = snapshot.dueDate().toEpochDay();
+            long price = snapshot.price().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+            this.amountCents = price + Math.round(price * snapshot.vat() / 100.0);
+        }
+    }
+
+    /**
+     * The number and the sum of the invoices of one seller in each bucket, indexed by the bucket's ordinal.
+     */
+    private static final class SellerTotals {
+
+        private final long[] counts = new long[BUCKETS.length];
+        private final long[] amountCents = new long[BUCKETS.length];
+
+        private void add(AgingBucket bucket, int count, long amount) {
+            counts[bucket.ordinal()] += count;
+            amountCents[bucket.ordinal()] += amount;
+        }
+
+        private boolean isEmpty() {
+            for (long count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private SellerAgingDTO toReport(String sellerIdentificationNumber) {
+            List<AgingBucketDTO> buckets = new ArrayList<>(BUCKETS.length);
+            long overdueCents = 0;
+            for (AgingBucket bucket : BUCKETS) {
+                buckets.add(new AgingBucketDTO(bucket, counts[bucket.ordinal()], BigDecimal.valueOf(amountCents[bucket.ordinal()], 2)));
+                if (bucket != AgingBucket.CURRENT) {
+                    overdueCents += amountCents[bucket.ordinal()];
+                }
+            }
+            return new SellerAgingDTO(sellerIdentificationNumber, BigDecimal.valueOf(overdueCents, 2), buckets);
+        }
+    }
+}
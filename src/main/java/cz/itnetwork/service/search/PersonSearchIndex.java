@@ -0,0 +1,228 @@
+package cz.itnetwork.service.search;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.entity.PersonLookup;
+import cz.itnetwork.entity.repository.PersonRepository;
+import cz.itnetwork.service.event.DomainEvent;
+import cz.itnetwork.service.event.DomainEventProjection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory prefix index of visible persons by name and identification number (IČO), for typeahead pickers.
+ * <p>
+ * Names are normalized to lower case without diacritics, so {@code "novak"} finds {@code "Novák"}.
+ * Every person is indexed under its whole name and its IČO, and additionally under every word of its name,
+ * so {@code "nov"} finds {@code "Jan Novák"} as well. The keys are kept in sorted arrays; a search is
+ * a binary search for the first key with the given prefix followed by a scan of the matching keys,
+ * which stops as soon as enough persons are found.
+ * </p>
+ * <p>
+ * The arrays are immutable. When persons change, the index is rebuilt from the person map and swapped
+ * in atomically, so searches never lock. Persons change rarely compared with how often they are searched.
+ * </p>
+ */
+@Component
+public class PersonSearchIndex implements DomainEventProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonSearchIndex.class);
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final PersonRepository personRepository;
+
+    /**
+     * The visible persons by ID. Accessed only by the thread delivering the events.
+     */
+    private final Map<Long, Person> persons = new HashMap<>();
+    private volatile Index index = Index.EMPTY;
+
+    public PersonSearchIndex(PersonRepository personRepository) {
+        this.personRepository = personRepository;
+    }
+
+    @Override
+    public void initialize() {
+        long start = System.nanoTime();
+        persons.clear();
+        personRepository.findAllByHiddenFalse().forEach(lookup -> persons.put(lookup.getId(), new Person(lookup)));
+        index = Index.build(persons.values());
+        log.info("Indexed {} persons for search in {} ms.", persons.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        Set<Long> affectedIds = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event.type() != AggregateType.PERSON) {
+                continue;
+            }
+            if (event.previousId() != null) {
+                affectedIds.add(event.previousId());
+            }
+            if (event.id() != null) {
+                affectedIds.add(event.id());
+            }
+        }
+        if (affectedIds.isEmpty()) {
+            return;
+        }
+
+        // Reload the persons instead of trusting the events, so that replayed events change nothing.
+        affectedIds.forEach(persons::remove);
+        personRepository.findLookupByIdInAndHiddenFalse(affectedIds)
+                .forEach(lookup -> persons.put(lookup.getId(), new Person(lookup)));
+        index = Index.build(persons.values());
+    }
+
+    /**
+     * Finds persons whose name, a word of their name or IČO starts with the query.
+     * Persons whose whole name or IČO matches come first, then those matching by a word of the name;
+     * each group is ordered alphabetically.
+     *
+     * @param query The typed text; case and diacritics are ignored.
+     * @param limit The maximum number of persons to return.
+     * @return The matching persons.
+     */
+    public List<PersonLookup> search(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        Index current = index;
+        Set<Person> found = new LinkedHashSet<>();
+        current.primary.collect(prefix, found, limit);
+        current.words.collect(prefix, found, limit);
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Converts the text to lower case without diacritics, with words separated by single spaces.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * A searchable person. The class is what the search returns, so it exposes the lookup fields only.
+     */
+    private static final class Person implements PersonLookup {
+
+        private final Long id;
+        private final String name;
+        private final String identificationNumber;
+
+        private Person(PersonLookup lookup) {
+            this.id = lookup.getId();
+            this.name = lookup.getName();
+            this.identificationNumber = lookup.getIdentificationNumber();
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getIdentificationNumber() {
+            return identificationNumber;
+        }
+    }
+
+    /**
+     * The primary keys (whole names and IČO) and the secondary keys (single words of names).
+     */
+    private record Index(SortedKeys primary, SortedKeys words) {
+
+        private static final Index EMPTY = new Index(SortedKeys.of(List.of()), SortedKeys.of(List.of()));
+
+        private static Index build(Iterable<Person> persons) {
+            List<KeyedPerson> primary = new ArrayList<>();
+            List<KeyedPerson> words = new ArrayList<>();
+            for (Person person : persons) {
+                String name = normalize(person.getName());
+                if (!name.isEmpty()) {
+                    primary.add(new KeyedPerson(name, person));
+                    String[] nameWords = name.split(" ");
+                    // The first word is already covered by the whole name.
+                    for (int i = 1; i < nameWords.length; i++) {
+                        words.add(new KeyedPerson(nameWords[i], person));
+                    }
+                }
+                String identificationNumber = normalize(person.getIdentificationNumber());
+                if (!identificationNumber.isEmpty()) {
+                    primary.add(new KeyedPerson(identificationNumber, person));
+                }
+            }
+            return new Index(SortedKeys.of(primary), SortedKeys.of(words));
+        }
+    }
+
+    private record KeyedPerson(String key, Person person) {
+    }
+
+    /**
+     * Keys in ascending order and the person each key belongs to, at the same position.
+     */
+    private record SortedKeys(String[] keys, Person[] persons) {
+
+        private static SortedKeys of(List<KeyedPerson> entries) {
+            KeyedPerson[] sorted = entries.toArray(new KeyedPerson[0]);
+            Arrays.sort(sorted, (a, b) -> a.key().compareTo(b.key()));
+            String[] keys = new String[sorted.length];
+            Person[] persons = new Person[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = sorted[i].key();
+                persons[i] = sorted[i].person();
+            }
+            return new SortedKeys(keys, persons);
+        }
+
+        /**
+         * Adds the persons of keys starting with the prefix, until the result has {@code limit} persons.
+         */
+        private void collect(String prefix, Set<Person> result, int limit) {
+            for (int i = lowerBound(prefix); i < keys.length && result.size() < limit && keys[i].startsWith(prefix); i++) {
+                result.add(persons[i]);
+            }
+        }
+
+        /**
+         * @return The position of the first key that is not less than the prefix.
+         */
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
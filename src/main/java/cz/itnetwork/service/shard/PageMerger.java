@@ -0,0 +1,216 @@
+package cz.itnetwork.service.shard;
+
+import cz.itnetwork.dto.InvoiceFieldSet;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Merges pages of results sorted on several shards into one page of the global order.
+ * <p>
+ * Every shard is asked for the first {@code offset + size} rows in the requested order; the requested page
+ * is then cut out of a k-way merge of the shard results. The cost grows with the page number, so the offset
+ * of scattered queries is limited.
+ * </p>
+ */
+public final class PageMerger {
+
+    /**
+     * The maximum offset of a page read from all shards.
+     */
+    public static final int MAX_SCATTER_OFFSET = 10_000;
+
+    private PageMerger() {
+    }
+
+    /**
+     * Translates the requested page into the page each shard has to return.
+     *
+     * @param pageable The requested page.
+     * @return The first {@code offset + size} rows in the requested order.
+     * @throws ResponseStatusException if the offset is above {@link #MAX_SCATTER_OFFSET}.
+     */
+    public static Pageable shardPageable(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return pageable;
+        }
+        if (pageable.getOffset() > MAX_SCATTER_OFFSET) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Při rozdělené databázi lze stránkovat nejvýše do " + MAX_SCATTER_OFFSET + ". záznamu.");
+        }
+        return PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), pageable.getSort());
+    }
+
+    /**
+     * Merges the pages returned by the shards for {@link #shardPageable(Pageable)}.
+     *
+     * @param pageable The requested page.
+     * @param shardPages The pages returned by the shards.
+     * @param type The type of the rows, whose properties are named like the sort properties.
+     * @param <T> The type of the rows.
+     * @return The requested page with the total of all shards.
+     */
+    public static <T> Page<T> merge(Pageable pageable, List<Page<T>> shardPages, Class<T> type) {
+        return merge(pageable, shardPages, comparator(pageable.getSort(), type));
+    }
+
+    /**
+     * Merges the pages returned by the shards for {@link #shardPageable(Pageable)} in an order the rows
+     * don't carry the properties of, such as the fixed order of a query.
+     *
+     * @param pageable The requested page.
+     * @param shardPages The pages returned by the shards.
+     * @param comparator The order the shards returned the rows in.
+     * @param <T> The type of the rows.
+     * @return The requested page with the total of all shards.
+     */
+    public static <T> Page<T> merge(Pageable pageable, List<Page<T>> shardPages, Comparator<T> comparator) {
+        long total = 0;
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>((a, b) -> comparator.compare(a.current(), b.current()));
+        for (Page<T> shardPage : shardPages) {
+            total += shardPage.getTotalElements();
+            if (shardPage.hasContent()) {
+                heads.add(new Cursor<>(shardPage.getContent()));
+            }
+        }
+
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int size = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        List<T> content = new ArrayList<>(Math.min(size, 1024));
+        for (long position = 0; !heads.isEmpty() && content.size() < size; position++) {
+            Cursor<T> head = heads.poll();
+            if (position >= offset) {
+                content.add(head.current());
+            }
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Merges the pages of requested invoice fields returned by the shards for {@link #shardPageable(Pageable)}.
+     * The rows have to contain every sort property, see {@link InvoiceFieldSet#withSortProperties(Sort)}.
+     *
+     * @param pageable The requested page.
+     * @param shardPages The pages returned by the shards.
+     * @return The requested page with the total of all shards.
+     */
+    public static Page<Map<String, Object>> mergeFields(Pageable pageable, List<Page<Map<String, Object>>> shardPages) {
+        Comparator<Map<String, Object>> comparator = (a, b) -> 0;
+        for (Sort.Order order : pageable.getSort()) {
+            Comparator<Map<String, Object>> byProperty = Comparator.comparing(
+                    row -> InvoiceFieldSet.read(row, order.getProperty()),
+                    Comparator.nullsLast(PageMerger::compareValues));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return merge(pageable, shardPages, comparator);
+    }
+
+    /**
+     * Sorts and pages rows that were already combined in memory.
+     *
+     * @param pageable The requested page.
+     * @param rows All rows.
+     * @param type The type of the rows, whose properties are named like the sort properties.
+     * @param <T> The type of the rows.
+     * @return The requested page.
+     */
+    public static <T> Page<T> page(Pageable pageable, List<T> rows, Class<T> type) {
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(comparator(pageable.getSort(), type));
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(sorted, pageable, sorted.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(sorted.subList(from, to), pageable, sorted.size());
+    }
+
+    /**
+     * Builds a comparator of rows following the sort, with nulls last like the database.
+     *
+     * @throws ResponseStatusException if the rows have no property of a sort property's name.
+     */
+    private static <T> Comparator<T> comparator(Sort sort, Class<T> type) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Method accessor = accessor(type, order.getProperty());
+            Comparator<T> byProperty = Comparator.comparing(
+                    row -> read(accessor, row),
+                    Comparator.nullsLast(PageMerger::compareValues));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    private static Method accessor(Class<?> type, String property) {
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                if (component.getName().equals(property)) {
+                    return component.getAccessor();
+                }
+            }
+        } else {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, property);
+            if (descriptor != null && descriptor.getReadMethod() != null) {
+                return descriptor.getReadMethod();
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Řazení podle " + property + " není při rozdělené databázi podporováno.");
+    }
+
+    private static Object read(Method accessor, Object row) {
+        try {
+            return accessor.invoke(row);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Nepodařilo se přečíst vlastnost " + accessor.getName() + ".", e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b) {
+        if (a instanceof String left && b instanceof String right) {
+            return left.compareToIgnoreCase(right);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * The position in the sorted rows of one shard.
+     */
+    private static final class Cursor<T> {
+
+        private final List<T> rows;
+        private int index;
+
+        private Cursor(List<T> rows) {
+            this.rows = rows;
+        }
+
+        private T current() {
+            return rows.get(index);
+        }
+
+        private boolean advance() {
+            return ++index < rows.size();
+        }
+    }
+}
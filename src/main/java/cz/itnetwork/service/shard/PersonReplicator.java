@@ -0,0 +1,125 @@
+package cz.itnetwork.service.shard;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.service.event.DomainEvent;
+import cz.itnetwork.service.event.DomainEventProjection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Copies persons from the first shard, which holds the master copy, to all other shards.
+ * <p>
+ * Persons are written on the first shard only. Every shard needs all persons that its invoices refer to,
+ * so the changed rows are copied after each batch of person events, and once for all persons on startup.
+ * Rows are copied with their IDs and overwritten as a whole, so copying the same row again changes nothing.
+ * The invoice service also copies the buyer and seller right before writing an invoice, so that a new
+ * person can be used before its event has been delivered.
+ * </p>
+ */
+public class PersonReplicator implements DomainEventProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonReplicator.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate primary;
+    private final List<NamedParameterJdbcTemplate> replicas;
+
+    /**
+     * @param shards JDBC access to all shards, the first one holding the master copy of persons.
+     */
+    public PersonReplicator(List<NamedParameterJdbcTemplate> shards) {
+        this.primary = shards.get(0);
+        this.replicas = shards.subList(1, shards.size());
+    }
+
+    @Override
+    public void initialize() {
+        long afterId = 0;
+        int copied = 0;
+        while (true) {
+            List<Map<String, Object>> rows = primary.queryForList(
+                    "SELECT * FROM person WHERE id > :afterId ORDER BY id LIMIT " + CHUNK_SIZE,
+                    new MapSqlParameterSource("afterId", afterId));
+            if (rows.isEmpty()) {
+                break;
+            }
+            write(rows);
+            copied += rows.size();
+            afterId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+        }
+        log.info("Replicated {} persons to {} shards.", copied, replicas.size());
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event.type() != AggregateType.PERSON) {
+                continue;
+            }
+            if (event.previousId() != null) {
+                ids.add(event.previousId());
+            }
+            if (event.id() != null) {
+                ids.add(event.id());
+            }
+        }
+        replicate(ids);
+    }
+
+    /**
+     * Copies the current state of the given persons to all other shards.
+     *
+     * @param ids The IDs of the persons; IDs that don't exist are skipped.
+     */
+    public void replicate(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + CHUNK_SIZE, idList.size()));
+            write(primary.queryForList("SELECT * FROM person WHERE id IN (:ids)", new MapSqlParameterSource("ids", chunk)));
+        }
+    }
+
+    /**
+     * Overwrites the rows on every other shard, inserting the ones that aren't there yet.
+     */
+    private void write(List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        // The rows are case-insensitive maps, but the column names keep the case the database reported.
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        List<String> updatedColumns = columns.stream().filter(column -> !column.equalsIgnoreCase("id")).toList();
+        String update = "UPDATE person SET "
+                + updatedColumns.stream().map(column -> column + " = :" + column).collect(Collectors.joining(", "))
+                + " WHERE id = :id";
+        String insert = "INSERT INTO person (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(column -> ":" + column).collect(Collectors.joining(", ")) + ")";
+
+        for (NamedParameterJdbcTemplate replica : replicas) {
+            for (Map<String, Object> row : rows) {
+                MapSqlParameterSource parameters = new MapSqlParameterSource(row);
+                parameters.addValue("id", row.get("id"));
+                if (replica.update(update, parameters) == 0) {
+                    try {
+                        replica.update(insert, parameters);
+                    } catch (DuplicateKeyException e) {
+                        // Copied by a concurrent call in the meantime; overwrite it with this state.
+                        replica.update(update, parameters);
+                    }
+                }
+            }
+        }
+    }
+}
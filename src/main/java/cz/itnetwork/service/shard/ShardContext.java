@@ -0,0 +1,48 @@
+package cz.itnetwork.service.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard that database connections of the current thread are routed to.
+ * <p>
+ * The shard must be selected before the connection is obtained, i.e. before a transaction starts
+ * or a repository is called outside of one. Threads without a selected shard use the first shard,
+ * which also holds the master copy of all persons.
+ * </p>
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return The shard selected for the current thread, or {@code null} for the default shard.
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the action with connections routed to the given shard and then restores the previous selection.
+     *
+     * @param shard The index of the shard.
+     * @param action The action to run.
+     * @param <T> The type of the result.
+     * @return The result of the action.
+     */
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
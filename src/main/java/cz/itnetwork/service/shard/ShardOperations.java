@@ -0,0 +1,75 @@
+package cz.itnetwork.service.shard;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs database work on the shard that holds the data, or on all shards at once.
+ * <p>
+ * Invoices are spread across shards by the identification number of their seller, and the IDs
+ * of invoices and outbox events are allocated from a separate range on every shard, so the shard
+ * of a row can be told from its ID alone. Persons are kept on the first shard and copied to the others.
+ * Without sharding there is a single shard and all operations simply run on the calling thread.
+ * </p>
+ */
+public interface ShardOperations {
+
+    /**
+     * @return The number of shards; {@code 1} when sharding is disabled.
+     */
+    int getShardCount();
+
+    /**
+     * @param sellerIdentificationNumber The identification number of the seller.
+     * @return The shard holding the invoices of the seller.
+     */
+    int shardForSeller(String sellerIdentificationNumber);
+
+    /**
+     * @param id The ID of an invoice or an outbox event.
+     * @return The shard the row was created on.
+     */
+    int shardForId(long id);
+
+    /**
+     * Runs the work with database connections routed to the given shard.
+     *
+     * @param shard The index of the shard.
+     * @param work The work to run.
+     * @param <T> The type of the result.
+     * @return The result of the work.
+     */
+    <T> T onShard(int shard, Supplier<T> work);
+
+    /**
+     * Runs the work on every shard in parallel.
+     *
+     * @param work The work to run.
+     * @param <T> The type of the result.
+     * @return The results in the order of the shards.
+     */
+    <T> List<T> onAllShards(Supplier<T> work);
+
+    /**
+     * Splits IDs of invoices or outbox events by the shard they were created on.
+     *
+     * @param ids The IDs to split.
+     * @return The IDs by shard; shards without IDs are missing.
+     */
+    Map<Integer, List<Long>> groupByShard(Collection<Long> ids);
+
+    /**
+     * Runs a keyset query for the rows following the given ID across shards. Because every shard allocates
+     * IDs from its own range, the rows of all shards ordered by shard are ordered by ID as well, so the query
+     * continues on the shard of the last ID and moves to the next shard when that one is exhausted.
+     *
+     * @param afterId The ID of the last row already read.
+     * @param query The query returning the rows following an ID on the current shard, ordered by ID.
+     * @param <T> The type of the rows.
+     * @return The next non-empty batch of rows, or an empty list when all shards are exhausted.
+     */
+    <T> List<T> findAfterId(long afterId, LongFunction<List<T>> query);
+}
@@ -0,0 +1,334 @@
+package cz.itnetwork.service.shard;
+
+import cz.itnetwork.dto.CountryRevenueDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsDTO;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceFieldSet;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.dto.InvoiceStatisticsDTO;
+import cz.itnetwork.dto.InvoiceSummary;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.dto.SellerAgingDTO;
+import cz.itnetwork.dto.VatRateStatisticsDTO;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.entity.repository.PersonRepository;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.InvoiceServiceImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Invoice service of a sharded database, routing every call of {@link InvoiceServiceImpl} to the shards
+ * holding the data.
+ * <p>
+ * Writes and queries of a single seller or invoice run on one shard. Queries across sellers run on all
+ * shards in parallel; pages are merged by {@link PageMerger} and statistics are summed. Rollups kept
+ * in memory are fed from all shards and are used as they are. Before an invoice is written, its buyer
+ * and seller are copied to the shard, so that the invoice can refer to them.
+ * </p>
+ */
+public class ShardedInvoiceService implements InvoiceService {
+
+    private final InvoiceServiceImpl delegate;
+    private final ShardOperations shardOperations;
+    private final PersonRepository personRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final PersonReplicator personReplicator;
+
+    public ShardedInvoiceService(InvoiceServiceImpl delegate, ShardOperations shardOperations,
+                                 PersonRepository personRepository, InvoiceRepository invoiceRepository,
+                                 PersonReplicator personReplicator) {
+        this.delegate = delegate;
+        this.shardOperations = shardOperations;
+        this.personRepository = personRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.personReplicator = personReplicator;
+    }
+
+    @Override
+    public InvoiceDTO addInvoice(InvoiceDTO invoiceDTO) {
+        Integer shard = sellerShard(invoiceDTO);
+        replicateParties(invoiceDTO);
+        return shardOperations.onShard(shard != null ? shard : 0, () -> delegate.addInvoice(invoiceDTO));
+    }
+
+    @Override
+    public void removeInvoice(long invoiceId) {
+        shardOperations.onShard(shardOperations.shardForId(invoiceId), () -> {
+            delegate.removeInvoice(invoiceId);
+            return null;
+        });
+    }
+
+    @Override
+    public int removeInvoices(List<Long> ids) {
+        return shardOperations.groupByShard(ids).entrySet().stream()
+                .mapToInt(entry -> shardOperations.onShard(entry.getKey(), () -> delegate.removeInvoices(entry.getValue())))
+                .sum();
+    }
+
+    /**
+     * Removes the invoices on the shard of the seller if it is given, otherwise on all shards in parallel.
+     */
+    @Override
+    public int removeFilteredInvoices(String buyerId, String sellerId, String product, BigDecimal minPrice,
+                                      BigDecimal maxPrice, LocalDate issuedFrom, LocalDate issuedTo) {
+        if (!isBlank(sellerId)) {
+            return shardOperations.onShard(shardOperations.shardForSeller(sellerId), () ->
+                    delegate.removeFilteredInvoices(buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+        }
+        return shardOperations.onAllShards(() ->
+                        delegate.removeFilteredInvoices(buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo))
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    @Override
+    public InvoiceDTO getInvoice(long id) {
+        return shardOperations.onShard(shardOperations.shardForId(id), () -> delegate.getInvoice(id));
+    }
+
+    @Override
+    public Map<String, Object> getInvoiceFields(long id, String fields) {
+        return shardOperations.onShard(shardOperations.shardForId(id), () -> delegate.getInvoiceFields(id, fields));
+    }
+
+    /**
+     * Edits the invoice on its shard. The seller can only be changed to another seller of the same shard,
+     * because the hidden original and the new version have to be written in one transaction.
+     *
+     * @throws ResponseStatusException with status 400 if the new seller belongs to another shard.
+     */
+    @Override
+    public InvoiceDTO editInvoice(long invoiceId, InvoiceDTO invoiceDTO) {
+        int shard = shardOperations.shardForId(invoiceId);
+        Integer sellerShard = sellerShard(invoiceDTO);
+        if (sellerShard != null && sellerShard != shard) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Prodávajícího faktury nelze změnit na osobu uloženou v jiné části databáze; vystavte novou fakturu.");
+        }
+        replicateParties(invoiceDTO);
+        return shardOperations.onShard(shard, () -> delegate.editInvoice(invoiceId, invoiceDTO));
+    }
+
+    /**
+     * Computes the statistics on every shard and sums them, including the breakdown by VAT rate.
+     */
+    @Override
+    public InvoiceStatisticsDTO getInvoiceStatistics() {
+        InvoiceStatisticsDTO total = new InvoiceStatisticsDTO(
+                BigDecimal.ZERO, BigDecimal.ZERO, 0, BigDecimal.ZERO, BigDecimal.ZERO, List.of());
+        Map<Integer, VatRateStatisticsDTO> rates = new TreeMap<>();
+        for (InvoiceStatisticsDTO shard : shardOperations.onAllShards(delegate::getInvoiceStatistics)) {
+            total.setCurrentYearSum(total.getCurrentYearSum().add(shard.getCurrentYearSum()));
+            total.setAllTimeSum(total.getAllTimeSum().add(shard.getAllTimeSum()));
+            total.setInvoicesSum(total.getInvoicesSum() + shard.getInvoicesSum());
+            total.setCurrentYearSumWithVat(total.getCurrentYearSumWithVat().add(shard.getCurrentYearSumWithVat()));
+            total.setAllTimeSumWithVat(total.getAllTimeSumWithVat().add(shard.getAllTimeSumWithVat()));
+            for (VatRateStatisticsDTO rate : shard.getVatBreakdown()) {
+                rates.merge(rate.vat(), rate, (a, b) -> new VatRateStatisticsDTO(
+                        a.vat(),
+                        a.invoicesCount() + b.invoicesCount(),
+                        a.allTimeSum().add(b.allTimeSum()),
+                        a.allTimeSumWithVat().add(b.allTimeSumWithVat()),
+                        a.currentYearSum().add(b.currentYearSum()),
+                        a.currentYearSumWithVat().add(b.currentYearSumWithVat())));
+            }
+        }
+        total.setVatBreakdown(new ArrayList<>(rates.values()));
+        return total;
+    }
+
+    @Override
+    public List<CountryRevenueDTO> getInvoiceStatisticsByCountry() {
+        return delegate.getInvoiceStatisticsByCountry();
+    }
+
+    @Override
+    public List<SellerAgingDTO> getReceivablesAging(String sellerId) {
+        return delegate.getReceivablesAging(sellerId);
+    }
+
+    /**
+     * Reads the overdue invoices from every shard and merges them by due date.
+     * The summaries don't carry the due date, so it is read from the snapshots of the returned invoices.
+     */
+    @Override
+    public Page<InvoiceSummary> getOverdueInvoiceSummaries(Pageable pageable) {
+        Pageable shardPageable = PageMerger.shardPageable(pageable);
+        Map<Long, LocalDate> dueDates = new HashMap<>();
+        List<Page<InvoiceSummary>> pages = new ArrayList<>();
+        for (OverduePage shard : shardOperations.onAllShards(() -> loadOverduePage(shardPageable))) {
+            pages.add(shard.page());
+            dueDates.putAll(shard.dueDates());
+        }
+        Comparator<InvoiceSummary> byDueDate = Comparator
+                .comparing((InvoiceSummary summary) -> dueDates.get(summary.id()), Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(InvoiceSummary::id);
+        return PageMerger.merge(pageable, pages, byDueDate);
+    }
+
+    private OverduePage loadOverduePage(Pageable shardPageable) {
+        Page<InvoiceSummary> page = delegate.getOverdueInvoiceSummaries(shardPageable);
+        List<Long> ids = page.getContent().stream().map(InvoiceSummary::id).toList();
+        Map<Long, LocalDate> dueDates = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (InvoiceSnapshot snapshot : invoiceRepository.findSnapshotsByIdIn(ids)) {
+                dueDates.put(snapshot.id(), snapshot.dueDate());
+            }
+        }
+        return new OverduePage(page, dueDates);
+    }
+
+    @Override
+    public InvoiceAnalyticsDTO getInvoiceAnalytics(String groupBy, LocalDate issuedFrom, LocalDate issuedTo,
+                                                   String sellerId, String buyerId, Integer vat, int limit) {
+        return delegate.getInvoiceAnalytics(groupBy, issuedFrom, issuedTo, sellerId, buyerId, vat, limit);
+    }
+
+    /**
+     * Runs the query on the shard of the seller if it is given, otherwise on all shards with merged pages.
+     */
+    @Override
+    public Page<InvoiceSummary> getFilteredInvoiceSummaries(Pageable pageable, String buyerId, String sellerId,
+                                                            String product, BigDecimal minPrice, BigDecimal maxPrice,
+                                                            LocalDate issuedFrom, LocalDate issuedTo) {
+        if (!isBlank(sellerId)) {
+            return shardOperations.onShard(shardOperations.shardForSeller(sellerId), () ->
+                    delegate.getFilteredInvoiceSummaries(pageable, buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+        }
+        Pageable shardPageable = PageMerger.shardPageable(pageable);
+        List<Page<InvoiceSummary>> pages = shardOperations.onAllShards(() ->
+                delegate.getFilteredInvoiceSummaries(shardPageable, buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+        return PageMerger.merge(pageable, pages, InvoiceSummary.class);
+    }
+
+    @Override
+    public List<InvoiceSummary> getInvoiceSummariesAfter(long afterId, int batchSize, String buyerId, String sellerId,
+                                                         String product, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (!isBlank(sellerId)) {
+            int shard = shardOperations.shardForSeller(sellerId);
+            if (shardOperations.shardForId(afterId) > shard) {
+                return List.of();
+            }
+            return shardOperations.onShard(shard, () ->
+                    delegate.getInvoiceSummariesAfter(afterId, batchSize, buyerId, sellerId, product, minPrice, maxPrice));
+        }
+        return shardOperations.findAfterId(afterId, shardAfterId ->
+                delegate.getInvoiceSummariesAfter(shardAfterId, batchSize, buyerId, sellerId, product, minPrice, maxPrice));
+    }
+
+    @Override
+    public List<InvoiceSummary> getInvoiceSummariesByIds(List<Long> ids) {
+        if (ids.size() > InvoiceServiceImpl.MAX_BATCH_LOOKUP_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Najednou lze načíst nejvýše " + InvoiceServiceImpl.MAX_BATCH_LOOKUP_SIZE + " faktur.");
+        }
+        Map<Long, InvoiceSummary> summariesById = new HashMap<>();
+        shardOperations.groupByShard(ids).forEach((shard, shardIds) ->
+                summariesById.putAll(shardOperations.onShard(shard, () -> delegate.getInvoiceSummariesByIds(shardIds)).stream()
+                        .collect(Collectors.toMap(InvoiceSummary::id, Function.identity()))));
+        return ids.stream()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Page<InvoiceDTO> getInvoicesBySellerIdentificationNumber(String identificationNumber, Pageable pageable) {
+        return shardOperations.onShard(shardOperations.shardForSeller(identificationNumber), () ->
+                delegate.getInvoicesBySellerIdentificationNumber(identificationNumber, pageable));
+    }
+
+    @Override
+    public Page<InvoiceDTO> getInvoicesByBuyerIdentificationNumber(String identificationNumber, Pageable pageable) {
+        Pageable shardPageable = PageMerger.shardPageable(pageable);
+        List<Page<InvoiceDTO>> pages = shardOperations.onAllShards(() ->
+                delegate.getInvoicesByBuyerIdentificationNumber(identificationNumber, shardPageable));
+        return PageMerger.merge(pageable, pages, InvoiceDTO.class);
+    }
+
+    /**
+     * Runs the query on the shard of the seller if it is given, otherwise on all shards. The shards also
+     * select the sort properties, so that their rows can be merged; these are removed from the merged page.
+     */
+    @Override
+    public Page<Map<String, Object>> getFilteredInvoiceFields(String fields, Pageable pageable, String buyerId,
+                                                              String sellerId, String product, BigDecimal minPrice,
+                                                              BigDecimal maxPrice, LocalDate issuedFrom, LocalDate issuedTo) {
+        if (!isBlank(sellerId)) {
+            return shardOperations.onShard(shardOperations.shardForSeller(sellerId), () ->
+                    delegate.getFilteredInvoiceFields(fields, pageable, buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+        }
+        InvoiceFieldSet requested = InvoiceFieldSet.parse(fields);
+        String selected = String.join(",", requested.withSortProperties(pageable.getSort()).paths());
+        Pageable shardPageable = PageMerger.shardPageable(pageable);
+        List<Page<Map<String, Object>>> pages = shardOperations.onAllShards(() ->
+                delegate.getFilteredInvoiceFields(selected, shardPageable, buyerId, sellerId, product, minPrice, maxPrice, issuedFrom, issuedTo));
+        return PageMerger.mergeFields(pageable, pages).map(requested::retain);
+    }
+
+    @Override
+    public Page<Map<String, Object>> getInvoiceFieldsBySellerIdentificationNumber(String identificationNumber, String fields, Pageable pageable) {
+        return shardOperations.onShard(shardOperations.shardForSeller(identificationNumber), () ->
+                delegate.getInvoiceFieldsBySellerIdentificationNumber(identificationNumber, fields, pageable));
+    }
+
+    @Override
+    public Page<Map<String, Object>> getInvoiceFieldsByBuyerIdentificationNumber(String identificationNumber, String fields, Pageable pageable) {
+        InvoiceFieldSet requested = InvoiceFieldSet.parse(fields);
+        String selected = String.join(",", requested.withSortProperties(pageable.getSort()).paths());
+        Pageable shardPageable = PageMerger.shardPageable(pageable);
+        List<Page<Map<String, Object>>> pages = shardOperations.onAllShards(() ->
+                delegate.getInvoiceFieldsByBuyerIdentificationNumber(identificationNumber, selected, shardPageable));
+        return PageMerger.mergeFields(pageable, pages).map(requested::retain);
+    }
+
+    /**
+     * Finds the shard of the invoice's seller.
+     *
+     * @return The shard, or {@code null} if the seller is missing; the service then reports the error itself.
+     */
+    private Integer sellerShard(InvoiceDTO invoiceDTO) {
+        if (invoiceDTO.getSeller() == null || invoiceDTO.getSeller().getId() == null) {
+            return null;
+        }
+        return personRepository.findById(invoiceDTO.getSeller().getId())
+                .map(PersonEntity::getIdentificationNumber)
+                .map(shardOperations::shardForSeller)
+                .orElse(null);
+    }
+
+    private void replicateParties(InvoiceDTO invoiceDTO) {
+        List<Long> ids = Stream.of(invoiceDTO.getBuyer(), invoiceDTO.getSeller())
+                .filter(Objects::nonNull)
+                .map(PersonDTO::getId)
+                .filter(Objects::nonNull)
+                .toList();
+        personReplicator.replicate(ids);
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private record OverduePage(Page<InvoiceSummary> page, Map<Long, LocalDate> dueDates) {
+    }
+}
@@ -0,0 +1,225 @@
+package cz.itnetwork.service.shard;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Shard operations over several datasources behind a {@code ShardRoutingDataSource}.
+ * <p>
+ * Work for a shard runs with the shard selected in {@link ShardContext} and with its own entity manager
+ * bound for the duration of the work, like the request-scoped one, so lazy associations can be read until
+ * the work returns. Work for a single shard runs on the calling thread unless that thread is in a transaction
+ * or already has an entity manager, which would hold a connection of another shard; such work, and work for
+ * all shards, which runs in parallel, is handed to a worker thread that has no transaction or connection yet.
+ * </p>
+ * <p>
+ * The workers are bounded by the number of shards times the configured concurrency. Work is never queued,
+ * so work started from a worker can't wait for a worker that waits for it: when all workers are busy,
+ * a caller that may run the work itself does so, and any other caller is rejected with
+ * {@code 503 Service Unavailable}.
+ * </p>
+ * <p>
+ * A seller is assigned to a shard by a hash of the identification number modulo the number of shards.
+ * Changing the number of shards therefore requires moving the data; it is not done automatically.
+ * </p>
+ */
+public class ShardedOperations implements ShardOperations {
+
+    private final int shardCount;
+    private final long idRange;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * @param shardCount The number of shards.
+     * @param idRange The size of the range of IDs allocated by each shard; shard {@code i} allocates
+     *                IDs from {@code i * idRange + 1}.
+     * @param entityManagerFactory The factory of entity managers bound to the workers; resolved lazily,
+     *                             because it is built on top of the shards.
+     * @param workerConcurrency The expected number of operations using all shards at the same time.
+     */
+    public ShardedOperations(int shardCount, long idRange, ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                             int workerConcurrency) {
+        this.shardCount = shardCount;
+        this.idRange = idRange;
+        this.entityManagerFactory = entityManagerFactory;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(0, shardCount * Math.max(1, workerConcurrency), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int shardForSeller(String sellerIdentificationNumber) {
+        CRC32 crc = new CRC32();
+        crc.update(sellerIdentificationNumber.trim().getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+
+    @Override
+    public int shardForId(long id) {
+        if (id < 1) {
+            return 0;
+        }
+        return (int) Math.min(shardCount - 1, (id - 1) / idRange);
+    }
+
+    /**
+     * @param shard The index of the shard.
+     * @return The first ID allocated by the shard.
+     */
+    public long firstId(int shard) {
+        return shard * idRange + 1;
+    }
+
+    @Override
+    public <T> T onShard(int shard, Supplier<T> work) {
+        checkShard(shard);
+        if (canRunOnCallingThread()) {
+            return run(shard, work);
+        }
+        return await(submit(() -> run(shard, work)));
+    }
+
+    @Override
+    public <T> List<T> onAllShards(Supplier<T> work) {
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int selected = shard;
+            futures.add(submit(() -> run(selected, work)));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    @Override
+    public Map<Integer, List<Long>> groupByShard(Collection<Long> ids) {
+        Map<Integer, List<Long>> groups = new TreeMap<>();
+        for (Long id : ids) {
+            groups.computeIfAbsent(shardForId(id), shard -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+
+    @Override
+    public <T> List<T> findAfterId(long afterId, LongFunction<List<T>> query) {
+        for (int shard = shardForId(afterId); shard < shardCount; shard++) {
+            long shardAfterId = Math.max(afterId, firstId(shard) - 1);
+            List<T> batch = onShard(shard, () -> query.apply(shardAfterId));
+            if (!batch.isEmpty()) {
+                return batch;
+            }
+        }
+        return List.of();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Hands the work to a free worker. When there is none, the work runs on the calling thread if it can,
+     * otherwise it is rejected.
+     */
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return workers.submit(task);
+        } catch (RejectedExecutionException e) {
+            if (!canRunOnCallingThread()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Všechna vlákna pro práci se shardy jsou obsazena, zkuste to prosím později.", e);
+            }
+            FutureTask<T> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+    }
+
+    /**
+     * Whether the calling thread has neither a transaction nor an entity manager, which would hold
+     * a connection of the shard selected before.
+     */
+    private boolean canRunOnCallingThread() {
+        return !TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(entityManagerFactory.getObject());
+    }
+
+    /**
+     * Runs the work on the current thread with the shard selected and an entity manager bound.
+     */
+    private <T> T run(int shard, Supplier<T> work) {
+        return ShardContext.callOn(shard, () -> {
+            EntityManagerFactory factory = entityManagerFactory.getObject();
+            EntityManager entityManager = factory.createEntityManager();
+            TransactionSynchronizationManager.bindResource(factory, new EntityManagerHolder(entityManager));
+            try {
+                return work.get();
+            } finally {
+                TransactionSynchronizationManager.unbindResource(factory);
+                EntityManagerFactoryUtils.closeEntityManager(entityManager);
+            }
+        });
+    }
+
+    private void checkShard(int shard) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Shard " + shard + " neexistuje.");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Čekání na výsledek ze shardu bylo přerušeno.", e);
+        } catch (ExecutionException e) {
+            // Rethrow the original exception, so that callers see the same errors as without sharding.
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
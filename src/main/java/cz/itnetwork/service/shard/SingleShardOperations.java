@@ -0,0 +1,54 @@
+package cz.itnetwork.service.shard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Shard operations of an unsharded database: everything runs on the calling thread against the only datasource.
+ */
+@Component
+@ConditionalOnProperty(prefix = "invoicing.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class SingleShardOperations implements ShardOperations {
+
+    @Override
+    public int getShardCount() {
+        return 1;
+    }
+
+    @Override
+    public int shardForSeller(String sellerIdentificationNumber) {
+        return 0;
+    }
+
+    @Override
+    public int shardForId(long id) {
+        return 0;
+    }
+
+    @Override
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return work.get();
+    }
+
+    @Override
+    public <T> List<T> onAllShards(Supplier<T> work) {
+        return Collections.singletonList(work.get());
+    }
+
+    @Override
+    public Map<Integer, List<Long>> groupByShard(Collection<Long> ids) {
+        return ids.isEmpty() ? Map.of() : Map.of(0, List.copyOf(ids));
+    }
+
+    @Override
+    public <T> List<T> findAfterId(long afterId, LongFunction<List<T>> query) {
+        return query.apply(afterId);
+    }
+}
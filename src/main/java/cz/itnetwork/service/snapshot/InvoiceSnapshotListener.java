@@ -0,0 +1,37 @@
+package cz.itnetwork.service.snapshot;
+
+import cz.itnetwork.dto.InvoiceSnapshot;
+
+import java.util.Collection;
+
+/**
+ * An in-memory rollup maintained from the visible invoices held by the {@link InvoiceSnapshotStore}.
+ * <p>
+ * All methods are called from a single thread; implementations only have to make their state
+ * safe for concurrent readers. An invoice is never added twice without being removed in between.
+ * </p>
+ */
+public interface InvoiceSnapshotListener {
+
+    /**
+     * Discards the current state and builds it again from all visible invoices.
+     * Called on startup and whenever an incremental update of the listener failed.
+     *
+     * @param snapshots All visible invoices.
+     */
+    void onRebuild(Collection<InvoiceSnapshot> snapshots);
+
+    /**
+     * Adds an invoice that became visible.
+     *
+     * @param snapshot The added invoice.
+     */
+    void onAdded(InvoiceSnapshot snapshot);
+
+    /**
+     * Removes an invoice that was hidden or replaced by a new version.
+     *
+     * @param snapshot The removed invoice, exactly as it was passed to {@link #onAdded} or {@link #onRebuild}.
+     */
+    void onRemoved(InvoiceSnapshot snapshot);
+}
@@ -0,0 +1,145 @@
+package cz.itnetwork.service.snapshot;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.entity.repository.InvoiceRepository;
+import cz.itnetwork.service.event.DomainEvent;
+import cz.itnetwork.service.event.DomainEventProjection;
+import cz.itnetwork.service.shard.ShardOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps snapshots of all visible invoices in memory and feeds their changes to the registered
+ * {@link InvoiceSnapshotListener}s, so that rollups don't have to aggregate the invoice table per request.
+ * <p>
+ * The store is rebuilt from the database on startup. For every batch of invoice events it reloads
+ * the invoices the events refer to and compares them with the snapshots it holds, instead of applying
+ * the events blindly. Replayed or duplicate events therefore change nothing, and the listeners only
+ * ever see each invoice added once and removed once.
+ * </p>
+ * <p>
+ * With a sharded database the snapshots are loaded from all shards, so the rollups always cover all invoices.
+ * </p>
+ */
+@Component
+public class InvoiceSnapshotStore implements DomainEventProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceSnapshotStore.class);
+    private static final int RELOAD_CHUNK_SIZE = 1000;
+
+    private final InvoiceRepository invoiceRepository;
+    private final List<InvoiceSnapshotListener> listeners;
+    private final ShardOperations shardOperations;
+
+    /**
+     * Snapshots of the visible invoices by ID. Accessed only by the thread delivering the events.
+     */
+    private final Map<Long, InvoiceSnapshot> snapshots = new HashMap<>();
+
+    public InvoiceSnapshotStore(InvoiceRepository invoiceRepository, List<InvoiceSnapshotListener> listeners,
+                                ShardOperations shardOperations) {
+        this.invoiceRepository = invoiceRepository;
+        this.listeners = listeners;
+        this.shardOperations = shardOperations;
+    }
+
+    @Override
+    public void initialize() {
+        long start = System.nanoTime();
+        snapshots.clear();
+        for (List<InvoiceSnapshot> shard : shardOperations.onAllShards(invoiceRepository::findAllSnapshots)) {
+            for (InvoiceSnapshot snapshot : shard) {
+                snapshots.put(snapshot.id(), snapshot);
+            }
+        }
+        listeners.forEach(this::rebuild);
+        log.info("Loaded {} invoice snapshots for {} rollups in {} ms.",
+                snapshots.size(), listeners.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        Set<Long> affectedIds = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event.type() != AggregateType.INVOICE) {
+                continue;
+            }
+            if (event.previousId() != null) {
+                affectedIds.add(event.previousId());
+            }
+            if (event.id() != null) {
+                affectedIds.add(event.id());
+            }
+        }
+        if (affectedIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, InvoiceSnapshot> current = reload(affectedIds);
+        List<InvoiceSnapshot> removed = new ArrayList<>();
+        List<InvoiceSnapshot> added = new ArrayList<>();
+        for (Long id : affectedIds) {
+            InvoiceSnapshot held = snapshots.get(id);
+            InvoiceSnapshot loaded = current.get(id);
+            if (Objects.equals(held, loaded)) {
+                continue;
+            }
+            if (held != null) {
+                snapshots.remove(id);
+                removed.add(held);
+            }
+            if (loaded != null) {
+                snapshots.put(id, loaded);
+                added.add(loaded);
+            }
+        }
+        if (!removed.isEmpty() || !added.isEmpty()) {
+            listeners.forEach(listener -> apply(listener, removed, added));
+        }
+    }
+
+    private Map<Long, InvoiceSnapshot> reload(Set<Long> ids) {
+        Map<Long, InvoiceSnapshot> loaded = new HashMap<>();
+        shardOperations.groupByShard(ids).forEach((shard, idList) -> {
+            for (int from = 0; from < idList.size(); from += RELOAD_CHUNK_SIZE) {
+                List<Long> chunk = idList.subList(from, Math.min(from + RELOAD_CHUNK_SIZE, idList.size()));
+                loaded.putAll(shardOperations.onShard(shard, () -> invoiceRepository.findSnapshotsByIdIn(chunk)).stream()
+                        .collect(Collectors.toMap(InvoiceSnapshot::id, Function.identity())));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Passes the changes to a listener. A listener that fails is rebuilt from scratch,
+     * so that one broken rollup neither stops the others nor stays inconsistent.
+     */
+    private void apply(InvoiceSnapshotListener listener, List<InvoiceSnapshot> removed, List<InvoiceSnapshot> added) {
+        try {
+            removed.forEach(listener::onRemoved);
+            added.forEach(listener::onAdded);
+        } catch (RuntimeException e) {
+            log.error("Rollup {} failed to apply invoice changes, rebuilding it.", listener.getClass().getSimpleName(), e);
+            rebuild(listener);
+        }
+    }
+
+    private void rebuild(InvoiceSnapshotListener listener) {
+        Collection<InvoiceSnapshot> all = Collections.unmodifiableCollection(snapshots.values());
+        listener.onRebuild(all);
+    }
+}
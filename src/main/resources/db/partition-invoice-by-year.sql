@@ -0,0 +1,9 @@
+-- Priprava tabulky invoice na rozdeleni na oddily podle roku vystaveni (MySQL 8).
+-- Spousti ho InvoicePartitionMaintenance, pokud tabulka jeste rozdelena neni.
+-- Rozdelena tabulka nesmi mit cizi klice a sloupec issued musi byt soucasti primarniho klice.
+-- Cizi klice udrzba pred timto skriptem odstrani pod jmeny nactenymi z information_schema,
+-- protoze Hibernate je v existujicich databazich pojmenoval sam; oddily pak zaklada podle aktualniho roku.
+-- Navaznost faktur na osoby hlida aplikace, osoby se nikdy nemazou, jen skryvaji.
+-- Hibernate s ddl-auto: update by cizi klice znovu zakladal, proto pak pouzijte validate nebo none.
+
+ALTER TABLE invoice DROP PRIMARY KEY, ADD PRIMARY KEY (id, issued);
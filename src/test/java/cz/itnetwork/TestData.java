@@ -0,0 +1,59 @@
+package cz.itnetwork;
+
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builders of valid persons and invoices for tests.
+ * <p>
+ * Test classes with the same configuration share one application context and therefore one
+ * database, so every person gets an identification number not used by any other test.
+ * </p>
+ */
+public final class TestData {
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    private TestData() {
+    }
+
+    /**
+     * Creates a new person with a unique identification number.
+     *
+     * @param name The name of the person.
+     * @return The person, not yet saved.
+     */
+    public static PersonDTO person(String name) {
+        int number = sequence.incrementAndGet();
+        String identificationNumber = String.format("%08d", 90_000_000 + number);
+        return new PersonDTO(null, name, identificationNumber, "CZ" + identificationNumber, String.valueOf(1_000_000 + number),
+                "0100", null, "+420 600 000 000", "test" + number + "@example.com", "Testovací " + number, "110 00", "Praha",
+                Countries.CZECHIA, null, null);
+    }
+
+    /**
+     * Creates a new invoice between two saved persons.
+     *
+     * @param seller The saved seller.
+     * @param buyer The saved buyer.
+     * @param product The product of the invoice.
+     * @param price The price without VAT.
+     * @return The invoice, not yet saved.
+     */
+    public static InvoiceDTO invoice(PersonDTO seller, PersonDTO buyer, String product, BigDecimal price) {
+        LocalDate issued = LocalDate.now().minusDays(1);
+        return new InvoiceDTO(null, null, issued, issued.plusDays(14), product, price, 21, null,
+                reference(buyer), reference(seller), null);
+    }
+
+    private static PersonDTO reference(PersonDTO person) {
+        PersonDTO reference = new PersonDTO();
+        reference.setId(person.getId());
+        return reference;
+    }
+}
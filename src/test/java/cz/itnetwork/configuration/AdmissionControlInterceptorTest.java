@@ -0,0 +1,78 @@
+package cz.itnetwork.configuration;
+
+import cz.itnetwork.dto.AdmissionMetricsDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests of the order in which {@link AdmissionControlInterceptor} applies the limits of an endpoint.
+ */
+class AdmissionControlInterceptorTest {
+
+    private final AdmissionControlProperties properties = new AdmissionControlProperties();
+    private final AdmissionControlInterceptor interceptor =
+            new AdmissionControlInterceptor(properties, mock(DataSource.class));
+    private final HandlerMethod handler;
+
+    AdmissionControlInterceptorTest() throws NoSuchMethodException {
+        AdmissionControlProperties.EndpointLimit limit = new AdmissionControlProperties.EndpointLimit();
+        limit.setMaxConcurrent(1);
+        limit.setMaxQueue(0);
+        // Practically no refill, so only the burst can be used during the test.
+        limit.setPermitsPerSecond(0.001);
+        limit.setBurst(2);
+        properties.getEndpoints().put("LimitedController.report", limit);
+        handler = new HandlerMethod(new LimitedController(), LimitedController.class.getMethod("report"));
+    }
+
+    @Test
+    void requestRejectedByBulkheadDoesNotUseUpRateLimit() throws Exception {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), handler)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), rejected, handler)).isFalse();
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), handler, null);
+
+        // The second token of the burst is still available.
+        MockHttpServletRequest second = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(second, new MockHttpServletResponse(), handler)).isTrue();
+        interceptor.afterCompletion(second, new MockHttpServletResponse(), handler, null);
+
+        AdmissionMetricsDTO metrics = interceptor.getMetrics().get(0);
+        assertThat(metrics.admitted()).isEqualTo(2);
+        assertThat(metrics.rejectedByConcurrency()).isEqualTo(1);
+        assertThat(metrics.rejectedByRate()).isZero();
+    }
+
+    @Test
+    void requestRejectedByRateLimitReleasesItsSlot() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), handler)).isTrue();
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), handler, null);
+        }
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler)).isFalse();
+
+        AdmissionMetricsDTO metrics = interceptor.getMetrics().get(0);
+        assertThat(metrics.rejectedByRate()).isEqualTo(1);
+        assertThat(metrics.active()).isZero();
+    }
+
+    static class LimitedController {
+
+        public String report() {
+            return "report";
+        }
+    }
+}
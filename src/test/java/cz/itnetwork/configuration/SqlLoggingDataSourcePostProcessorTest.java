@@ -0,0 +1,65 @@
+package cz.itnetwork.configuration;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the parameters logged by {@link SqlLoggingDataSourcePostProcessor}.
+ */
+class SqlLoggingDataSourcePostProcessorTest {
+
+    private final Logger sqlLog = (Logger) LoggerFactory.getLogger("cz.itnetwork.sql");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void captureLog() {
+        appender.start();
+        sqlLog.addAppender(appender);
+    }
+
+    @AfterEach
+    void releaseLog() {
+        sqlLog.detachAppender(appender);
+    }
+
+    @Test
+    void nullParametersAreLoggedAsNullInsteadOfTheirSqlType() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        SqlLoggingProperties properties = new SqlLoggingProperties();
+        properties.setEnabled(true);
+        properties.setSampleRate(1);
+        DataSource dataSource = (DataSource) new SqlLoggingDataSourcePostProcessor(properties)
+                .postProcessAfterInitialization(target, "dataSource");
+
+        PreparedStatement statement = dataSource.getConnection()
+                .prepareStatement("UPDATE person SET note = ?, telephone = ?, city = ? WHERE id = ?");
+        statement.setNull(1, Types.VARCHAR);
+        statement.setObject(2, null);
+        statement.setString(3, "Praha");
+        statement.setLong(4, 7L);
+        statement.executeUpdate();
+
+        assertThat(appender.list).singleElement()
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .asString()
+                .endsWith("parameters=[1=NULL, 2=NULL, 3=Praha, 4=7]");
+    }
+}
@@ -0,0 +1,194 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that read endpoints return their JDBC connection to the pool before the response body
+ * is serialized, so a slow client or a large body doesn't keep a connection checked out.
+ * <p>
+ * The data source counts the connections checked out by each thread, and an advice that runs right
+ * before the message converter writes the body records the count of the request thread.
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(ConnectionReleaseTest.ConnectionTracking.class)
+class ConnectionReleaseTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    private PersonDTO seller;
+    private PersonDTO buyer;
+    private InvoiceDTO invoice;
+
+    @BeforeEach
+    void createInvoice() {
+        seller = personService.addPerson(TestData.person("Spojení Prodávající s.r.o."));
+        buyer = personService.addPerson(TestData.person("Spojení Kupující a.s."));
+        invoice = invoiceService.addInvoice(TestData.invoice(seller, buyer, "Spojení", BigDecimal.TEN));
+        ConnectionTracking.connectionsAtSerialization.set(-1);
+    }
+
+    @Test
+    void invoiceDetailReleasesConnectionBeforeSerialization() throws Exception {
+        mockMvc.perform(get("/api/invoices/{id}", invoice.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seller.name").value(seller.getName()))
+                .andExpect(jsonPath("$.buyer.name").value(buyer.getName()));
+
+        assertThat(ConnectionTracking.connectionsAtSerialization.get()).isZero();
+    }
+
+    @Test
+    void invoicePageReleasesConnectionBeforeSerialization() throws Exception {
+        mockMvc.perform(get("/api/invoices/identification/{ico}/sales", seller.getIdentificationNumber())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].buyer.name").value(buyer.getName()));
+
+        assertThat(ConnectionTracking.connectionsAtSerialization.get()).isZero();
+    }
+
+    @Test
+    void summaryPageReleasesConnectionBeforeSerialization() throws Exception {
+        mockMvc.perform(get("/api/invoices/summary").param("sellerId", seller.getIdentificationNumber())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].buyerName").value(buyer.getName()));
+
+        assertThat(ConnectionTracking.connectionsAtSerialization.get()).isZero();
+    }
+
+    @Test
+    void personDetailReleasesConnectionBeforeSerialization() throws Exception {
+        mockMvc.perform(get("/api/persons/{id}", seller.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(seller.getName()));
+
+        assertThat(ConnectionTracking.connectionsAtSerialization.get()).isZero();
+    }
+
+    /**
+     * Wraps the data source to count checked-out connections per thread and records the count
+     * of the request thread when the response body is about to be written.
+     */
+    @TestConfiguration
+    static class ConnectionTracking {
+
+        private static final ThreadLocal<AtomicInteger> checkedOut = ThreadLocal.withInitial(AtomicInteger::new);
+        static final AtomicInteger connectionsAtSerialization = new AtomicInteger(-1);
+
+        @Bean
+        static BeanPostProcessor connectionCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+                            ? new CountingDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+
+        @Bean
+        SerializationProbe serializationProbe() {
+            return new SerializationProbe();
+        }
+
+        private static final class CountingDataSource extends DelegatingDataSource {
+
+            private CountingDataSource(DataSource target) {
+                super(target);
+            }
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                return track(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return track(super.getConnection(username, password));
+            }
+
+            private Connection track(Connection connection) {
+                AtomicInteger counter = checkedOut.get();
+                counter.incrementAndGet();
+                AtomicBoolean closed = new AtomicBoolean();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                                counter.decrementAndGet();
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        }
+    }
+
+    @ControllerAdvice
+    static class SerializationProbe implements ResponseBodyAdvice<Object> {
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            ConnectionTracking.connectionsAtSerialization.set(ConnectionTracking.checkedOut.get().get());
+            return body;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests of the invoice read endpoints that return only the fields requested with the {@code fields} parameter.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvoiceFieldsTest {
+
+    private static final String FIELDS = "id,price,buyer.name,seller.id";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    private PersonDTO seller;
+    private PersonDTO buyer;
+    private InvoiceDTO invoice;
+
+    @BeforeEach
+    void createInvoice() {
+        seller = personService.addPerson(TestData.person("Pole Prodávající s.r.o."));
+        buyer = personService.addPerson(TestData.person("Pole Kupující a.s."));
+        invoice = invoiceService.addInvoice(TestData.invoice(seller, buyer, "Pole", BigDecimal.TEN));
+    }
+
+    @Test
+    void invoiceDetailContainsOnlyRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/invoices/{id}", invoice.getId()).param("fields", FIELDS)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(invoice.getId()))
+                .andExpect(jsonPath("$.price").value(10))
+                .andExpect(jsonPath("$.buyer.name").value(buyer.getName()))
+                .andExpect(jsonPath("$.buyer.id").doesNotExist())
+                .andExpect(jsonPath("$.seller.id").value(seller.getId()))
+                .andExpect(jsonPath("$.product").doesNotExist());
+    }
+
+    @Test
+    void summaryPageContainsOnlyRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/invoices/summary").param("fields", FIELDS)
+                        .param("sellerId", seller.getIdentificationNumber())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(invoice.getId()))
+                .andExpect(jsonPath("$.content[0].buyer.name").value(buyer.getName()))
+                .andExpect(jsonPath("$.content[0].invoiceNumber").doesNotExist());
+    }
+
+    @Test
+    void salesAndPurchasesContainOnlyRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/invoices/identification/{ico}/sales", seller.getIdentificationNumber())
+                        .param("fields", FIELDS)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].seller.id").value(seller.getId()))
+                .andExpect(jsonPath("$.content[0].note").doesNotExist());
+
+        mockMvc.perform(get("/api/invoices/identification/{ico}/purchases", buyer.getIdentificationNumber())
+                        .param("fields", FIELDS)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].buyer.name").value(buyer.getName()));
+    }
+
+    @Test
+    void unknownFieldIsRejected() throws Exception {
+        mockMvc.perform(get("/api/invoices/{id}", invoice.getId()).param("fields", "id,secret")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,76 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests of the batch lookup of invoice summaries by their IDs.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvoiceLookupTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    private PersonDTO buyer;
+    private final List<InvoiceDTO> invoices = new ArrayList<>();
+
+    @BeforeEach
+    void createInvoices() {
+        PersonDTO seller = personService.addPerson(TestData.person("Dávka Prodávající s.r.o."));
+        buyer = personService.addPerson(TestData.person("Dávka Kupující a.s."));
+        for (int i = 0; i < 3; i++) {
+            invoices.add(invoiceService.addInvoice(TestData.invoice(seller, buyer, "Dávka " + i, BigDecimal.TEN)));
+        }
+    }
+
+    @Test
+    void summariesAreReturnedInRequestedOrderWithoutMissingIds() throws Exception {
+        long missingId = invoices.get(2).getId() + 1_000_000;
+        String ids = invoices.get(2).getId() + "," + missingId + "," + invoices.get(0).getId();
+
+        mockMvc.perform(get("/api/invoices/lookup").param("ids", ids).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(invoices.get(2).getId()))
+                .andExpect(jsonPath("$[0].invoiceNumber").value(String.valueOf(invoices.get(2).getInvoiceNumber())))
+                .andExpect(jsonPath("$[0].product").value("Dávka 2"))
+                .andExpect(jsonPath("$[0].buyerName").value(buyer.getName()))
+                .andExpect(jsonPath("$[1].id").value(invoices.get(0).getId()));
+    }
+
+    @Test
+    void onlyMissingIdsGiveEmptyList() throws Exception {
+        mockMvc.perform(get("/api/invoices/lookup").param("ids", String.valueOf(invoices.get(2).getId() + 1_000_000))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+}
@@ -0,0 +1,61 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests of the list of overdue invoices.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvoiceOverdueTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Test
+    void overdueInvoicesAreListedWithTheirSummary() throws Exception {
+        PersonDTO seller = personService.addPerson(TestData.person("Splatnost Prodávající s.r.o."));
+        PersonDTO buyer = personService.addPerson(TestData.person("Splatnost Kupující a.s."));
+        InvoiceDTO overdue = TestData.invoice(seller, buyer, "Po splatnosti", BigDecimal.TEN);
+        overdue.setIssued(LocalDate.of(2001, 1, 1));
+        overdue.setDueDate(LocalDate.of(2001, 1, 15));
+        overdue = invoiceService.addInvoice(overdue);
+        InvoiceDTO notDue = invoiceService.addInvoice(TestData.invoice(seller, buyer, "Před splatností", BigDecimal.TEN));
+
+        String byId = "$.content[?(@.id == %d)]";
+        mockMvc.perform(get("/api/invoices/overdue").param("size", "100").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(byId + ".invoiceNumber", overdue.getId())
+                        .value(contains(String.valueOf(overdue.getInvoiceNumber()))))
+                .andExpect(jsonPath(byId + ".sellerName", overdue.getId()).value(contains(seller.getName())))
+                .andExpect(jsonPath("$.content[*].id").value(not(hasItem(notDue.getId().intValue()))));
+    }
+}
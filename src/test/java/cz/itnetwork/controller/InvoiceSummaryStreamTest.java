@@ -0,0 +1,129 @@
+package cz.itnetwork.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.InvoiceSummary;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests of the NDJSON stream of filtered invoice summaries.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvoiceSummaryStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    private PersonDTO seller;
+    private PersonDTO buyer;
+    private final List<InvoiceDTO> invoices = new ArrayList<>();
+
+    @BeforeEach
+    void createInvoices() {
+        seller = personService.addPerson(TestData.person("Proud Prodávající s.r.o."));
+        buyer = personService.addPerson(TestData.person("Proud Kupující a.s."));
+        for (int i = 0; i < 3; i++) {
+            invoices.add(invoiceService.addInvoice(TestData.invoice(seller, buyer, "Proud " + i, BigDecimal.valueOf(100 + i))));
+        }
+    }
+
+    @Test
+    void streamContainsOneSummaryPerLineOrderedById() throws Exception {
+        List<InvoiceSummary> summaries = stream(seller.getIdentificationNumber(), 0);
+
+        assertThat(summaries).extracting(InvoiceSummary::id)
+                .containsExactlyElementsOf(invoices.stream().map(InvoiceDTO::getId).toList());
+        InvoiceSummary first = summaries.get(0);
+        assertThat(first.invoiceNumber()).isEqualTo(String.valueOf(invoices.get(0).getInvoiceNumber()));
+        assertThat(first.buyerName()).isEqualTo(buyer.getName());
+        assertThat(first.sellerIdentificationNumber()).isEqualTo(seller.getIdentificationNumber());
+    }
+
+    @Test
+    void streamResumesAfterLastReceivedId() throws Exception {
+        List<InvoiceSummary> summaries = stream(seller.getIdentificationNumber(), invoices.get(0).getId());
+
+        assertThat(summaries).extracting(InvoiceSummary::id)
+                .containsExactly(invoices.get(1).getId(), invoices.get(2).getId());
+    }
+
+    @Test
+    void streamFiltersBySellerLikeSummaryPage() throws Exception {
+        PersonDTO edited = personService.getPerson(seller.getId());
+        edited.setCity("Brno");
+        PersonDTO newVersion = personService.editPerson(seller.getId(), edited);
+        invoiceService.addInvoice(TestData.invoice(newVersion, buyer, "Proud nová verze", BigDecimal.ONE));
+
+        MvcResult page = mockMvc.perform(get("/api/invoices/summary")
+                        .param("sellerId", seller.getIdentificationNumber())
+                        .param("size", "100"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Long> pageIds = new ArrayList<>();
+        objectMapper.readTree(page.getResponse().getContentAsString()).get("content")
+                .forEach(summary -> pageIds.add(summary.get("id").asLong()));
+
+        assertThat(stream(seller.getIdentificationNumber(), 0)).extracting(InvoiceSummary::id)
+                .containsExactlyElementsOf(pageIds);
+    }
+
+    @Test
+    void unknownSellerIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/invoices/summary/stream").param("sellerId", "00000001"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/invoices/summary").param("sellerId", "00000001"))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<InvoiceSummary> stream(String sellerId, long afterId) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/invoices/summary/stream")
+                        .param("sellerId", sellerId)
+                        .param("afterId", String.valueOf(afterId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<InvoiceSummary> summaries = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                summaries.add(objectMapper.readValue(line, InvoiceSummary.class));
+            }
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,93 @@
+package cz.itnetwork.controller;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.OutboxEventEntity;
+import cz.itnetwork.entity.repository.OutboxEventRepository;
+import cz.itnetwork.service.InvoiceService;
+import cz.itnetwork.service.PersonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that removing a single invoice or person publishes the removal once, however many times it is requested.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RemovalTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private PersonDTO seller;
+    private InvoiceDTO invoice;
+    private long lastEventId;
+
+    @BeforeEach
+    void createInvoice() {
+        seller = personService.addPerson(TestData.person("Odstranění Prodávající s.r.o."));
+        PersonDTO buyer = personService.addPerson(TestData.person("Odstranění Kupující a.s."));
+        invoice = invoiceService.addInvoice(TestData.invoice(seller, buyer, "Odstranění", BigDecimal.TEN));
+        lastEventId = outboxEventRepository.findMaxId();
+    }
+
+    @Test
+    void invoiceRemovalIsPublishedOnce() throws Exception {
+        mockMvc.perform(get("/api/invoices/summary").param("sellerId", seller.getIdentificationNumber()))
+                .andExpect(jsonPath("$.content.length()").value(1));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(delete("/api/invoices/{id}", invoice.getId())).andExpect(status().isNoContent());
+        }
+        mockMvc.perform(delete("/api/invoices/{id}", invoice.getId() + 1_000_000)).andExpect(status().isNoContent());
+
+        assertThat(removalsSinceSetUp(AggregateType.INVOICE)).containsExactly(invoice.getId());
+        mockMvc.perform(get("/api/invoices/summary").param("sellerId", seller.getIdentificationNumber()))
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
+    @Test
+    void personRemovalIsPublishedOnce() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(delete("/api/persons/{id}", seller.getId())).andExpect(status().isNoContent());
+        }
+        mockMvc.perform(delete("/api/persons/{id}", seller.getId() + 1_000_000)).andExpect(status().isNoContent());
+
+        assertThat(removalsSinceSetUp(AggregateType.PERSON)).containsExactly(seller.getId());
+    }
+
+    private List<Long> removalsSinceSetUp(AggregateType type) {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.getId() > lastEventId)
+                .filter(event -> event.getAggregateType() == type && event.getAction() == ChangeAction.REMOVED)
+                .map(OutboxEventEntity::getAggregateId)
+                .toList();
+    }
+}
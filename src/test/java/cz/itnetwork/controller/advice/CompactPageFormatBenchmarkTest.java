@@ -0,0 +1,96 @@
+package cz.itnetwork.controller.advice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PageEnvelope;
+import cz.itnetwork.dto.PersonDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the current JSON output of a page of invoices with the compact binary formats.
+ * <p>
+ * The mappers are built the same way as those of the MVC message converters. JSON serializes
+ * the full {@link PageImpl}, as existing clients receive it; CBOR and Smile serialize the
+ * {@link PageEnvelope} that {@link CompactPageResponseAdvice} substitutes for them.
+ * Run with {@code mvn test -Pbenchmark}.
+ * </p>
+ */
+@Tag("benchmark")
+class CompactPageFormatBenchmarkTest {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 2_000;
+
+    private static Page<InvoiceDTO> page;
+
+    @BeforeAll
+    static void createPage() {
+        List<PersonDTO> persons = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String identificationNumber = String.format("%08d", 10_000_000 + i);
+            persons.add(new PersonDTO((long) i + 1, "Firma " + i + " s.r.o.", identificationNumber, "CZ" + identificationNumber,
+                    String.valueOf(1_000_000 + i), "0100", "CZ6501000000000001000000", "+420 600 000 000",
+                    "firma" + i + "@example.com", "Hlavní " + i, "110 00", "Praha", Countries.CZECHIA, null, 0L));
+        }
+        List<InvoiceDTO> invoices = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            LocalDate issued = LocalDate.of(2026, 1, 1).plusDays(i % 365);
+            invoices.add(new InvoiceDTO((long) i + 1, 2026_0000 + i, issued, issued.plusDays(14), "Konzultace " + i,
+                    BigDecimal.valueOf(1000 + i, 2), 21, "Poznámka k faktuře " + i,
+                    persons.get(i % persons.size()), persons.get((i + 1) % persons.size()), 0L));
+        }
+        page = new PageImpl<>(invoices, PageRequest.of(0, PAGE_SIZE), PAGE_SIZE * 10L);
+    }
+
+    @Test
+    void binaryFormatsAreSmallerWithoutSlowerSerialization() throws Exception {
+        Result json = measure("JSON (Page)", Jackson2ObjectMapperBuilder.json().build(), page);
+        Result cbor = measure("CBOR (PageEnvelope)", Jackson2ObjectMapperBuilder.cbor().build(), PageEnvelope.of(page, true));
+        Result smile = measure("Smile (PageEnvelope)", Jackson2ObjectMapperBuilder.smile().build(), PageEnvelope.of(page, true));
+
+        System.out.printf(Locale.ROOT, "%-22s %10s %12s%n", "format", "bytes", "us/page");
+        for (Result result : List.of(json, cbor, smile)) {
+            System.out.printf(Locale.ROOT, "%-22s %10d %12.1f%n", result.format(), result.bytes(), result.nanosPerPage() / 1000.0);
+        }
+
+        assertThat(cbor.bytes()).isLessThan(json.bytes());
+        assertThat(smile.bytes()).isLessThan(json.bytes());
+        // Timing varies between machines, so only a clear regression fails the benchmark.
+        assertThat(cbor.nanosPerPage()).isLessThan(json.nanosPerPage() * 1.5);
+        assertThat(smile.nanosPerPage()).isLessThan(json.nanosPerPage() * 1.5);
+    }
+
+    private Result measure(String format, ObjectMapper mapper, Object value) throws Exception {
+        int bytes = mapper.writeValueAsBytes(value).length;
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += mapper.writeValueAsBytes(value).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += mapper.writeValueAsBytes(value).length;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink).isPositive();
+        return new Result(format, bytes, (double) elapsed / MEASURED_ITERATIONS);
+    }
+
+    private record Result(String format, int bytes, double nanosPerPage) {
+    }
+}
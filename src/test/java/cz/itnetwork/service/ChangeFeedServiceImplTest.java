@@ -0,0 +1,141 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.service.event.DomainEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that a client which stops reading can't stall the change feed of the other subscribers.
+ */
+class ChangeFeedServiceImplTest {
+
+    private static final long SEND_TIMEOUT_MILLIS = 100;
+
+    private final Deque<RecordingEmitter> emitters = new ArrayDeque<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ChangeFeedServiceImpl changeFeed = new ChangeFeedServiceImpl(16, 1, 60_000, SEND_TIMEOUT_MILLIS, 32) {
+        @Override
+        SseEmitter createEmitter(long timeout) {
+            return emitters.removeFirst();
+        }
+    };
+    private long sequence;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void stalledSubscriberIsDisconnectedAndOthersKeepReceivingEvents() throws Exception {
+        RecordingEmitter slow = subscribe(true);
+        publish();
+        awaitTrue(() -> slow.blocked.getCount() == 0);
+        RecordingEmitter fast = subscribe(false);
+
+        // The only dispatcher thread is stuck sending to the slow subscriber.
+        publish();
+        Thread.sleep(2 * SEND_TIMEOUT_MILLIS);
+        assertThat(fast.events.get()).isZero();
+
+        changeFeed.disconnectStalled();
+
+        awaitTrue(() -> fast.events.get() == 1);
+        assertThat(slow.completed.get()).isZero();
+        release.countDown();
+        awaitTrue(() -> slow.completed.get() == 1);
+
+        publish();
+        awaitTrue(() -> fast.events.get() == 2);
+        assertThat(slow.events.get()).isEqualTo(1);
+    }
+
+    @Test
+    void heartbeatsAreSentOnlyToIdleSubscribersOnTheirOwnThread() {
+        RecordingEmitter slow = subscribe(true);
+        publish();
+        awaitTrue(() -> slow.blocked.getCount() == 0);
+        RecordingEmitter idle = subscribe(false);
+
+        for (int i = 0; i < 3; i++) {
+            changeFeed.sendHeartbeat();
+            int expected = i + 1;
+            awaitTrue(() -> idle.heartbeats.get() == expected);
+        }
+
+        assertThat(slow.heartbeats.get()).isZero();
+    }
+
+    private RecordingEmitter subscribe(boolean blocking) {
+        RecordingEmitter emitter = new RecordingEmitter(blocking ? release : null);
+        emitters.add(emitter);
+        assertThat(changeFeed.subscribe(null)).isSameAs(emitter);
+        return emitter;
+    }
+
+    private void publish() {
+        sequence++;
+        changeFeed.onEvents(List.of(new DomainEvent(sequence, AggregateType.INVOICE, ChangeAction.CREATED, sequence, null, Instant.now())));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError("Podmínka nebyla splněna včas.");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * An emitter that counts what is sent to it and can block its first send, like a client that stopped reading.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final AtomicInteger events = new AtomicInteger();
+        private final AtomicInteger heartbeats = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            boolean heartbeat = builder.build().stream().anyMatch(data -> data.getData().toString().contains("heartbeat"));
+            (heartbeat ? heartbeats : events).incrementAndGet();
+            if (release != null) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.incrementAndGet();
+        }
+    }
+}
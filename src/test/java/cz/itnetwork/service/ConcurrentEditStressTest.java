@@ -0,0 +1,175 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import cz.itnetwork.entity.PersonEntity;
+import cz.itnetwork.entity.repository.PersonRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races concurrent edits of the same version of an invoice or a person and checks that exactly one
+ * of them creates a successor while all the others are rejected with 409 Conflict.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ConcurrentEditStressTest {
+
+    private static final int EDITORS = 8;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Test
+    void twoConcurrentInvoiceEditsOneSucceedsOtherConflicts() throws Exception {
+        PersonDTO seller = personService.addPerson(TestData.person("Souběh Prodávající s.r.o."));
+        PersonDTO buyer = personService.addPerson(TestData.person("Souběh Kupující a.s."));
+        InvoiceDTO invoice = invoiceService.addInvoice(TestData.invoice(seller, buyer, "Původní", BigDecimal.TEN));
+
+        List<Outcome<InvoiceDTO>> outcomes = race(2, editor -> () -> invoiceService.editInvoice(invoice.getId(),
+                edited(invoice, "Úprava " + editor)));
+
+        assertThat(outcomes).filteredOn(Outcome::succeeded).hasSize(1);
+        assertThat(outcomes).filteredOn(outcome -> !outcome.succeeded())
+                .singleElement()
+                .satisfies(outcome -> assertThat(outcome.status()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(visibleInvoiceCount(seller)).isEqualTo(1);
+    }
+
+    @Test
+    void exactlyOneInvoiceSuccessorPerVersionUnderContention() throws Exception {
+        PersonDTO seller = personService.addPerson(TestData.person("Zátěž Prodávající s.r.o."));
+        PersonDTO buyer = personService.addPerson(TestData.person("Zátěž Kupující a.s."));
+        InvoiceDTO current = invoiceService.addInvoice(TestData.invoice(seller, buyer, "Verze 0", BigDecimal.TEN));
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            InvoiceDTO read = current;
+            int version = round;
+            List<Outcome<InvoiceDTO>> outcomes = race(EDITORS, editor -> () -> invoiceService.editInvoice(read.getId(),
+                    edited(read, "Verze " + version + " editor " + editor)));
+
+            List<InvoiceDTO> successors = outcomes.stream().filter(Outcome::succeeded).map(Outcome::result).toList();
+            assertThat(successors).as("successors in round %d", round).hasSize(1);
+            assertThat(outcomes).filteredOn(outcome -> !outcome.succeeded())
+                    .hasSize(EDITORS - 1)
+                    .allSatisfy(outcome -> assertThat(outcome.status()).isEqualTo(HttpStatus.CONFLICT));
+            assertThat(visibleInvoiceCount(seller)).as("visible invoices in round %d", round).isEqualTo(1);
+            current = successors.get(0);
+        }
+    }
+
+    @Test
+    void exactlyOnePersonSuccessorPerVersionUnderContention() throws Exception {
+        PersonDTO current = personService.addPerson(TestData.person("Souběžná osoba s.r.o."));
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            PersonDTO read = current;
+            List<Outcome<PersonDTO>> outcomes = race(EDITORS, editor -> () -> personService.editPerson(read.getId(),
+                    renamed(read, read.getName() + " " + editor)));
+
+            List<PersonDTO> successors = outcomes.stream().filter(Outcome::succeeded).map(Outcome::result).toList();
+            assertThat(successors).as("successors in round %d", round).hasSize(1);
+            assertThat(outcomes).filteredOn(outcome -> !outcome.succeeded())
+                    .hasSize(EDITORS - 1)
+                    .allSatisfy(outcome -> assertThat(outcome.status()).isEqualTo(HttpStatus.CONFLICT));
+            assertThat(personRepository.findByIdentificationNumber(read.getIdentificationNumber()))
+                    .filteredOn(person -> !person.isHidden())
+                    .extracting(PersonEntity::getId)
+                    .containsExactly(successors.get(0).getId());
+            current = successors.get(0);
+        }
+    }
+
+    /**
+     * Starts the editors at the same moment and collects their outcomes.
+     */
+    private <T> List<Outcome<T>> race(int editors, IntFunction<Callable<T>> editor) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(editors);
+        try {
+            CountDownLatch ready = new CountDownLatch(editors);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < editors; i++) {
+                Callable<T> edit = editor.apply(i);
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return edit.call();
+                }));
+            }
+            ready.await();
+            start.countDown();
+
+            List<Outcome<T>> outcomes = new ArrayList<>();
+            for (Future<T> future : futures) {
+                try {
+                    outcomes.add(new Outcome<>(future.get(30, TimeUnit.SECONDS), null));
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof ResponseStatusException rejection)) {
+                        throw new AssertionError("Úprava selhala jinak než konfliktem.", e.getCause());
+                    }
+                    outcomes.add(new Outcome<>(null, HttpStatus.valueOf(rejection.getStatusCode().value())));
+                } catch (TimeoutException e) {
+                    throw new AssertionError("Úprava nedoběhla včas.", e);
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long visibleInvoiceCount(PersonDTO seller) {
+        return invoiceService.getInvoicesBySellerIdentificationNumber(seller.getIdentificationNumber(), Pageable.unpaged())
+                .getTotalElements();
+    }
+
+    private InvoiceDTO edited(InvoiceDTO read, String product) {
+        return new InvoiceDTO(read.getId(), read.getInvoiceNumber(), read.getIssued(), read.getDueDate(), product,
+                read.getPrice(), read.getVat(), read.getNote(), read.getBuyer(), read.getSeller(), read.getVersion());
+    }
+
+    private PersonDTO renamed(PersonDTO read, String name) {
+        return new PersonDTO(read.getId(), name, read.getIdentificationNumber(), read.getTaxNumber(), read.getAccountNumber(),
+                read.getBankCode(), read.getIban(), read.getTelephone(), read.getMail(), read.getStreet(), read.getZip(),
+                read.getCity(), read.getCountry(), read.getNote(), read.getVersion());
+    }
+
+    /**
+     * The result of one editor: the successor it created, or the status it was rejected with.
+     */
+    private record Outcome<T>(T result, HttpStatus status) {
+
+        boolean succeeded() {
+            return status == null;
+        }
+    }
+}
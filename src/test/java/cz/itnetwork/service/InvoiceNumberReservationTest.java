@@ -0,0 +1,70 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.InvoiceDTO;
+import cz.itnetwork.dto.PersonDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that writers reserving blocks of invoice numbers don't exhaust the application's connection pool:
+ * every writer holds a connection for its invoice while it reserves a block, so with reservations taken
+ * from the same pool, as many writers as the pool has connections would wait for each other.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=3000"
+})
+@ActiveProfiles("test")
+class InvoiceNumberReservationTest {
+
+    private static final int WRITERS = 8;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Test
+    void concurrentWritersReservingBlocksDoNotExhaustPool() throws Exception {
+        PersonDTO buyer = personService.addPerson(TestData.person("Rezervace Kupující a.s."));
+        // Each seller has its own counter, so every writer has to reserve a block.
+        List<PersonDTO> sellers = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            sellers.add(personService.addPerson(TestData.person("Rezervace Prodávající " + i + " s.r.o.")));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<InvoiceDTO>> writers = new ArrayList<>();
+            for (PersonDTO seller : sellers) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    return invoiceService.addInvoice(TestData.invoice(seller, buyer, "Rezervace", BigDecimal.TEN));
+                }));
+            }
+            start.countDown();
+
+            for (Future<InvoiceDTO> writer : writers) {
+                assertThat(writer.get(30, TimeUnit.SECONDS).getInvoiceNumber()).isPositive();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cz.itnetwork.service;
+
+import cz.itnetwork.TestData;
+import cz.itnetwork.dto.PersonDTO;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the throughput of the batch PDF export in pages per second, from reading the invoices
+ * to the finished ZIP archive. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class InvoicePdfBatchBenchmarkTest {
+
+    private static final int INVOICE_COUNT = 1_000;
+    private static final int RUNS = 3;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoicePdfService invoicePdfService;
+
+    @Test
+    void rendersFilteredInvoicesIntoZipArchive() throws Exception {
+        PersonDTO seller = personService.addPerson(TestData.person("Export Prodávající s.r.o."));
+        PersonDTO buyer = personService.addPerson(TestData.person("Export Kupující a.s."));
+        for (int i = 0; i < INVOICE_COUNT; i++) {
+            invoiceService.addInvoice(TestData.invoice(seller, buyer, "Položka " + i, BigDecimal.valueOf(1_000 + i)));
+        }
+
+        // The first run warms up the renderer and the queries.
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        assertThat(invoicePdfService.renderInvoicesZip(archive, null, seller.getIdentificationNumber(), null, null, null))
+                .isEqualTo(INVOICE_COUNT);
+        assertThat(countPdfEntries(archive.toByteArray())).isEqualTo(INVOICE_COUNT);
+
+        double best = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            invoicePdfService.renderInvoicesZip(new ByteArrayOutputStream(), null, seller.getIdentificationNumber(), null, null, null);
+            double pagesPerSecond = INVOICE_COUNT / ((System.nanoTime() - start) / 1e9);
+            best = Math.max(best, pagesPerSecond);
+            System.out.printf(Locale.ROOT, "PDF batch run %d: %.1f pages/s%n", run + 1, pagesPerSecond);
+        }
+        System.out.printf(Locale.ROOT, "PDF batch best: %.1f pages/s with %d processors%n",
+                best, Runtime.getRuntime().availableProcessors());
+        assertThat(best).isPositive();
+    }
+
+    private int countPdfEntries(byte[] archive) throws Exception {
+        int count = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertThat(entry.getName()).endsWith(".pdf");
+                assertThat(new String(zip.readNBytes(5), StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,202 @@
+package cz.itnetwork.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests of {@link InvoiceSummaryCache}, above all that a page computed before a write is never
+ * served after the write has committed.
+ */
+class InvoiceSummaryCacheTest {
+
+    private static final String OPERATION = "InvoiceService.getFilteredInvoiceSummaries";
+    private static final String SELLER = "12345678";
+    private static final List<Object> SELLER_PAGE = List.of("page 0", SELLER);
+
+    private final InvoiceSummaryCache cache = new InvoiceSummaryCache(new SingleFlight(), true, 100, 60);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callerArrivingAfterWriteDoesNotReceiveOrCacheQueryStartedBeforeIt() throws Exception {
+        AtomicReference<String> database = new AtomicReference<>("before");
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+
+        // A query that reads the data before the write and is still running when the write commits.
+        Future<String> slowQuery = executor.submit(() -> cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> {
+            String page = database.get();
+            queryStarted.countDown();
+            await(releaseQuery);
+            return page;
+        }));
+        assertThat(queryStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        database.set("after");
+        cache.invalidateParties(List.of(SELLER));
+
+        // The caller reads the new generation; it must run its own query instead of joining the running one.
+        Future<String> laterCaller = executor.submit(() -> cache.get(OPERATION, SELLER_PAGE, null, SELLER, database::get));
+        assertThat(laterCaller.get(5, TimeUnit.SECONDS)).isEqualTo("after");
+
+        releaseQuery.countDown();
+        assertThat(slowQuery.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+
+        // The slow result must neither replace nor be cached next to the current one.
+        assertThat(cache.get(OPERATION, SELLER_PAGE, null, SELLER, failIfQueried())).isEqualTo("after");
+    }
+
+    @Test
+    void resultOfQueryDuringWhichWriteCommittedIsNotCached() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        Future<String> slowQuery = executor.submit(() -> cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> {
+            queryStarted.countDown();
+            await(releaseQuery);
+            return "before";
+        }));
+        assertThat(queryStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        cache.invalidateParties(List.of(SELLER));
+        releaseQuery.countDown();
+        assertThat(slowQuery.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+
+        assertThat(cache.getMetrics().size()).isZero();
+        assertThat(cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "after")).isEqualTo("after");
+    }
+
+    @Test
+    void concurrentMissesOfSameGenerationShareOneQuery() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        Supplier<String> query = () -> {
+            queries.incrementAndGet();
+            await(releaseQuery);
+            return "page";
+        };
+        Future<String> first = executor.submit(() -> cache.get(OPERATION, SELLER_PAGE, null, SELLER, query));
+        while (queries.get() == 0) {
+            Thread.onSpinWait();
+        }
+        Future<String> second = executor.submit(() -> cache.get(OPERATION, SELLER_PAGE, null, SELLER, query));
+        // Give the second caller time to join the running query.
+        Thread.sleep(100);
+        releaseQuery.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("page");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("page");
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    void writeInvalidatesOnlyPagesOfItsPartiesAndUnfilteredPages() {
+        List<Object> otherSellerPage = List.of("page 0", "87654321");
+        List<Object> unfilteredPage = List.of("page 0");
+        cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "seller");
+        cache.get(OPERATION, otherSellerPage, null, "87654321", () -> "other seller");
+        cache.get(OPERATION, unfilteredPage, null, null, () -> "all");
+
+        cache.invalidateParties(List.of(SELLER, "11111111"));
+
+        assertThat(cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "seller 2")).isEqualTo("seller 2");
+        assertThat(cache.get(OPERATION, otherSellerPage, null, "87654321", failIfQueried())).isEqualTo("other seller");
+        assertThat(cache.get(OPERATION, unfilteredPage, null, null, () -> "all 2")).isEqualTo("all 2");
+    }
+
+    @Test
+    void writeInvalidatesPagesOfItsPartyAlsoWhenMorePartiesThanCountersAreWritten() {
+        for (int i = 0; i < 10_000; i++) {
+            String party = String.format("%08d", i);
+            cache.get(OPERATION, List.of("page 0", party), null, party, () -> "before");
+            cache.invalidateParties(List.of(party));
+            assertThat(cache.get(OPERATION, List.of("page 0", party), null, party, () -> "after")).isEqualTo("after");
+        }
+    }
+
+    @Test
+    void writeWithUnknownPartiesInvalidatesAllPages() {
+        cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "seller");
+
+        cache.invalidateAll();
+
+        assertThat(cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "seller 2")).isEqualTo("seller 2");
+    }
+
+    @Test
+    void invalidationTakesEffectOnlyAfterCommit() {
+        cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "before");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateParties(List.of(SELLER));
+            // Until the commit, other transactions still read the old data, so the page stays valid.
+            assertThat(cache.get(OPERATION, SELLER_PAGE, null, SELLER, failIfQueried())).isEqualTo("before");
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "after")).isEqualTo("after");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPageAndCountsHits() {
+        InvoiceSummaryCache small = new InvoiceSummaryCache(new SingleFlight(), true, 2, 60);
+        small.get(OPERATION, List.of("a"), null, null, () -> "a");
+        small.get(OPERATION, List.of("b"), null, null, () -> "b");
+        small.get(OPERATION, List.of("a"), null, null, failIfQueried());
+        small.get(OPERATION, List.of("c"), null, null, () -> "c");
+
+        assertThat(small.get(OPERATION, List.of("a"), null, null, failIfQueried())).isEqualTo("a");
+        assertThat(small.get(OPERATION, List.of("b"), null, null, () -> "b 2")).isEqualTo("b 2");
+        assertThat(small.getMetrics().evictions()).isEqualTo(2);
+        assertThat(small.getMetrics().hits()).isEqualTo(2);
+        assertThat(small.getMetrics().misses()).isEqualTo(4);
+        assertThat(small.getMetrics().hitRatio()).isEqualTo(2.0 / 6);
+        assertThat(small.getMetrics().size()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledCacheAlwaysRunsQuery() {
+        InvoiceSummaryCache disabled = new InvoiceSummaryCache(new SingleFlight(), false, 100, 60);
+        disabled.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "first");
+
+        assertThat(disabled.get(OPERATION, SELLER_PAGE, null, SELLER, () -> "second")).isEqualTo("second");
+        assertThat(disabled.getMetrics().maxEntries()).isZero();
+    }
+
+    private static Supplier<String> failIfQueried() {
+        return () -> {
+            throw new AssertionError("Stránka měla být vrácena z cache.");
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("Dotaz nebyl uvolněn včas.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+}
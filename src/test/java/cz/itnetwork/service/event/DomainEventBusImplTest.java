@@ -0,0 +1,202 @@
+package cz.itnetwork.service.event;
+
+import cz.itnetwork.constant.AggregateType;
+import cz.itnetwork.constant.ChangeAction;
+import cz.itnetwork.dto.ConsumerMetricsDTO;
+import cz.itnetwork.entity.OutboxEventEntity;
+import cz.itnetwork.entity.repository.OutboxEventRepository;
+import cz.itnetwork.service.shard.SingleShardOperations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of {@link DomainEventBusImpl}: a projection that can't process an event must not stall the pipeline,
+ * a full buffer delays a transaction at most once, and dropped events are redelivered from the outbox.
+ */
+class DomainEventBusImplTest {
+
+    private static final long PUBLISH_TIMEOUT_MILLIS = 200;
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final Map<Long, OutboxEventEntity> outbox = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private DomainEventBusImpl bus;
+
+    DomainEventBusImplTest() {
+        when(outboxEventRepository.save(any())).thenAnswer(invocation -> store(invocation.getArgument(0)));
+        when(outboxEventRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<OutboxEventEntity> outboxEvents = invocation.getArgument(0);
+            outboxEvents.forEach(this::store);
+            return outboxEvents;
+        });
+        when(outboxEventRepository.findByProcessedFalseOrderById()).thenReturn(List.of());
+        when(outboxEventRepository.markProcessed(any())).thenAnswer(invocation -> {
+            List<Long> processed = List.copyOf(invocation.getArgument(0));
+            processed.forEach(id -> outbox.get(id).setProcessed(true));
+            return processed.size();
+        });
+        when(outboxEventRepository.findByProcessedFalseAndOccurredAtBeforeOrderById(any(), any())).thenAnswer(invocation ->
+                outbox.values().stream().filter(outboxEvent -> !outboxEvent.isProcessed()).toList());
+    }
+
+    @AfterEach
+    void stop() {
+        if (bus != null) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    void eventProjectionCannotProcessIsSkippedAndOthersAreDelivered() {
+        RecordingProjection failing = new RecordingProjection("Failing", event -> {
+            if (event.id() == 2L) {
+                throw new IllegalStateException("Nelze zpracovat.");
+            }
+        });
+        RecordingProjection healthy = new RecordingProjection("Healthy", event -> {
+        });
+        bus = start(1024, failing, healthy);
+
+        for (long id = 1; id <= 3; id++) {
+            bus.publish(AggregateType.INVOICE, ChangeAction.CREATED, id, null);
+        }
+
+        awaitTrue(() -> outbox.values().stream().allMatch(OutboxEventEntity::isProcessed));
+        assertThat(healthy.ids()).containsExactly(1L, 2L, 3L);
+        assertThat(failing.ids()).containsExactly(1L, 3L);
+        ConsumerMetricsDTO failingMetrics = metrics("Failing");
+        assertThat(failingMetrics.skippedEvents()).isEqualTo(1);
+        assertThat(metrics("Healthy").skippedEvents()).isZero();
+    }
+
+    @Test
+    void fullBufferDelaysTransactionOnceAndDroppedEventsAreRedelivered() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingProjection blocked = new RecordingProjection("Blocked", event -> await(release));
+        bus = start(4, blocked);
+
+        // The consumer blocks on the first event, which with the next three fills the buffer.
+        bus.publish(AggregateType.PERSON, ChangeAction.CREATED, 1L, null);
+        awaitTrue(() -> blocked.attempts.get() > 0);
+        bus.publishAll(AggregateType.PERSON, ChangeAction.CREATED, List.of(2L, 3L, 4L));
+
+        long start = System.nanoTime();
+        bus.publishAll(AggregateType.PERSON, ChangeAction.CREATED, List.of(5L, 6L, 7L, 8L));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis).isBetween(PUBLISH_TIMEOUT_MILLIS, 2 * PUBLISH_TIMEOUT_MILLIS);
+        assertThat(bus.getMetrics().droppedEvents()).isEqualTo(4);
+
+        release.countDown();
+        awaitTrue(() -> blocked.ids().size() == 4);
+        // A poll redelivers at most half of the buffer.
+        bus.redeliverUnprocessed();
+        awaitTrue(() -> blocked.ids().size() == 6);
+        bus.redeliverUnprocessed();
+
+        awaitTrue(() -> outbox.values().stream().allMatch(OutboxEventEntity::isProcessed));
+        assertThat(blocked.ids()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(bus.getMetrics().redeliveredEvents()).isEqualTo(4);
+    }
+
+    @Test
+    void pollDoesNotRedeliverEventsStillInBuffer() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingProjection blocked = new RecordingProjection("Blocked", event -> await(release));
+        bus = start(1024, blocked);
+
+        bus.publishAll(AggregateType.PERSON, ChangeAction.CREATED, List.of(1L, 2L, 3L));
+        awaitTrue(() -> blocked.attempts.get() > 0);
+        bus.redeliverUnprocessed();
+        release.countDown();
+
+        awaitTrue(() -> outbox.values().stream().allMatch(OutboxEventEntity::isProcessed));
+        assertThat(blocked.ids()).containsExactly(1L, 2L, 3L);
+        assertThat(bus.getMetrics().redeliveredEvents()).isZero();
+    }
+
+    private DomainEventBusImpl start(int bufferSize, DomainEventProjection... projections) {
+        DomainEventBusImpl started = new DomainEventBusImpl(outboxEventRepository, new SingleShardOperations(),
+                List.of(projections), bufferSize, 1, PUBLISH_TIMEOUT_MILLIS, 2, 7, 0);
+        started.start();
+        return started;
+    }
+
+    private OutboxEventEntity store(OutboxEventEntity outboxEvent) {
+        outboxEvent.setId(ids.incrementAndGet());
+        outbox.put(outboxEvent.getId(), outboxEvent);
+        return outboxEvent;
+    }
+
+    private ConsumerMetricsDTO metrics(String name) {
+        return bus.getMetrics().consumers().stream()
+                .filter(consumer -> consumer.name().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError("Podmínka nebyla splněna včas.");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A projection that records the IDs of the objects whose events it has processed.
+     */
+    private static final class RecordingProjection implements DomainEventProjection {
+
+        private final String name;
+        private final Consumer<DomainEvent> handler;
+        private final List<Long> processed = new CopyOnWriteArrayList<>();
+        private final AtomicLong attempts = new AtomicLong();
+
+        private RecordingProjection(String name, Consumer<DomainEvent> handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+
+        @Override
+        public String getProjectionName() {
+            return name;
+        }
+
+        @Override
+        public void onEvents(List<DomainEvent> events) {
+            attempts.incrementAndGet();
+            events.forEach(handler);
+            events.forEach(event -> processed.add(event.id()));
+        }
+
+        private List<Long> ids() {
+            return processed;
+        }
+    }
+}
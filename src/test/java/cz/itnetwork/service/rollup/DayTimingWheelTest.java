@@ -0,0 +1,126 @@
+package cz.itnetwork.service.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests of {@link DayTimingWheel}: timers must expire exactly on their day, whether they start
+ * in the inner wheel, the outer wheel or the overflow, and however the wheel is advanced.
+ */
+class DayTimingWheelTest {
+
+    /**
+     * Three days before the start of an outer revolution, so the first days cross the boundary
+     * of an inner revolution and of an outer revolution at once.
+     */
+    private static final long START = 5 * 4096 - 3;
+
+    @Test
+    void timersExpireOnTheirDayAcrossCascadesAndOverflow() {
+        DayTimingWheel wheel = new DayTimingWheel(START);
+        long[] offsets = {1, 3, 4, 63, 64, 65, 67, 128, 200, 4093, 4096, 4097, 4160, 4163, 8192, 10_000, 20_000};
+        for (long offset : offsets) {
+            wheel.schedule(offset, START + offset);
+        }
+
+        Map<Long, Long> expiredOn = new HashMap<>();
+        for (long day = START + 1; day <= START + 20_001; day++) {
+            wheel.advanceTo(day, id -> assertThat(expiredOn.put(id, wheel.getCurrentDay())).isNull());
+        }
+
+        assertThat(expiredOn).hasSize(offsets.length);
+        for (long offset : offsets) {
+            assertThat(expiredOn.get(offset)).as("timer %d", offset).isEqualTo(START + offset);
+        }
+    }
+
+    @Test
+    void singleLongAdvanceReportsTimersInOrderOfTheirDays() {
+        DayTimingWheel wheel = new DayTimingWheel(START);
+        wheel.schedule(1, START + 9_000);
+        wheel.schedule(2, START + 2);
+        wheel.schedule(3, START + 300);
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advanceTo(START + 10_000, expired::add);
+
+        assertThat(expired).containsExactly(2L, 3L, 1L);
+        assertThat(wheel.getCurrentDay()).isEqualTo(START + 10_000);
+    }
+
+    @Test
+    void cancelledAndRescheduledTimersExpireOnlyOnTheirLastSchedule() {
+        DayTimingWheel wheel = new DayTimingWheel(START);
+        wheel.schedule(1, START + 10);
+        wheel.schedule(2, START + 5_000);
+        wheel.schedule(1, START + 700);
+        wheel.cancel(2);
+        wheel.cancel(3);
+
+        Map<Long, Long> expiredOn = new HashMap<>();
+        wheel.advanceTo(START + 6_000, id -> expiredOn.put(id, wheel.getCurrentDay()));
+
+        assertThat(expiredOn).containsExactly(Map.entry(1L, START + 700));
+    }
+
+    @Test
+    void expiredTimerCanBeScheduledAgainFromCallback() {
+        DayTimingWheel wheel = new DayTimingWheel(START);
+        wheel.schedule(1, START + 30);
+
+        List<Long> days = new ArrayList<>();
+        wheel.advanceTo(START + 200, id -> {
+            days.add(wheel.getCurrentDay());
+            wheel.schedule(id, wheel.getCurrentDay() + 30);
+        });
+
+        assertThat(days).containsExactly(START + 30, START + 60, START + 90, START + 120, START + 150, START + 180);
+    }
+
+    @Test
+    void timerCannotExpireInThePast() {
+        DayTimingWheel wheel = new DayTimingWheel(START);
+
+        assertThatThrownBy(() -> wheel.schedule(1, START)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void randomSchedulesExpireLikeInSimpleModel() {
+        Random random = new Random(42);
+        long start = random.nextInt(100_000);
+        DayTimingWheel wheel = new DayTimingWheel(start);
+        Map<Long, Long> expected = new HashMap<>();
+        Map<Long, Long> expiredOn = new HashMap<>();
+
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 20; i++) {
+                long id = random.nextInt(1_000);
+                long day = wheel.getCurrentDay() + 1 + random.nextInt(30_000);
+                wheel.schedule(id, day);
+                expected.put(id, day);
+            }
+            long cancelled = random.nextInt(1_000);
+            wheel.cancel(cancelled);
+            expected.remove(cancelled);
+
+            long target = wheel.getCurrentDay() + 1 + random.nextInt(500);
+            wheel.advanceTo(target, id -> expiredOn.put(id, wheel.getCurrentDay()));
+            expected.entrySet().removeIf(timer -> {
+                if (timer.getValue() > target) {
+                    return false;
+                }
+                assertThat(expiredOn.remove(timer.getKey())).as("timer %d", timer.getKey()).isEqualTo(timer.getValue());
+                return true;
+            });
+            assertThat(expiredOn).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.constant.AnalyticsDimension;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.AnalyticsGroupDTO;
+import cz.itnetwork.dto.InvoiceAnalyticsDTO;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Tests of the groups aggregated by {@link InvoiceColumnStore} for every dimension.
+ */
+class InvoiceColumnStoreTest {
+
+    private final InvoiceColumnStore store = new InvoiceColumnStore(2);
+
+    @AfterEach
+    void shutdown() {
+        store.shutdown();
+    }
+
+    @Test
+    void emptyStoreHasNoGroups() {
+        InvoiceAnalyticsDTO analytics = aggregate(AnalyticsDimension.MONTH);
+
+        assertThat(analytics.scannedInvoices()).isZero();
+        assertThat(analytics.groups()).isEmpty();
+    }
+
+    @Test
+    void invoicesAreGroupedByEveryDimension() {
+        store.onRebuild(List.of(
+                invoice(1, "111", Countries.CZECHIA, "222", null, "100.00", 21, LocalDate.of(2025, 12, 31)),
+                invoice(2, "111", Countries.CZECHIA, "333", Countries.SLOVAKIA, "50.00", 0, LocalDate.of(2026, 1, 1)),
+                invoice(3, "222", null, "333", Countries.SLOVAKIA, "10.00", 21, LocalDate.of(2026, 3, 15))));
+
+        assertThat(groups(AnalyticsDimension.SELLER)).containsExactly(
+                tuple("111", 2L, "150.00", "21.00"),
+                tuple("222", 1L, "10.00", "2.10"));
+        assertThat(groups(AnalyticsDimension.BUYER)).containsExactly(
+                tuple("222", 1L, "100.00", "21.00"),
+                tuple("333", 2L, "60.00", "2.10"));
+        assertThat(groups(AnalyticsDimension.MONTH)).containsExactly(
+                tuple("2025-12", 1L, "100.00", "21.00"),
+                tuple("2026-01", 1L, "50.00", "0.00"),
+                tuple("2026-03", 1L, "10.00", "2.10"));
+        assertThat(groups(AnalyticsDimension.YEAR)).containsExactly(
+                tuple("2025", 1L, "100.00", "21.00"),
+                tuple("2026", 2L, "60.00", "2.10"));
+        assertThat(groups(AnalyticsDimension.VAT_RATE)).containsExactly(
+                tuple("21", 2L, "110.00", "23.10"),
+                tuple("0", 1L, "50.00", "0.00"));
+        assertThat(groups(AnalyticsDimension.SELLER_COUNTRY)).containsExactly(
+                tuple("CZECHIA", 2L, "150.00", "21.00"),
+                tuple(null, 1L, "10.00", "2.10"));
+        assertThat(groups(AnalyticsDimension.BUYER_COUNTRY)).containsExactly(
+                tuple(null, 1L, "100.00", "21.00"),
+                tuple("SLOVAKIA", 2L, "60.00", "2.10"));
+    }
+
+    @Test
+    void removedInvoiceLeavesNoEmptyGroup() {
+        InvoiceSnapshot removed = invoice(1, "111", Countries.CZECHIA, "222", Countries.CZECHIA, "100.00", 21, LocalDate.of(2020, 5, 1));
+        store.onAdded(removed);
+        store.onAdded(invoice(2, "333", Countries.CZECHIA, "222", Countries.CZECHIA, "40.00", 10, LocalDate.of(2026, 5, 1)));
+        store.onRemoved(removed);
+
+        assertThat(groups(AnalyticsDimension.SELLER)).containsExactly(tuple("333", 1L, "40.00", "4.00"));
+        assertThat(groups(AnalyticsDimension.YEAR)).containsExactly(tuple("2026", 1L, "40.00", "4.00"));
+        assertThat(groups(AnalyticsDimension.VAT_RATE)).containsExactly(tuple("10", 1L, "40.00", "4.00"));
+    }
+
+    @Test
+    void groupsOfLargeStoreAreMergedFromParallelScans() {
+        List<InvoiceSnapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            snapshots.add(invoice(i, "S" + i % 7, Countries.CZECHIA, "B", null, "1.00", 0, LocalDate.of(2026, i % 12 + 1, 1)));
+        }
+        store.onRebuild(snapshots);
+
+        InvoiceAnalyticsDTO analytics = aggregate(AnalyticsDimension.MONTH);
+
+        assertThat(analytics.matchedInvoices()).isEqualTo(100_000);
+        assertThat(analytics.groups()).hasSize(12);
+        assertThat(analytics.groups()).extracting(AnalyticsGroupDTO::invoiceCount)
+                .allMatch(count -> count == 8_333 || count == 8_334);
+        assertThat(groups(AnalyticsDimension.SELLER)).hasSize(7);
+    }
+
+    private InvoiceAnalyticsDTO aggregate(AnalyticsDimension groupBy) {
+        return store.aggregate(new InvoiceColumnStore.Query(groupBy, null, null, null, null, null), 100);
+    }
+
+    private List<Tuple> groups(AnalyticsDimension groupBy) {
+        return aggregate(groupBy).groups().stream()
+                .map(group -> tuple(group.group(), group.invoiceCount(), group.total().toPlainString(), group.vat().toPlainString()))
+                .toList();
+    }
+
+    private static InvoiceSnapshot invoice(long id, String seller, Countries sellerCountry, String buyer, Countries buyerCountry,
+                                           String price, int vat, LocalDate issued) {
+        return new InvoiceSnapshot(id, seller, sellerCountry, buyer, buyerCountry, "Služba",
+                new BigDecimal(price), vat, issued, issued.plusDays(14));
+    }
+}
@@ -0,0 +1,189 @@
+package cz.itnetwork.service.rollup;
+
+import cz.itnetwork.constant.AgingBucket;
+import cz.itnetwork.constant.Countries;
+import cz.itnetwork.dto.AgingBucketDTO;
+import cz.itnetwork.dto.InvoiceSnapshot;
+import cz.itnetwork.dto.SellerAgingDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the bucket transitions of {@link ReceivablesAging} as days pass, including the turn of a year
+ * and due dates far enough to be held in the overflow of the timing wheel.
+ */
+class ReceivablesAgingTest {
+
+    private static final String SELLER = "12345678";
+
+    private final DayClock clock = new DayClock(LocalDate.of(2026, 12, 15));
+    private final List<Long> overdueIds = new ArrayList<>();
+    private final List<LocalDate> overdueDays = new ArrayList<>();
+    private final ReceivablesAging aging;
+
+    @SuppressWarnings("unchecked")
+    ReceivablesAgingTest() {
+        InvoiceOverdueListener listener = (invoice, today) -> {
+            overdueIds.add(invoice.id());
+            overdueDays.add(today);
+        };
+        ObjectProvider<InvoiceOverdueListener> listeners = mock(ObjectProvider.class);
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.of(listener));
+        aging = new ReceivablesAging(listeners, clock);
+    }
+
+    @Test
+    void invoiceMovesThroughBucketsAcrossNewYear() {
+        aging.onAdded(invoice(1, LocalDate.of(2026, 12, 20)));
+        assertBucket(AgingBucket.CURRENT, "121.00");
+
+        clock.set(LocalDate.of(2026, 12, 20));
+        assertBucket(AgingBucket.CURRENT, "121.00");
+        assertThat(overdueIds).isEmpty();
+
+        clock.set(LocalDate.of(2026, 12, 21));
+        assertBucket(AgingBucket.DAYS_1_30, "121.00");
+        assertThat(overdueIds).containsExactly(1L);
+        assertThat(overdueDays).containsExactly(LocalDate.of(2026, 12, 21));
+
+        clock.set(LocalDate.of(2027, 1, 19));
+        assertBucket(AgingBucket.DAYS_1_30, "121.00");
+
+        clock.set(LocalDate.of(2027, 1, 20));
+        assertBucket(AgingBucket.DAYS_31_60, "121.00");
+
+        clock.set(LocalDate.of(2027, 2, 18));
+        assertBucket(AgingBucket.DAYS_31_60, "121.00");
+
+        clock.set(LocalDate.of(2027, 2, 19));
+        assertBucket(AgingBucket.DAYS_61_90, "121.00");
+
+        clock.set(LocalDate.of(2027, 3, 21));
+        assertBucket(AgingBucket.DAYS_OVER_90, "121.00");
+        assertThat(overdueIds).containsExactly(1L);
+    }
+
+    @Test
+    void longGapMovesInvoiceOverSeveralBucketsAtOnce() {
+        aging.onAdded(invoice(1, LocalDate.of(2026, 12, 31)));
+
+        clock.set(LocalDate.of(2027, 6, 30));
+        aging.tick();
+
+        assertBucket(AgingBucket.DAYS_OVER_90, "121.00");
+        assertThat(overdueIds).containsExactly(1L);
+        assertThat(overdueDays).containsExactly(LocalDate.of(2027, 6, 30));
+    }
+
+    @Test
+    void dueDateInOverflowBecomesOverdueOnTheNextDay() {
+        LocalDate dueDate = LocalDate.of(2041, 1, 1);
+        aging.onAdded(invoice(1, dueDate));
+
+        clock.set(dueDate);
+        aging.tick();
+        assertThat(overdueIds).isEmpty();
+
+        clock.set(dueDate.plusDays(1));
+        assertBucket(AgingBucket.DAYS_1_30, "121.00");
+        assertThat(overdueIds).containsExactly(1L);
+    }
+
+    @Test
+    void removedInvoiceNeitherAgesNorNotifies() {
+        InvoiceSnapshot removed = invoice(1, LocalDate.of(2026, 12, 20));
+        aging.onAdded(removed);
+        aging.onAdded(invoice(2, LocalDate.of(2026, 12, 20)));
+        aging.onRemoved(removed);
+
+        clock.set(LocalDate.of(2027, 1, 2));
+
+        assertBucket(AgingBucket.DAYS_1_30, "121.00");
+        assertThat(overdueIds).containsExactly(2L);
+    }
+
+    @Test
+    void invoiceAddedOverdueGoesToItsBucketWithoutNotification() {
+        aging.onAdded(invoice(1, LocalDate.of(2026, 10, 1)));
+
+        assertBucket(AgingBucket.DAYS_61_90, "121.00");
+
+        clock.set(LocalDate.of(2026, 12, 31));
+        assertBucket(AgingBucket.DAYS_OVER_90, "121.00");
+        assertThat(overdueIds).isEmpty();
+    }
+
+    /**
+     * Checks that the only invoice of the seller is in the given bucket and every other bucket is empty.
+     */
+    private void assertBucket(AgingBucket expected, String sumWithVat) {
+        List<SellerAgingDTO> report = aging.getReport(SELLER);
+        assertThat(report).hasSize(1);
+        Map<AgingBucket, AgingBucketDTO> buckets = report.get(0).buckets().stream()
+                .collect(Collectors.toMap(AgingBucketDTO::bucket, Function.identity()));
+        for (AgingBucket bucket : AgingBucket.values()) {
+            AgingBucketDTO totals = buckets.get(bucket);
+            if (bucket == expected) {
+                assertThat(totals.invoicesCount()).as("%s on %s", bucket, clock.today).isEqualTo(1);
+                assertThat(totals.sumWithVat()).isEqualByComparingTo(sumWithVat);
+            } else {
+                assertThat(totals.invoicesCount()).as("%s on %s", bucket, clock.today).isZero();
+            }
+        }
+        BigDecimal overdue = expected == AgingBucket.CURRENT ? BigDecimal.ZERO : new BigDecimal(sumWithVat);
+        assertThat(report.get(0).overdueSumWithVat()).isEqualByComparingTo(overdue);
+    }
+
+    private static InvoiceSnapshot invoice(long id, LocalDate dueDate) {
+        return new InvoiceSnapshot(id, SELLER, Countries.CZECHIA, "87654321", Countries.CZECHIA, "Služba",
+                new BigDecimal("100.00"), 21, dueDate.minusDays(14), dueDate);
+    }
+
+    /**
+     * A clock showing the start of a day that the test sets.
+     */
+    private static final class DayClock extends Clock {
+
+        private LocalDate today;
+
+        private DayClock(LocalDate today) {
+            this.today = today;
+        }
+
+        private void set(LocalDate today) {
+            this.today = today;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return today.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cz.itnetwork.service.shard;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of where {@link ShardedOperations} runs the work for the shards.
+ */
+class ShardedOperationsTest {
+
+    private static final int SHARDS = 2;
+
+    private final ShardedOperations operations;
+
+    @SuppressWarnings("unchecked")
+    ShardedOperationsTest() {
+        EntityManagerFactory factory = mock(EntityManagerFactory.class);
+        when(factory.createEntityManager()).thenAnswer(invocation -> mock(EntityManager.class));
+        ObjectProvider<EntityManagerFactory> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(factory);
+        operations = new ShardedOperations(SHARDS, 1_000, provider, 1);
+    }
+
+    @AfterEach
+    void shutdown() {
+        operations.shutdown();
+    }
+
+    @Test
+    void singleShardWorkRunsOnCallingThreadWithShardSelected() {
+        Thread caller = Thread.currentThread();
+
+        assertThat(operations.onShard(1, Thread::currentThread)).isSameAs(caller);
+        assertThat(operations.onShard(1, ShardContext::current)).isEqualTo(1);
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void singleShardWorkRunsOnWorkerWhenCallerIsInTransaction() {
+        Thread caller = Thread.currentThread();
+
+        inTransaction(() -> assertThat(operations.onShard(1, Thread::currentThread)).isNotSameAs(caller));
+    }
+
+    @Test
+    void workForAllShardsRunsOnCallingThreadWhenWorkersAreBusy() throws Exception {
+        CountDownLatch workersBusy = new CountDownLatch(SHARDS);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<Integer>> blocking = CompletableFuture.supplyAsync(() -> operations.onAllShards(() -> {
+            workersBusy.countDown();
+            await(release);
+            return ShardContext.current();
+        }));
+        try {
+            assertThat(workersBusy.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(operations.onAllShards(ShardContext::current)).containsExactly(0, 1);
+            inTransaction(() -> assertThatThrownBy(() -> operations.onAllShards(ShardContext::current))
+                    .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                            assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)));
+        } finally {
+            release.countDown();
+        }
+        assertThat(blocking.get(5, TimeUnit.SECONDS)).containsExactly(0, 1);
+    }
+
+    private static void inTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}